@@ -63,7 +63,15 @@ public class DefaultJsonRpcSigner implements JsonRpcSigner {
   }
 
   private <T extends IData> String createSignature(String method, String uuid, T data) {
-    String serializedData = this.serializer.serializeData(data);
+    return this.signSerializedData(method, uuid, this.serializer.serializeData(data));
+  }
+
+  /**
+   * Signs data that has already been serialized in the canonical format of {@link Serializer}, for example by a precomputed template.
+   *
+   * @return The base64 encoded signature
+   */
+  public String signSerializedData(String method, String uuid, String serializedData) {
     String plainText = this.createPlaintext(serializedData, method, uuid);
 
     Signature signer;
@@ -134,31 +142,84 @@ public class DefaultJsonRpcSigner implements JsonRpcSigner {
 
     String responsePlainText = this.createPlaintext(serializedResponseData, method, uuid);
 
-    byte[] responseBytes = responsePlainText.getBytes(StandardCharsets.UTF_8);
-    byte[] expectedSignatureBytes = Base64.getDecoder().decode(expectedSignature);
+    Signature verifier = this.createVerifier();
+    update(verifier, responsePlainText);
+    verifySignature(verifier, expectedSignature, method, uuid);
+  }
+
+  /**
+   * Feeds the signature with the canonical serialization of each element as it is read. The serialization of an array is the
+   * concatenation of the serialization of its elements, so the plaintext is the same as if the whole array had been serialized at once.
+   */
+  @Override
+  public StreamingVerifier startStreamingVerification(String method, String uuid) {
+
+    Signature verifier = this.createVerifier();
+    update(verifier, method);
+    update(verifier, uuid);
+
+    return new StreamingVerifier() {
+
+      @Override
+      public void update(JsonNode dataElement) {
+        DefaultJsonRpcSigner.update(verifier, DefaultJsonRpcSigner.this.serializer.serializeNode(dataElement));
+      }
+
+      @Override
+      public void verify(String signature) throws TrustlySignatureException {
 
+        if (TrustlyStringUtils.isBlank(signature)) {
+          throw new IllegalArgumentException("There was no expected signature given. The payload seems malformed");
+        }
+
+        verifySignature(verifier, signature, method, uuid);
+      }
+    };
+  }
+
+  private Signature createVerifier() {
     try {
 
       if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
         Security.addProvider(new BouncyCastleProvider());
       }
 
-      Signature signer = Signature.getInstance(SHA1_WITH_RSA, BouncyCastleProvider.PROVIDER_NAME);
-      signer.initVerify(this.settings.getTrustlyPublicKey());
-      signer.update(responseBytes);
-
-      if (!signer.verify(expectedSignatureBytes)) {
-        throw new TrustlySignatureException(
-          String.format("Could not verify signature '%s' of message '%s' with method '%s'", expectedSignature, uuid, method));
-      }
+      Signature verifier = Signature.getInstance(SHA1_WITH_RSA, BouncyCastleProvider.PROVIDER_NAME);
+      verifier.initVerify(this.settings.getTrustlyPublicKey());
+      return verifier;
     } catch (NoSuchAlgorithmException e) {
       throw new IllegalArgumentException("Could not find the algorithm, has BouncyCastle not been initialized?", e);
     } catch (NoSuchProviderException e) {
       throw new IllegalArgumentException("Could not find the security provider, has BouncyCastle not been initialized?", e);
-    } catch (SignatureException e) {
-      throw new IllegalArgumentException("Could not update the signature with the given response bytes", e);
     } catch (InvalidKeyException e) {
       throw new IllegalArgumentException("Could not verify the data with the given Trustly public key", e);
     }
   }
+
+  private static void update(Signature verifier, String text) {
+    if (text == null) {
+      // The same as what String.format() gives for null in createPlaintext().
+      text = "null";
+    }
+
+    try {
+      verifier.update(text.getBytes(StandardCharsets.UTF_8));
+    } catch (SignatureException e) {
+      throw new IllegalArgumentException("Could not update the signature with the given response bytes", e);
+    }
+  }
+
+  private static void verifySignature(Signature verifier, String expectedSignature, String method, String uuid)
+    throws TrustlySignatureException {
+
+    byte[] expectedSignatureBytes = Base64.getDecoder().decode(expectedSignature);
+    try {
+      if (!verifier.verify(expectedSignatureBytes)) {
+        throw new TrustlySignatureException(
+          String.format("Could not verify signature '%s' of message '%s' with method '%s'", expectedSignature, uuid, method));
+      }
+    } catch (SignatureException e) {
+      throw new IllegalArgumentException("Could not update the signature with the given response bytes", e);
+    }
+  }
 }
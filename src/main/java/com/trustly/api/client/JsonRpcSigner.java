@@ -1,16 +1,30 @@
 package com.trustly.api.client;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.trustly.api.domain.base.IRequest;
 import com.trustly.api.domain.base.IRequestParams;
 import com.trustly.api.domain.base.IRequestParamsData;
 import com.trustly.api.domain.base.IResponseResultData;
 import com.trustly.api.domain.base.JsonRpcRequest;
 import com.trustly.api.domain.base.JsonRpcResponse;
+import com.trustly.api.domain.base.ResponseResult;
 import com.trustly.api.domain.exceptions.TrustlySignatureException;
 
 public interface JsonRpcSigner {
 
+  /**
+   * Verifies the signature of a response whose data is an array, which is given one element at a time as it is being read.
+   */
+  interface StreamingVerifier {
+
+    void update(JsonNode dataElement);
+
+    void verify(String signature) throws TrustlySignatureException;
+  }
+
   <T extends IRequestParamsData> JsonRpcRequest<T> sign(JsonRpcRequest<T> request);
 
   <T extends IResponseResultData> JsonRpcResponse<T> sign(JsonRpcResponse<T> response);
@@ -18,4 +32,35 @@ public interface JsonRpcSigner {
   <D extends IRequestParamsData, P extends IRequestParams<D>> void verify(IRequest<P> request) throws TrustlySignatureException;
 
   <T extends IResponseResultData> void verify(JsonRpcResponse<T> response, JsonNode nodeResponse) throws TrustlySignatureException;
+
+  /**
+   * Starts verifying a response whose data array is read one element at a time.
+   * <p>
+   * The default implementation keeps all elements, and then calls {@link #verify(JsonRpcResponse, JsonNode)} with them. Signers that can
+   * verify incrementally should override this, so the elements do not have to be kept.
+   */
+  default StreamingVerifier startStreamingVerification(String method, String uuid) {
+
+    ArrayNode data = JsonNodeFactory.instance.arrayNode();
+    return new StreamingVerifier() {
+
+      @Override
+      public void update(JsonNode dataElement) {
+        data.add(dataElement);
+      }
+
+      @Override
+      public void verify(String signature) throws TrustlySignatureException {
+
+        ObjectNode nodeResponse = JsonNodeFactory.instance.objectNode();
+        nodeResponse.putObject("result").set("data", data);
+
+        JsonRpcResponse<IResponseResultData> response = JsonRpcResponse.builder()
+          .result(ResponseResult.builder().method(method).uuid(uuid).signature(signature).build())
+          .build();
+
+        JsonRpcSigner.this.verify(response, nodeResponse);
+      }
+    };
+  }
 }
@@ -3,6 +3,7 @@ package com.trustly.api.client;
 import com.trustly.api.domain.exceptions.TrustlyValidationException;
 import com.trustly.api.validation.AnnotationsValidator;
 import com.trustly.api.validation.AnnotationsValidatorLoader;
+import com.trustly.api.validation.CompiledAnnotationsValidatorLoader;
 import com.trustly.api.validation.HibernateDataAnnotationsValidatorLoader;
 import com.trustly.api.validation.ValidationResult;
 import java.util.List;
@@ -10,6 +11,7 @@ import java.util.List;
 public class JsonRpcValidator {
 
   private static final AnnotationsValidatorLoader[] ANNOTATIONS_VALIDATORS = new AnnotationsValidatorLoader[]{
+    new CompiledAnnotationsValidatorLoader(),
     new HibernateDataAnnotationsValidatorLoader()
   };
 
@@ -29,6 +31,10 @@ public class JsonRpcValidator {
     this.validator = foundValidator;
   }
 
+  public JsonRpcValidator(AnnotationsValidator validator) {
+    this.validator = validator;
+  }
+
   public void validate(Object jsonRpcRequest) throws TrustlyValidationException {
 
     if (this.validator == null) {
@@ -0,0 +1,168 @@
+package com.trustly.api.client;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many notifications are handled at the same time, and how many may wait for their turn.
+ * <p>
+ * Give an instance to {@link TrustlyApiClientExtensions#handleNotificationRequest(java.io.InputStream,
+ * TrustlyApiClientExtensions.NotificationResponder, NotificationBackpressure)}. A notification that is not let in is answered with HTTP
+ * status 503 and no body, without calling any listeners, and Trustly will then send it again later.
+ * <p>
+ * The counters can be read at any time, to be exported to your metrics system.
+ */
+public class NotificationBackpressure {
+
+  public enum OverloadPolicy {
+
+    /**
+     * If all slots are taken, the notification is directly answered with HTTP status 503.
+     */
+    RESPOND_FAILED,
+
+    /**
+     * If all slots are taken, the notification waits in the queue for a free slot. It is answered with 503 if the queue is
+     * full, or if no slot was freed before the deadline.
+     */
+    BLOCK_WITH_DEADLINE
+  }
+
+  private final Semaphore slots;
+  private final int maxQueued;
+  private final OverloadPolicy policy;
+  private final long deadlineMillis;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger maxQueuedObserved = new AtomicInteger();
+  private final AtomicLong acceptedCount = new AtomicLong();
+  private final AtomicLong rejectedCount = new AtomicLong();
+  private final AtomicLong timedOutCount = new AtomicLong();
+
+  /**
+   * @param maxConcurrent  The maximum number of notifications that are handled at the same time
+   * @param maxQueued      The maximum number of notifications that may wait for a slot, only used by
+   *                       {@link OverloadPolicy#BLOCK_WITH_DEADLINE}
+   * @param policy         What to do with a notification when all slots are taken
+   * @param deadlineMillis The longest time a notification waits for a slot, only used by {@link OverloadPolicy#BLOCK_WITH_DEADLINE}
+   */
+  public NotificationBackpressure(int maxConcurrent, int maxQueued, OverloadPolicy policy, long deadlineMillis) {
+
+    if (maxConcurrent <= 0) {
+      throw new IllegalArgumentException("There must be at least one concurrent notification allowed");
+    }
+
+    if (maxQueued < 0) {
+      throw new IllegalArgumentException("The max number of queued notifications cannot be negative");
+    }
+
+    this.slots = new Semaphore(maxConcurrent, true);
+    this.maxQueued = maxQueued;
+    this.policy = policy;
+    this.deadlineMillis = deadlineMillis;
+  }
+
+  public static NotificationBackpressure respondFailed(int maxConcurrent) {
+    return new NotificationBackpressure(maxConcurrent, 0, OverloadPolicy.RESPOND_FAILED, 0);
+  }
+
+  public static NotificationBackpressure blockWithDeadline(int maxConcurrent, int maxQueued, long deadline, TimeUnit unit) {
+    return new NotificationBackpressure(maxConcurrent, maxQueued, OverloadPolicy.BLOCK_WITH_DEADLINE, unit.toMillis(deadline));
+  }
+
+  /**
+   * Tries to take a slot for handling a notification. If this returns true, then {@link NotificationBackpressure#release()} must be
+   * called when the notification has been handled.
+   *
+   * @return If a slot was taken, according to the {@link OverloadPolicy}.
+   */
+  public boolean tryAcquire() {
+
+    if (this.slots.tryAcquire()) {
+      this.onAcquired();
+      return true;
+    }
+
+    if (this.policy == OverloadPolicy.RESPOND_FAILED) {
+      this.rejectedCount.incrementAndGet();
+      return false;
+    }
+
+    int queuePosition = this.queued.incrementAndGet();
+    try {
+
+      if (queuePosition > this.maxQueued) {
+        this.rejectedCount.incrementAndGet();
+        return false;
+      }
+
+      this.maxQueuedObserved.accumulateAndGet(queuePosition, Math::max);
+
+      if (this.slots.tryAcquire(this.deadlineMillis, TimeUnit.MILLISECONDS)) {
+        this.onAcquired();
+        return true;
+      }
+
+      this.timedOutCount.incrementAndGet();
+      return false;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      this.rejectedCount.incrementAndGet();
+      return false;
+    } finally {
+      this.queued.decrementAndGet();
+    }
+  }
+
+  public void release() {
+    this.inFlight.decrementAndGet();
+    this.slots.release();
+  }
+
+  /**
+   * @return The number of notifications being handled right now.
+   */
+  public int getInFlight() {
+    return this.inFlight.get();
+  }
+
+  /**
+   * @return The number of notifications waiting for a slot right now.
+   */
+  public int getQueueDepth() {
+    return Math.min(this.queued.get(), this.maxQueued);
+  }
+
+  /**
+   * @return The highest number of notifications that have been waiting for a slot at the same time.
+   */
+  public int getMaxQueueDepth() {
+    return this.maxQueuedObserved.get();
+  }
+
+  public long getAcceptedCount() {
+    return this.acceptedCount.get();
+  }
+
+  /**
+   * @return The number of notifications answered with 503 since all slots were taken, or the queue was full.
+   */
+  public long getRejectedCount() {
+    return this.rejectedCount.get();
+  }
+
+  /**
+   * @return The number of notifications answered with 503 since they did not get a slot before the deadline.
+   */
+  public long getTimedOutCount() {
+    return this.timedOutCount.get();
+  }
+
+  private void onAcquired() {
+    this.inFlight.incrementAndGet();
+    this.acceptedCount.incrementAndGet();
+  }
+}
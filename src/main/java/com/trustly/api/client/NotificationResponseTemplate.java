@@ -0,0 +1,149 @@
+package com.trustly.api.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trustly.api.domain.base.JsonRpcResponse;
+import com.trustly.api.domain.base.NotificationResponse;
+import com.trustly.api.domain.base.ResponseResult;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the JSON of a signed notification response from a skeleton, instead of building and serializing the domain objects.
+ * <p>
+ * The skeleton is made once, by serializing the {@link JsonRpcResponse} of a {@link NotificationResponse} with placeholder values and
+ * cutting the JSON at the placeholders. So the output is the same JSON as serializing the response created by
+ * {@link TrustlyApiClient#createResponsePackage}, including the derived getters of {@link JsonRpcResponse}, and it follows any change to
+ * the domain classes. The serialized data is the same as what {@link Serializer} would give for it, so the signature is the same as well.
+ * Like there, the message is added after signing and is not part of the signed data.
+ */
+final class NotificationResponseTemplate {
+
+  private enum Slot {
+    SIGNATURE,
+    UUID,
+    METHOD,
+    STATUS,
+    MESSAGE
+  }
+
+  private static final NotificationResponseTemplate WITHOUT_MESSAGE = create(false);
+  private static final NotificationResponseTemplate WITH_MESSAGE = create(true);
+
+  // The literal JSON before each slot, and after the last one.
+  private final String[] literals;
+  private final Slot[] slots;
+
+  private NotificationResponseTemplate(String[] literals, Slot[] slots) {
+    this.literals = literals;
+    this.slots = slots;
+  }
+
+  /**
+   * @return The data serialized in the canonical format that is signed, which only contains the status
+   */
+  static String serializeData(String status) {
+    return (status == null) ? "status" : "status" + status;
+  }
+
+  /**
+   * @param message The message to include in the data, or null if it should not be included at all
+   */
+  static String render(String signature, String uuid, String method, String status, String message) {
+
+    NotificationResponseTemplate template = (message == null) ? WITHOUT_MESSAGE : WITH_MESSAGE;
+
+    StringBuilder sb = new StringBuilder(512 + ((message == null) ? 0 : 2 * message.length()));
+    for (int i = 0; i < template.slots.length; i++) {
+      sb.append(template.literals[i]);
+      switch (template.slots[i]) {
+        case SIGNATURE:
+          appendValue(sb, signature);
+          break;
+        case UUID:
+          appendValue(sb, uuid);
+          break;
+        case METHOD:
+          appendValue(sb, method);
+          break;
+        case STATUS:
+          appendValue(sb, status);
+          break;
+        default:
+          appendValue(sb, message);
+          break;
+      }
+    }
+
+    return sb.append(template.literals[template.slots.length]).toString();
+  }
+
+  private static NotificationResponseTemplate create(boolean withMessage) {
+
+    NotificationResponse.NotificationResponseBuilder<?, ?> data = NotificationResponse.builder().status(placeholder(Slot.STATUS));
+    if (withMessage) {
+      data.any("message", placeholder(Slot.MESSAGE));
+    }
+
+    JsonRpcResponse<NotificationResponse> response = JsonRpcResponse.<NotificationResponse>builder()
+      .version("1.1")
+      .result(
+        ResponseResult.<NotificationResponse>builder()
+          .signature(placeholder(Slot.SIGNATURE))
+          .uuid(placeholder(Slot.UUID))
+          .method(placeholder(Slot.METHOD))
+          .data(data.build())
+          .build()
+      )
+      .build();
+
+    String json;
+    try {
+      json = new ObjectMapper().writeValueAsString(response);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Could not serialize the notification response skeleton", ex);
+    }
+
+    List<String> literals = new ArrayList<>();
+    List<Slot> slots = new ArrayList<>();
+    int offset = 0;
+    while (true) {
+
+      Slot next = null;
+      int nextIndex = -1;
+      for (Slot slot : Slot.values()) {
+        int index = json.indexOf('"' + placeholder(slot) + '"', offset);
+        if (index != -1 && (nextIndex == -1 || index < nextIndex)) {
+          next = slot;
+          nextIndex = index;
+        }
+      }
+
+      if (next == null) {
+        literals.add(json.substring(offset));
+        break;
+      }
+
+      literals.add(json.substring(offset, nextIndex));
+      slots.add(next);
+      offset = nextIndex + placeholder(next).length() + 2;
+    }
+
+    return new NotificationResponseTemplate(literals.toArray(new String[0]), slots.toArray(new Slot[0]));
+  }
+
+  private static String placeholder(Slot slot) {
+    return "@@trustly-" + slot.name() + "@@";
+  }
+
+  private static void appendValue(StringBuilder sb, String value) {
+    if (value == null) {
+      sb.append("null");
+    } else {
+      sb.append('"');
+      JsonStringEncoder.getInstance().quoteAsString(value, sb);
+      sb.append('"');
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.trustly.api.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.trustly.api.client.JsonRpcSigner.StreamingVerifier;
+import com.trustly.api.domain.base.ResponseError;
+import com.trustly.api.domain.exceptions.TrustlySignatureException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Reads a JSON-RPC response whose {@code result.data} is an array, one element at a time, without keeping the elements. Each element is
+ * given to the {@link StreamingVerifier} and then bound and given to the consumer.
+ * <p>
+ * The fields of the result can come in any order, and Trustly sends the signature and uuid after the data, so they can only be checked
+ * once the whole response has been read.
+ */
+final class StreamingResponseReader<E> {
+
+  private final ObjectMapper objectMapper;
+  private final ObjectReader treeReader;
+  private final StreamingVerifier verifier;
+  private final ObjectReader elementReader;
+  private final Consumer<E> consumer;
+
+  private boolean sawResult;
+  private String signature;
+  private String uuid;
+  private String method;
+  private ResponseError error;
+
+  StreamingResponseReader(ObjectMapper objectMapper, StreamingVerifier verifier, ObjectReader elementReader, Consumer<E> consumer) {
+    this.objectMapper = objectMapper;
+    // With exact decimals, so a number bound to a String field keeps the text that was sent and signed.
+    this.treeReader = objectMapper.reader()
+      .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+      .with(JsonNodeFactory.withExactBigDecimals(true));
+    this.verifier = verifier;
+    this.elementReader = elementReader;
+    this.consumer = consumer;
+  }
+
+  void read(InputStream body) throws IOException {
+
+    try (JsonParser parser = this.objectMapper.getFactory().createParser(body)) {
+
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("The response from Trustly is not a JSON object");
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+
+        if ("result".equals(name) && parser.currentToken() == JsonToken.START_OBJECT) {
+          this.sawResult = true;
+          this.readResult(parser);
+        } else if ("error".equals(name) && parser.currentToken() == JsonToken.START_OBJECT) {
+          // There is no data to stream, so the rest of the response does not matter.
+          this.error = this.objectMapper.readValue(parser, ResponseError.class);
+          return;
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  private void readResult(JsonParser parser) throws IOException {
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.getCurrentName();
+      parser.nextToken();
+
+      switch (name) {
+        case "signature":
+          this.signature = parser.getValueAsString();
+          break;
+        case "uuid":
+          this.uuid = parser.getValueAsString();
+          break;
+        case "method":
+          this.method = parser.getValueAsString();
+          break;
+        case "data":
+          this.readData(parser);
+          break;
+        default:
+          parser.skipChildren();
+          break;
+      }
+    }
+  }
+
+  private void readData(JsonParser parser) throws IOException {
+
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      if (parser.currentToken() != JsonToken.VALUE_NULL) {
+        this.verifier.update(this.treeReader.readTree(parser));
+      }
+
+      return;
+    }
+
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      JsonNode element = this.treeReader.readTree(parser);
+      this.verifier.update(element);
+      this.consumer.accept(this.elementReader.readValue(element));
+    }
+  }
+
+  void verify() throws TrustlySignatureException {
+    this.verifier.verify(this.signature);
+  }
+
+  boolean isSawResult() {
+    return this.sawResult;
+  }
+
+  String getSignature() {
+    return this.signature;
+  }
+
+  String getUuid() {
+    return this.uuid;
+  }
+
+  String getMethod() {
+    return this.method;
+  }
+
+  ResponseError getError() {
+    return this.error;
+  }
+}
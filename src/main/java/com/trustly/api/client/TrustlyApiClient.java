@@ -1,8 +1,11 @@
 package com.trustly.api.client;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.trustly.api.client.NotificationArgs.NotificationFailHandler;
 import com.trustly.api.client.NotificationArgs.NotificationOkHandler;
 import com.trustly.api.domain.base.IFromTrustlyRequestData;
@@ -13,7 +16,9 @@ import com.trustly.api.domain.base.IWithRejectionResult;
 import com.trustly.api.domain.base.JsonRpcRequest;
 import com.trustly.api.domain.base.JsonRpcResponse;
 import com.trustly.api.domain.base.NotificationRequest;
+import com.trustly.api.domain.base.NotificationResponse;
 import com.trustly.api.domain.base.ResponseResult;
+import com.trustly.api.domain.common.InterningStringDeserializer;
 import com.trustly.api.domain.exceptions.TrustlyErrorResponseException;
 import com.trustly.api.domain.exceptions.TrustlyNoNotificationListenerException;
 import com.trustly.api.domain.exceptions.TrustlyRejectionException;
@@ -22,6 +27,7 @@ import com.trustly.api.domain.exceptions.TrustlySignatureException;
 import com.trustly.api.domain.exceptions.TrustlyValidationException;
 import com.trustly.api.domain.methods.accountledger.AccountLedgerRequestData;
 import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseData;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
 import com.trustly.api.domain.methods.accountpayout.AccountPayoutRequestData;
 import com.trustly.api.domain.methods.accountpayout.AccountPayoutResponseData;
 import com.trustly.api.domain.methods.approvewithdrawal.ApproveWithdrawalRequestData;
@@ -77,6 +83,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
@@ -120,6 +127,12 @@ public class TrustlyApiClient implements Closeable {
   private final TrustlyApiClientSettings settings;
 
   private final ObjectMapper objectMapper = new ObjectMapper();
+
+  // Bodies are read into a tree with exact decimals, so a number that is bound to a String field from the tree keeps the text that was
+  // sent, the same as when binding straight from the text, and the signature is checked against that text.
+  private final ObjectReader treeReader = this.objectMapper.reader()
+    .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+    .with(JsonNodeFactory.withExactBigDecimals(true));
   private final JsonRpcFactory objectFactory = new JsonRpcFactory();
   private final JsonRpcSigner signer;
   private final JsonRpcValidator validator = new JsonRpcValidator();
@@ -174,6 +187,18 @@ public class TrustlyApiClient implements Closeable {
     return this.sendRequest(request, AccountLedgerResponseData.class, "AccountLedger", null);
   }
 
+  /**
+   * Same as {@link TrustlyApiClient#accountLedger(AccountLedgerRequestData)}, but gives each entry to the consumer as soon as it has been
+   * read from the response, so the whole ledger is never held in memory.
+   * <p>
+   * The signature is verified as the entries are read, but can only be checked once the whole response has been read. If this throws, any
+   * entries that were already given to the consumer must be discarded.
+   */
+  public void accountLedger(AccountLedgerRequestData request, Consumer<AccountLedgerResponseDataEntry> consumer)
+    throws TrustlyRequestException {
+    this.sendStreamingRequest(request, AccountLedgerResponseDataEntry.class, "AccountLedger", null, consumer);
+  }
+
   /**
    * This method is used by merchants to transfer money to their customer's bank accounts.
    * <p>
@@ -510,7 +535,7 @@ public class TrustlyApiClient implements Closeable {
     JsonRpcRequest<T> rpcRequest = this.objectFactory.create(requestData, method, uuid);
     JsonRpcRequest<T> signedRpcRequest = this.signer.sign(rpcRequest);
 
-    this.validator.validate(signedRpcRequest);
+    this.settings.getValidationPolicy().validate(this.validator, signedRpcRequest, true);
 
     return signedRpcRequest;
   }
@@ -544,11 +569,72 @@ public class TrustlyApiClient implements Closeable {
 
     JsonRpcResponse<R> signedResponse = this.signer.sign(rpcResponse);
 
-    this.validator.validate(signedResponse);
+    this.settings.getValidationPolicy().validate(this.validator, signedResponse, false);
 
     return signedResponse;
   }
 
+  /**
+   * Creates the signed JSON response to a notification, ready to be written back to Trustly.
+   * <p>
+   * With the {@link DefaultJsonRpcSigner}, the JSON is written directly from a precomputed skeleton and only the signature is computed.
+   * Other signers go through {@link TrustlyApiClient#createResponsePackage} as usual. Both are validated according to the
+   * {@link ValidationPolicy} of the settings. In both cases the message is added after signing, so
+   * the signature only covers the method, uuid and status.
+   *
+   * @param message The message to include in the response data, or null if no message should be included
+   */
+  public String createNotificationResponseJson(String method, String uuid, String status, String message)
+    throws IOException, TrustlyValidationException {
+
+    if (this.signer instanceof DefaultJsonRpcSigner) {
+      String serializedData = NotificationResponseTemplate.serializeData(status);
+      String signature = ((DefaultJsonRpcSigner) this.signer).signSerializedData(method, uuid, serializedData);
+
+      // The domain objects are only created if the validation policy wants to validate our responses.
+      this.settings.getValidationPolicy().validate(
+        this.validator,
+        () -> JsonRpcResponse.<NotificationResponse>builder()
+          .version("1.1")
+          .result(
+            ResponseResult.<NotificationResponse>builder()
+              .data(NotificationResponse.builder().status(status).build())
+              .method(method)
+              .uuid(uuid)
+              .signature(signature)
+              .build()
+          )
+          .build(),
+        false
+      );
+
+      return NotificationResponseTemplate.render(signature, uuid, method, status, message);
+    }
+
+    NotificationResponse notificationResponse = NotificationResponse.builder()
+      .status(status)
+      .build();
+
+    JsonRpcResponse<NotificationResponse> rpcResponse = this.createResponsePackage(method, uuid, notificationResponse);
+
+    if (message != null) {
+
+      rpcResponse = rpcResponse.toBuilder()
+        .result(
+          rpcResponse.getResult().toBuilder()
+            .data(
+              rpcResponse.getResult().getData().toBuilder()
+                .any("message", message)
+                .build()
+            )
+            .build()
+        )
+        .build();
+    }
+
+    return this.objectMapper.writeValueAsString(rpcResponse);
+  }
+
   /**
    * Manually send a request to Trustly with the specified data and method and uuid.
    * <p>
@@ -573,6 +659,74 @@ public class TrustlyApiClient implements Closeable {
     }
   }
 
+  /**
+   * Same as {@link TrustlyApiClient#sendRequest(IToTrustlyRequestParams, Class, String, String)}, but for methods whose response data is an
+   * array, which is read one element at a time and given to the consumer. The signature is checked once the whole response has been read.
+   */
+  public <T extends IToTrustlyRequestParams, E> void sendStreamingRequest(
+    T requestData,
+    Class<E> elementClass,
+    String method,
+    String uuid,
+    Consumer<E> consumer
+  ) throws TrustlyRequestException {
+
+    try {
+      this.sendStreamingRequestWithSpecificExceptions(requestData, elementClass, method, uuid, consumer);
+    } catch (IOException
+             | TrustlyValidationException
+             | TrustlyErrorResponseException
+             | TrustlySignatureException e) {
+
+      throw new TrustlyRequestException(e);
+    }
+  }
+
+  private <T extends IToTrustlyRequestParams, E> void sendStreamingRequestWithSpecificExceptions(
+    T requestData,
+    Class<E> elementClass,
+    String method,
+    String uuid,
+    Consumer<E> consumer
+  ) throws TrustlyErrorResponseException, IOException, TrustlySignatureException, TrustlyValidationException {
+
+    requestData.setUsername(this.settings.getUsername());
+    requestData.setPassword(this.settings.getPassword());
+
+    JsonRpcRequest<T> rpcRequest = this.createRequestPackage(requestData, method, uuid);
+    String requestUuid = rpcRequest.getParams().getUuid();
+
+    String requestString = this.objectMapper.writeValueAsString(rpcRequest);
+
+    // The response is signed with the uuid and method of the request, so the verification can start before they have been read.
+    StreamingResponseReader<E> reader = new StreamingResponseReader<>(
+      this.objectMapper,
+      this.signer.startStreamingVerification(method, requestUuid),
+      InterningStringDeserializer.withSharedDictionary(this.objectMapper.readerFor(elementClass)),
+      consumer
+    );
+
+    this.httpRequester.requestStream(this.settings, requestString, reader::read);
+
+    if (reader.getError() != null || !reader.isSawResult()) {
+      assertSuccessful(JsonRpcResponse.builder().error(reader.getError()).build());
+    }
+
+    if (TrustlyStringUtils.isBlank(reader.getUuid()) || !reader.getUuid().equals(requestUuid)) {
+      throw new TrustlyValidationException(
+        String.format("Incoming UUID is not valid. Expected %s but got back %s", requestUuid, reader.getUuid())
+      );
+    }
+
+    if (!method.equals(reader.getMethod())) {
+      throw new TrustlyValidationException(
+        String.format("Incoming method is not valid. Expected %s but got back %s", method, reader.getMethod())
+      );
+    }
+
+    reader.verify();
+  }
+
   /**
    * Sends given request to Trustly.
    *
@@ -603,11 +757,12 @@ public class TrustlyApiClient implements Closeable {
 
     String requestString = this.objectMapper.writeValueAsString(rpcRequest);
 
-    String responseString = this.httpRequester.request(this.settings, requestString);
+    byte[] responseBytes = this.httpRequester.requestBytes(this.settings, requestString);
 
-    JsonNode rpcNodeResponse = this.objectMapper.readTree(responseString);
+    // The response is only parsed once, into a tree, which is used both for binding and for verifying the signature.
+    JsonNode rpcNodeResponse = this.treeReader.readTree(responseBytes);
     JavaType javaResponseType = this.objectMapper.getTypeFactory().constructParametricType(JsonRpcResponse.class, clazz);
-    JsonRpcResponse<R> rpcResponse = this.objectMapper.readValue(responseString, javaResponseType);
+    JsonRpcResponse<R> rpcResponse = this.objectMapper.readerFor(javaResponseType).readValue(rpcNodeResponse);
 
     assertSuccessful(rpcResponse);
     assertWithoutRejection(rpcResponse);
@@ -697,7 +852,76 @@ public class TrustlyApiClient implements Closeable {
     NotificationFailHandler onFailed
   ) throws IOException, TrustlyNoNotificationListenerException, TrustlyValidationException, TrustlySignatureException {
 
-    JsonNode jsonToken = this.objectMapper.readTree(jsonString);
+    this.handleNotification(this.treeReader.readTree(jsonString), onOK, onFailed);
+  }
+
+  /**
+   * Same as {@link TrustlyApiClient#handleNotification(String, NotificationOkHandler, NotificationFailHandler)}, but reads the notification
+   * directly from its UTF-8 encoded bytes, without first decoding them into a string.
+   *
+   * @param body The buffer containing the incoming notification
+   * @param offset Where in the buffer the notification starts
+   * @param length The length of the notification in bytes
+   */
+  public void handleNotification(
+    byte[] body,
+    int offset,
+    int length,
+    NotificationOkHandler onOK,
+    NotificationFailHandler onFailed
+  ) throws IOException, TrustlyNoNotificationListenerException, TrustlyValidationException, TrustlySignatureException {
+
+    this.handleNotification(this.treeReader.readTree(body, offset, length), onOK, onFailed);
+  }
+
+  /**
+   * Will deserialize and verify the signature of the incoming payload, without calling any of the notification listeners.
+   * <p>
+   * This is useful if you want to acknowledge a notification before it is processed, for example by storing it and later giving it to
+   * {@link TrustlyApiClient#handleNotification(String, NotificationOkHandler, NotificationFailHandler)}.
+   *
+   * @param jsonString The incoming notification as a JSON string
+   * @return The deserialized and verified notification
+   *
+   * @throws IOException If the JSON string could not be deserialized.
+   * @throws TrustlyNoNotificationListenerException If there was no listener for the notification, nor one for unknown ones.
+   * @throws TrustlySignatureException If the signature of the notification could not be properly verified.
+   */
+  public NotificationRequest<? extends IFromTrustlyRequestData> verifyNotification(String jsonString)
+    throws IOException, TrustlyNoNotificationListenerException, TrustlySignatureException {
+
+    JsonNode jsonToken = this.treeReader.readTree(jsonString);
+
+    return this.readVerifiedNotification(jsonToken, this.getNotificationMeta(jsonToken));
+  }
+
+  /**
+   * Same as {@link TrustlyApiClient#verifyNotification(String)}, but reads the notification directly from its UTF-8 encoded bytes.
+   */
+  public NotificationRequest<? extends IFromTrustlyRequestData> verifyNotification(byte[] body, int offset, int length)
+    throws IOException, TrustlyNoNotificationListenerException, TrustlySignatureException {
+
+    JsonNode jsonToken = this.treeReader.readTree(body, offset, length);
+
+    return this.readVerifiedNotification(jsonToken, this.getNotificationMeta(jsonToken));
+  }
+
+  private void handleNotification(
+    JsonNode jsonToken,
+    NotificationOkHandler onOK,
+    NotificationFailHandler onFailed
+  ) throws IOException, TrustlyNoNotificationListenerException, TrustlyValidationException, TrustlySignatureException {
+
+    if (jsonToken == null || jsonToken.isMissingNode()) {
+      throw new IOException("The notification body was empty");
+    }
+
+    this.handleNotification(jsonToken, this.getNotificationMeta(jsonToken), onOK, onFailed);
+  }
+
+  private NotificationMeta<? extends IFromTrustlyRequestData> getNotificationMeta(JsonNode jsonToken)
+    throws TrustlyNoNotificationListenerException {
+
     String methodValue = jsonToken.at("/method").asText("").toLowerCase(Locale.ROOT);
 
     NotificationMeta<? extends IFromTrustlyRequestData> mapper = this.onNotification.get(methodValue);
@@ -710,18 +934,16 @@ public class TrustlyApiClient implements Closeable {
       }
     }
 
-    this.handleNotification(jsonString, mapper, onOK, onFailed);
+    return mapper;
   }
 
-  private <D extends IFromTrustlyRequestData> void handleNotification(
-    String jsonString,
-    NotificationMeta<D> meta,
-    NotificationOkHandler onOK,
-    NotificationFailHandler onFailed
-  ) throws IOException, TrustlyValidationException, TrustlySignatureException {
+  private <D extends IFromTrustlyRequestData> NotificationRequest<D> readVerifiedNotification(
+    JsonNode jsonToken,
+    NotificationMeta<D> meta
+  ) throws IOException, TrustlySignatureException {
 
     JavaType javaRequestType = this.objectMapper.getTypeFactory().constructParametricType(NotificationRequest.class, meta.getDataClass());
-    NotificationRequest<D> rpcRequest = this.objectMapper.readValue(jsonString, javaRequestType);
+    NotificationRequest<D> rpcRequest = this.objectMapper.readerFor(javaRequestType).readValue(jsonToken);
 
     // Verify the notification (RpcRequest from Trustly) signature.
     try {
@@ -733,10 +955,22 @@ public class TrustlyApiClient implements Closeable {
       );
     }
 
+    return rpcRequest;
+  }
+
+  private <D extends IFromTrustlyRequestData> void handleNotification(
+    JsonNode jsonToken,
+    NotificationMeta<D> meta,
+    NotificationOkHandler onOK,
+    NotificationFailHandler onFailed
+  ) throws IOException, TrustlyValidationException, TrustlySignatureException {
+
+    NotificationRequest<D> rpcRequest = this.readVerifiedNotification(jsonToken, meta);
+
     // Validate the incoming request instance.
     // Most likely this will do nothing, since we are lenient on things sent from Trustly server.
     // But we do this in case anything is needed to be validated on the local domain classes in the future.
-    this.validator.validate(rpcRequest);
+    this.settings.getValidationPolicy().validate(this.validator, rpcRequest, false);
 
     NotificationArgs<D> args = new NotificationArgs<>(
       rpcRequest.getParams().getData(),
@@ -1,19 +1,14 @@
 package com.trustly.api.client;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.trustly.api.domain.base.JsonRpcResponse;
-import com.trustly.api.domain.base.NotificationResponse;
 import com.trustly.api.domain.exceptions.TrustlyDeprecatedException;
 import com.trustly.api.domain.exceptions.TrustlyNoNotificationClientException;
 import com.trustly.api.domain.exceptions.TrustlyNoNotificationListenerException;
 import com.trustly.api.domain.exceptions.TrustlySignatureException;
 import com.trustly.api.domain.exceptions.TrustlyValidationException;
-import com.trustly.api.util.TrustlyStreamUtils;
+import com.trustly.api.util.ReusableByteBuffer;
 import com.trustly.api.util.TrustlyStringUtils;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class TrustlyApiClientExtensions {
@@ -27,7 +22,16 @@ public class TrustlyApiClientExtensions {
     void writeBody(String value) throws IOException;
   }
 
-  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  /**
+   * The largest notification body that will be read. Notifications from Trustly are far smaller than this.
+   */
+  public static final int MAX_NOTIFICATION_BODY_SIZE = 1024 * 1024;
+
+  private static final String USER_AGENT =
+    "trustly-api-client-java/" + TrustlyApiClientExtensions.class.getPackage().getImplementationVersion();
+
+  // The buffers are shared by all threads, and a buffer that grew for an unusually large body is shrunk again after use.
+  private static final ReusableByteBuffer.Pool BODY_BUFFERS = new ReusableByteBuffer.Pool(16, 64 * 1024);
 
   public static void handleNotificationRequest(InputStream incoming, NotificationResponder responder)
     throws IOException,
@@ -36,26 +40,27 @@ public class TrustlyApiClientExtensions {
     TrustlyValidationException,
     TrustlySignatureException {
 
-    String requestStringBody;
-    try (InputStreamReader sr = new InputStreamReader(incoming, StandardCharsets.UTF_8)) {
-      requestStringBody = TrustlyStreamUtils.readerToString(sr);
-    }
+    ReusableByteBuffer body = TrustlyApiClientExtensions.readBody(incoming);
 
     final AtomicInteger responseCount = new AtomicInteger(0);
     final AtomicInteger clientCount = new AtomicInteger(0);
-    for (TrustlyApiClient client : TrustlyApiClient.getRegisteredClients()) {
-      clientCount.incrementAndGet();
-      client.handleNotification(
-        requestStringBody,
-        (method, uuid) -> {
-          responseCount.incrementAndGet();
-          TrustlyApiClientExtensions.respond(client, responder, method, uuid, "OK", null, 200);
-        },
-        (method, uuid, message) -> {
-          responseCount.incrementAndGet();
-          TrustlyApiClientExtensions.respond(client, responder, method, uuid, "FAILED", message, 500);
-        }
-      );
+    try {
+      for (TrustlyApiClient client : TrustlyApiClient.getRegisteredClients()) {
+        clientCount.incrementAndGet();
+        client.handleNotification(
+          body.getBytes(), 0, body.getLength(),
+          (method, uuid) -> {
+            responseCount.incrementAndGet();
+            TrustlyApiClientExtensions.respond(client, responder, method, uuid, "OK", null, 200);
+          },
+          (method, uuid, message) -> {
+            responseCount.incrementAndGet();
+            TrustlyApiClientExtensions.respond(client, responder, method, uuid, "FAILED", message, 500);
+          }
+        );
+      }
+    } finally {
+      TrustlyApiClientExtensions.releaseBody(body);
     }
 
     if (clientCount.get() == 0) {
@@ -68,6 +73,69 @@ public class TrustlyApiClientExtensions {
     }
   }
 
+  /**
+   * Same as {@link TrustlyApiClientExtensions#handleNotificationRequest(InputStream, NotificationResponder)}, but only lets the
+   * notification in if the given {@link NotificationBackpressure} has a free slot for it.
+   * <p>
+   * If there is no free slot, the notification is answered with HTTP status 503 and no body, without reading it or calling any listeners,
+   * so that Trustly will send it again later.
+   */
+  public static void handleNotificationRequest(
+    InputStream incoming,
+    NotificationResponder responder,
+    NotificationBackpressure backpressure
+  ) throws
+    IOException,
+    TrustlyNoNotificationClientException,
+    TrustlyNoNotificationListenerException,
+    TrustlyValidationException,
+    TrustlySignatureException {
+
+    if (!backpressure.tryAcquire()) {
+      TrustlyApiClientExtensions.respondOverloaded(incoming, responder);
+      return;
+    }
+
+    try {
+      TrustlyApiClientExtensions.handleNotificationRequest(incoming, responder);
+    } finally {
+      backpressure.release();
+    }
+  }
+
+  private static void respondOverloaded(InputStream incoming, NotificationResponder responder) throws IOException {
+
+    // The notification is not read, so it is neither verified nor known which client it is for. A signed JSON-RPC response would have to
+    // be signed with the key of some client, from a method and uuid that nobody has verified, so a plain 503 is given instead.
+    incoming.close();
+
+    responder.addHeader("User-Agent", USER_AGENT);
+    responder.setStatus(503);
+  }
+
+  /**
+   * Reads the whole body into a pooled buffer, which must be given to {@link TrustlyApiClientExtensions#releaseBody(ReusableByteBuffer)}
+   * when done with it, and closes the stream.
+   *
+   * @throws IOException If the body could not be read, or is larger than {@link TrustlyApiClientExtensions#MAX_NOTIFICATION_BODY_SIZE}.
+   */
+  public static ReusableByteBuffer readBody(InputStream incoming) throws IOException {
+
+    ReusableByteBuffer body = BODY_BUFFERS.acquire();
+    try (InputStream in = incoming) {
+      body.readFrom(in, MAX_NOTIFICATION_BODY_SIZE);
+    } catch (IOException ex) {
+      BODY_BUFFERS.release(body);
+      throw ex;
+    }
+
+    return body;
+  }
+
+  public static void releaseBody(ReusableByteBuffer body) {
+    BODY_BUFFERS.release(body);
+  }
+
   /**
    * @deprecated Use specific {@link TrustlyApiClientJakartaExtensions} or {@link TrustlyApiClientJavaxExtensions} depending on your need.
    */
@@ -88,34 +156,13 @@ public class TrustlyApiClientExtensions {
     int httpStatusCode
   ) throws IOException, TrustlyValidationException {
 
-    NotificationResponse notificationResponse = NotificationResponse.builder()
-      .status(status)
-      .build();
-
-    JsonRpcResponse<NotificationResponse> rpcResponse = client.createResponsePackage(method, uuid, notificationResponse);
-
-    if (client.getSettings().isIncludeMessageInNotificationResponse() && !TrustlyStringUtils.isBlank(message)) {
-
-      rpcResponse = rpcResponse.toBuilder()
-        .result(
-          rpcResponse.getResult().toBuilder()
-            .data(
-              rpcResponse.getResult().getData().toBuilder()
-                .any("message", message)
-                .build()
-            )
-            .build()
-        )
-        .build();
-    }
-
-    String rpcString = OBJECT_MAPPER.writeValueAsString(rpcResponse);
+    boolean includeMessage = client.getSettings().isIncludeMessageInNotificationResponse() && !TrustlyStringUtils.isBlank(message);
 
-    String assemblyVersion = TrustlyApiClientExtensions.class.getPackage().getImplementationVersion();
+    String rpcString = client.createNotificationResponseJson(method, uuid, status, includeMessage ? message : null);
 
     responder.addHeader("Content-Type", "application/json");
     responder.addHeader("Accept", "application/json");
-    responder.addHeader("User-Agent", "trustly-api-client-java/" + assemblyVersion);
+    responder.addHeader("User-Agent", USER_AGENT);
     responder.setStatus(httpStatusCode);
     responder.writeBody(rpcString);
   }
@@ -67,6 +67,25 @@ public final class TrustlyApiClientJakartaExtensions {
     TrustlyApiClientExtensions.handleNotificationRequest(request.getInputStream(), new JakartaNotificationResponder(response));
   }
 
+  /**
+   * Same as {@link #handleNotificationRequest(jakarta.servlet.http.HttpServletRequest, jakarta.servlet.http.HttpServletResponse)}, but only lets
+   * the notification in if the given {@link NotificationBackpressure} has a free slot for it. Otherwise it is answered with
+   * {@code FAILED}, so that Trustly will send it again later.
+   */
+  public static void handleNotificationRequest(
+    jakarta.servlet.http.HttpServletRequest request,
+    jakarta.servlet.http.HttpServletResponse response,
+    NotificationBackpressure backpressure
+  ) throws
+    IOException,
+    TrustlyNoNotificationClientException,
+    TrustlyNoNotificationListenerException,
+    TrustlyValidationException,
+    TrustlySignatureException {
+
+    TrustlyApiClientExtensions.handleNotificationRequest(request.getInputStream(), new JakartaNotificationResponder(response), backpressure);
+  }
+
   public static void handleNotificationRequest(
     InputStream incoming,
     jakarta.servlet.http.HttpServletResponse response
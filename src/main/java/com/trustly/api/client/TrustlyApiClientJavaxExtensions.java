@@ -67,6 +67,25 @@ public final class TrustlyApiClientJavaxExtensions {
     TrustlyApiClientExtensions.handleNotificationRequest(request.getInputStream(), new JavaxNotificationResponder(response));
   }
 
+  /**
+   * Same as {@link #handleNotificationRequest(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}, but only lets
+   * the notification in if the given {@link NotificationBackpressure} has a free slot for it. Otherwise it is answered with
+   * {@code FAILED}, so that Trustly will send it again later.
+   */
+  public static void handleNotificationRequest(
+    javax.servlet.http.HttpServletRequest request,
+    javax.servlet.http.HttpServletResponse response,
+    NotificationBackpressure backpressure
+  ) throws
+    IOException,
+    TrustlyNoNotificationClientException,
+    TrustlyNoNotificationListenerException,
+    TrustlyValidationException,
+    TrustlySignatureException {
+
+    TrustlyApiClientExtensions.handleNotificationRequest(request.getInputStream(), new JavaxNotificationResponder(response), backpressure);
+  }
+
   public static void handleNotificationRequest(
     InputStream incoming,
     javax.servlet.http.HttpServletResponse response
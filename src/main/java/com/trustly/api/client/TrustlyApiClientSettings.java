@@ -46,6 +46,8 @@ public class TrustlyApiClientSettings {
 
   private boolean includeExceptionMessageInNotificationResponse = false;
 
+  private ValidationPolicy validationPolicy = ValidationPolicy.full();
+
   public String getUrl() {
     return url;
   }
@@ -86,6 +88,23 @@ public class TrustlyApiClientSettings {
     this.includeExceptionMessageInNotificationResponse = includeExceptionMessageInNotificationResponse;
   }
 
+  public ValidationPolicy getValidationPolicy() {
+    return validationPolicy;
+  }
+
+  /**
+   * @param validationPolicy Which packages are validated against the annotations of the domain classes. Defaults to
+   *                         {@link ValidationPolicy#full()}.
+   */
+  public void setValidationPolicy(ValidationPolicy validationPolicy) {
+
+    if (validationPolicy == null) {
+      throw new IllegalArgumentException("The validation policy must be set");
+    }
+
+    this.validationPolicy = validationPolicy;
+  }
+
   private TrustlyApiClientSettings() {
   }
 
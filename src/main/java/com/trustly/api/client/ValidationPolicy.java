@@ -0,0 +1,160 @@
+package com.trustly.api.client;
+
+import com.trustly.api.domain.exceptions.TrustlyValidationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides which packages {@link TrustlyApiClient} validates against the annotations of the domain classes.
+ * <p>
+ * Set an instance with {@link TrustlyApiClientSettings#setValidationPolicy(ValidationPolicy)}. The default is {@link #full()}, which
+ * validates the outgoing requests, our own responses to notifications, and the notifications sent by Trustly.
+ * <p>
+ * The counters can be read at any time, to be exported to your metrics system.
+ */
+@Slf4j
+public class ValidationPolicy {
+
+  public enum Level {
+
+    /**
+     * Every package is validated, and an invalid package throws {@link TrustlyValidationException}.
+     */
+    FULL,
+
+    /**
+     * Only the requests sent to Trustly are validated. Our own responses to notifications and the notifications sent by Trustly are not.
+     */
+    OUTGOING_ONLY,
+
+    /**
+     * Every request sent to Trustly is validated, and an invalid request throws {@link TrustlyValidationException} like with
+     * {@link #FULL}, so that it is never sent. Only a share of our own responses to notifications and of the notifications sent by Trustly
+     * is validated, and an invalid one is counted and logged but does not throw, so that this can be used to watch for problems in
+     * production without paying for validation of every package.
+     */
+    SAMPLED,
+
+    /**
+     * No package is validated.
+     */
+    OFF
+  }
+
+  private final Level level;
+  private final double sampleRate;
+
+  private final AtomicLong validatedCount = new AtomicLong();
+  private final AtomicLong skippedCount = new AtomicLong();
+  private final AtomicLong violationCount = new AtomicLong();
+
+  /**
+   * @param level      Which packages are validated
+   * @param sampleRate The share of responses and notifications that are validated, between 0 and 1, only used by {@link Level#SAMPLED}
+   */
+  public ValidationPolicy(Level level, double sampleRate) {
+
+    if (level == null) {
+      throw new IllegalArgumentException("The validation level must be set");
+    }
+
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("The sample rate must be between 0 and 1");
+    }
+
+    this.level = level;
+    this.sampleRate = sampleRate;
+  }
+
+  public static ValidationPolicy full() {
+    return new ValidationPolicy(Level.FULL, 1);
+  }
+
+  public static ValidationPolicy outgoingOnly() {
+    return new ValidationPolicy(Level.OUTGOING_ONLY, 1);
+  }
+
+  public static ValidationPolicy sampled(double sampleRate) {
+    return new ValidationPolicy(Level.SAMPLED, sampleRate);
+  }
+
+  public static ValidationPolicy off() {
+    return new ValidationPolicy(Level.OFF, 0);
+  }
+
+  public Level getLevel() {
+    return this.level;
+  }
+
+  public double getSampleRate() {
+    return this.sampleRate;
+  }
+
+  /**
+   * @return The number of packages that have been validated.
+   */
+  public long getValidatedCount() {
+    return this.validatedCount.get();
+  }
+
+  /**
+   * @return The number of packages that were not validated because of the policy.
+   */
+  public long getSkippedCount() {
+    return this.skippedCount.get();
+  }
+
+  /**
+   * @return The number of validated packages that were invalid, whether they threw or not.
+   */
+  public long getViolationCount() {
+    return this.violationCount.get();
+  }
+
+  /**
+   * @param outgoingRequest If the package is a request that we send to Trustly
+   */
+  void validate(JsonRpcValidator validator, Object jsonRpcPackage, boolean outgoingRequest) throws TrustlyValidationException {
+    this.validate(validator, () -> jsonRpcPackage, outgoingRequest);
+  }
+
+  /**
+   * Same as {@link ValidationPolicy#validate(JsonRpcValidator, Object, boolean)}, but the package is only created if it is validated.
+   */
+  void validate(JsonRpcValidator validator, Supplier<?> jsonRpcPackageSupplier, boolean outgoingRequest)
+    throws TrustlyValidationException {
+
+    if (!this.shouldValidate(outgoingRequest)) {
+      this.skippedCount.incrementAndGet();
+      return;
+    }
+
+    this.validatedCount.incrementAndGet();
+    Object jsonRpcPackage = jsonRpcPackageSupplier.get();
+    try {
+      validator.validate(jsonRpcPackage);
+    } catch (TrustlyValidationException ex) {
+      this.violationCount.incrementAndGet();
+      if (this.level != Level.SAMPLED || outgoingRequest) {
+        throw ex;
+      }
+
+      log.warn("Sampled validation found an invalid {}: {}", jsonRpcPackage.getClass().getSimpleName(), ex.getMessage());
+    }
+  }
+
+  private boolean shouldValidate(boolean outgoingRequest) {
+    switch (this.level) {
+      case FULL:
+        return true;
+      case OUTGOING_ONLY:
+        return outgoingRequest;
+      case SAMPLED:
+        return outgoingRequest || ThreadLocalRandom.current().nextDouble() < this.sampleRate;
+      default:
+        return false;
+    }
+  }
+}
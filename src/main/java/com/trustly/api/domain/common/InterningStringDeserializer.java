@@ -0,0 +1,64 @@
+package com.trustly.api.domain.common;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.trustly.api.util.CharSlice;
+import com.trustly.api.util.StringDictionary;
+import java.io.IOException;
+
+/**
+ * Deserializes strings so that equal values within the same {@code readValue} call share a single instance. Meant for fields with only a
+ * handful of distinct values that repeat on every entry of a large response, such as the currency of each ledger entry.
+ * <p>
+ * The dictionary is kept as an attribute of the {@link DeserializationContext}, so it is dropped when the call is done, unless a reader from
+ * {@link #withSharedDictionary(ObjectReader)} is used. It stops growing after {@link #MAX_DICTIONARY_SIZE} values, in case a field turns
+ * out to have many distinct values after all.
+ */
+public class InterningStringDeserializer extends StdDeserializer<String> {
+
+  public static final int MAX_DICTIONARY_SIZE = 1024;
+
+  private static final Object DICTIONARY_KEY = new Object();
+
+  protected InterningStringDeserializer() {
+    super(String.class);
+  }
+
+  /**
+   * @return A reader that shares one dictionary between all of its {@code readValue} calls, such as when the entries of a large array are
+   *   read one at a time. The reader must then only be used by one thread at a time.
+   */
+  public static ObjectReader withSharedDictionary(ObjectReader reader) {
+    return reader.withAttribute(DICTIONARY_KEY, new Dictionary());
+  }
+
+  @Override
+  public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+
+    if (p.currentToken() != JsonToken.VALUE_STRING) {
+      return p.getValueAsString();
+    }
+
+    Dictionary dictionary = (Dictionary) ctxt.getAttribute(DICTIONARY_KEY);
+    if (dictionary == null) {
+      dictionary = new Dictionary();
+      ctxt.setAttribute(DICTIONARY_KEY, dictionary);
+    }
+
+    if (dictionary.values.size() >= MAX_DICTIONARY_SIZE) {
+      return p.getText();
+    }
+
+    // The parser's own buffer is looked at directly, so no string is created for values that have been seen before.
+    return dictionary.values.intern(dictionary.slice.set(p.getTextCharacters(), p.getTextOffset(), p.getTextLength()));
+  }
+
+  private static final class Dictionary {
+
+    private final StringDictionary values = new StringDictionary();
+    private final CharSlice slice = new CharSlice();
+  }
+}
@@ -1,8 +1,17 @@
 package com.trustly.api.domain.methods.accountledger;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.trustly.api.domain.common.InterningStringDeserializer;
+import com.trustly.api.util.TrustlyDateUtils;
+import com.trustly.api.util.TrustlyNumberUtils;
+import java.math.BigDecimal;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.Value;
 import lombok.extern.jackson.Jacksonized;
 
@@ -16,6 +25,7 @@ public class AccountLedgerResponseDataEntry {
    * Your userid in our system.
    */
   @JsonProperty("userid")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   String userId;
 
   /**
@@ -34,6 +44,7 @@ public class AccountLedgerResponseDataEntry {
    * The name of the bookkeeping account this ledger record belongs to.
    */
   @JsonProperty("accountname")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   String accountName;
 
   /**
@@ -46,12 +57,14 @@ public class AccountLedgerResponseDataEntry {
    * A human friendly description of this ledger record.
    */
   @JsonProperty("transactiontype")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   String transactionType;
 
   /**
    * The currency of the amount in this ledger record.
    */
   @JsonProperty("currency")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   String currency;
 
   /**
@@ -65,4 +78,42 @@ public class AccountLedgerResponseDataEntry {
    */
   @JsonProperty("gluepayid")
   String gluepayId;
+
+  /**
+   * The amount as an exact unscaled number in millionths (see {@link TrustlyNumberUtils#AMOUNT_SCALE}), parsed directly from the text the
+   * first time it is asked for, or null if there is no amount.
+   * <p>
+   * The getter throws {@link ArithmeticException} if the amount has more non-zero decimals than that, in which case
+   * {@link #getAmountAsBigDecimal()} can be used instead.
+   */
+  @JsonIgnore
+  @Getter(lazy = true)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final Long amountUnscaled = (this.amount == null)
+    ? null
+    : TrustlyNumberUtils.parseUnscaled(this.amount, TrustlyNumberUtils.AMOUNT_SCALE);
+
+  /**
+   * The datestamp as microseconds since the epoch, parsed the first time it is asked for, or null if there is no datestamp or it is not in
+   * the layout that Trustly uses.
+   */
+  @JsonIgnore
+  @Getter(lazy = true)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final Long datestampEpochMicros = parseEpochMicros(this.datestamp);
+
+  /**
+   * @return The exact amount with all of its decimals, or null if there is no amount.
+   */
+  @JsonIgnore
+  public BigDecimal getAmountAsBigDecimal() {
+    return (this.amount == null) ? null : new BigDecimal(this.amount);
+  }
+
+  private static Long parseEpochMicros(String text) {
+    long epochMicros = (text == null) ? TrustlyDateUtils.NOT_PARSED : TrustlyDateUtils.parseEpochMicros(text);
+    return (epochMicros == TrustlyDateUtils.NOT_PARSED) ? null : epochMicros;
+  }
 }
@@ -1,7 +1,13 @@
 package com.trustly.api.domain.methods.getwithdrawals;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.trustly.api.util.TrustlyDateUtils;
+import com.trustly.api.util.TrustlyNumberUtils;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.Value;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.jackson.Jacksonized;
@@ -85,4 +91,51 @@ public class GetWithdrawalsResponseDataEntry {
    */
   @JsonProperty("eta")
   String eta;
+
+  /**
+   * The same as {@link #getModificationDate()}, as microseconds since the epoch. It is parsed the first time it is asked for, and is null if
+   * there is no date or it is not in the layout that Trustly uses.
+   */
+  @JsonIgnore
+  @Getter(lazy = true)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final Long modificationDateEpochMicros = parseEpochMicros(this.modificationDate);
+
+  /**
+   * The same as {@link #getDatestamp()}, as microseconds since the epoch, or null.
+   */
+  @JsonIgnore
+  @Getter(lazy = true)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final Long datestampEpochMicros = parseEpochMicros(this.datestamp);
+
+  /**
+   * The same as {@link #getEta()}, as microseconds since the epoch, or null.
+   */
+  @JsonIgnore
+  @Getter(lazy = true)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final Long etaEpochMicros = parseEpochMicros(this.eta);
+
+  /**
+   * The amount as an exact unscaled number in millionths (see {@link TrustlyNumberUtils#AMOUNT_SCALE}), parsed directly from the text the
+   * first time it is asked for, or null if there is no amount.
+   * <p>
+   * The getter throws {@link ArithmeticException} if the amount has more non-zero decimals than that.
+   */
+  @JsonIgnore
+  @Getter(lazy = true)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final Long amountUnscaled = (this.amount == null)
+    ? null
+    : TrustlyNumberUtils.parseUnscaled(this.amount, TrustlyNumberUtils.AMOUNT_SCALE);
+
+  private static Long parseEpochMicros(String text) {
+    long epochMicros = (text == null) ? TrustlyDateUtils.NOT_PARSED : TrustlyDateUtils.parseEpochMicros(text);
+    return (epochMicros == TrustlyDateUtils.NOT_PARSED) ? null : epochMicros;
+  }
 }
@@ -0,0 +1,186 @@
+package com.trustly.api.domain.methods.settlementreport;
+
+import com.trustly.api.util.TrustlyNumberUtils;
+import java.math.BigDecimal;
+
+/**
+ * The statistics of the rows in one group of a {@link SettlementReportAggregator}. The sums are exact, and rows without an amount are
+ * only included in {@link #getCount()}.
+ */
+public final class SettlementReportAggregate {
+
+  private final boolean fxAdjustable;
+
+  private long count;
+  private long amountCount;
+
+  private final ExactSum amountSum = new ExactSum();
+  private final ExactSum fxAdjustedSum = new ExactSum();
+
+  private long minUnscaled = Long.MAX_VALUE;
+  private long maxUnscaled = Long.MIN_VALUE;
+
+  // Only used for the rare amounts that cannot be given as unscaled longs.
+  private BigDecimal minInexact;
+  private BigDecimal maxInexact;
+
+  /**
+   * @param fxAdjustable If the rows are grouped by both currency and FX payment currency, so the FX adjusted sum is in one currency
+   */
+  SettlementReportAggregate(boolean fxAdjustable) {
+    this.fxAdjustable = fxAdjustable;
+  }
+
+  /**
+   * @return The number of rows in the group.
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * @return The number of rows in the group that have an amount.
+   */
+  public long getAmountCount() {
+    return this.amountCount;
+  }
+
+  public BigDecimal getSum() {
+    return this.amountSum.toBigDecimal();
+  }
+
+  /**
+   * @return The sum of what was actually paid: the {@code fxpaymentamount} of the rows that have an {@code fxpaymentcurrency}, and the
+   *   {@code amount} of the rest. So the sum is in the FX payment currency of the group if it has one, otherwise in its currency.
+   * @throws IllegalStateException If the rows are not grouped by both {@link SettlementReportColumns.Column#CURRENCY} and
+   *   {@link SettlementReportColumns.Column#FX_PAYMENT_CURRENCY}, since the sum would then mix currencies.
+   */
+  public BigDecimal getFxAdjustedSum() {
+
+    if (!this.fxAdjustable) {
+      throw new IllegalStateException("The FX adjusted sum is only given when grouping by both currency and FX payment currency");
+    }
+
+    return this.fxAdjustedSum.toBigDecimal();
+  }
+
+  /**
+   * @return The smallest amount, or null if no row has an amount.
+   */
+  public BigDecimal getMin() {
+    BigDecimal exact = (this.minUnscaled == Long.MAX_VALUE) ? null : BigDecimal.valueOf(this.minUnscaled, TrustlyNumberUtils.AMOUNT_SCALE);
+    return pick(exact, this.minInexact, -1);
+  }
+
+  /**
+   * @return The largest amount, or null if no row has an amount.
+   */
+  public BigDecimal getMax() {
+    BigDecimal exact = (this.maxUnscaled == Long.MIN_VALUE) ? null : BigDecimal.valueOf(this.maxUnscaled, TrustlyNumberUtils.AMOUNT_SCALE);
+    return pick(exact, this.maxInexact, 1);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "SettlementReportAggregate(count=%d, sum=%s, min=%s, max=%s, fxAdjustedSum=%s)",
+      this.count, this.getSum(), this.getMin(), this.getMax(), this.fxAdjustable ? this.getFxAdjustedSum() : null
+    );
+  }
+
+  /**
+   * @param unscaled    The exact amount, or {@link SettlementReportColumns#NULL} if it cannot be given exactly or is missing
+   * @param inexact     The amount if it cannot be given exactly, otherwise null
+   * @param fxPayment   If the row has an FX payment currency, so its FX payment amount is what was paid
+   * @param fxUnscaled  The exact FX payment amount, or {@link SettlementReportColumns#NULL}
+   * @param fxInexact   The FX payment amount if it cannot be given exactly, otherwise null
+   */
+  void add(long unscaled, Double inexact, boolean fxPayment, long fxUnscaled, Double fxInexact) {
+
+    this.count++;
+
+    if (fxPayment) {
+      if (fxUnscaled != SettlementReportColumns.NULL) {
+        this.fxAdjustedSum.add(fxUnscaled);
+      } else if (fxInexact != null) {
+        this.fxAdjustedSum.add(BigDecimal.valueOf(fxInexact));
+      }
+    } else if (unscaled != SettlementReportColumns.NULL) {
+      this.fxAdjustedSum.add(unscaled);
+    } else if (inexact != null) {
+      this.fxAdjustedSum.add(BigDecimal.valueOf(inexact));
+    }
+
+    if (unscaled != SettlementReportColumns.NULL) {
+      this.amountCount++;
+      this.amountSum.add(unscaled);
+      this.minUnscaled = Math.min(this.minUnscaled, unscaled);
+      this.maxUnscaled = Math.max(this.maxUnscaled, unscaled);
+    } else if (inexact != null) {
+      this.amountCount++;
+      BigDecimal value = BigDecimal.valueOf(inexact);
+      this.amountSum.add(value);
+      this.minInexact = pick(this.minInexact, value, -1);
+      this.maxInexact = pick(this.maxInexact, value, 1);
+    }
+  }
+
+  void merge(SettlementReportAggregate other) {
+    this.count += other.count;
+    this.amountCount += other.amountCount;
+    this.amountSum.add(other.amountSum);
+    this.fxAdjustedSum.add(other.fxAdjustedSum);
+    this.minUnscaled = Math.min(this.minUnscaled, other.minUnscaled);
+    this.maxUnscaled = Math.max(this.maxUnscaled, other.maxUnscaled);
+    this.minInexact = pick(this.minInexact, other.minInexact, -1);
+    this.maxInexact = pick(this.maxInexact, other.maxInexact, 1);
+  }
+
+  /**
+   * @param sign -1 to pick the smallest, 1 to pick the largest
+   */
+  private static BigDecimal pick(BigDecimal a, BigDecimal b, int sign) {
+    if (a == null) {
+      return b;
+    } else if (b == null) {
+      return a;
+    }
+
+    return (Integer.signum(a.compareTo(b)) == sign) ? a : b;
+  }
+
+  /**
+   * Sums unscaled longs, and only moves over to {@link BigDecimal} if the long would overflow or an inexact amount is added.
+   */
+  private static final class ExactSum {
+
+    private long unscaled;
+    private BigDecimal rest;
+
+    void add(long value) {
+      long result = this.unscaled + value;
+      if (((this.unscaled ^ result) & (value ^ result)) < 0) {
+        this.add(BigDecimal.valueOf(this.unscaled, TrustlyNumberUtils.AMOUNT_SCALE));
+        this.unscaled = value;
+      } else {
+        this.unscaled = result;
+      }
+    }
+
+    void add(BigDecimal value) {
+      this.rest = (this.rest == null) ? value : this.rest.add(value);
+    }
+
+    void add(ExactSum other) {
+      this.add(other.unscaled);
+      if (other.rest != null) {
+        this.add(other.rest);
+      }
+    }
+
+    BigDecimal toBigDecimal() {
+      BigDecimal sum = BigDecimal.valueOf(this.unscaled, TrustlyNumberUtils.AMOUNT_SCALE);
+      return (this.rest == null) ? sum : sum.add(this.rest);
+    }
+  }
+}
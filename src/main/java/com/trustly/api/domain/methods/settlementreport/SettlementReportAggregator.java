@@ -0,0 +1,301 @@
+package com.trustly.api.domain.methods.settlementreport;
+
+import com.trustly.api.domain.methods.settlementreport.SettlementReportColumns.AmountColumn;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportColumns.Column;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+/**
+ * Groups the rows of a settlement report by any set of columns, and gives the {@link SettlementReportAggregate} of each group, in a single
+ * pass over the rows.
+ * <p>
+ * The key of each group is the list of the values of the grouping columns, in the order the columns were given. Rows are grouped by the day
+ * of {@link Column#DATESTAMP}, as {@code yyyy-MM-dd}. The groups are given in the order they first appear in the report.
+ *
+ * <pre>{@code
+ * Map<List<String>, SettlementReportAggregate> perCurrencyAndDay = new SettlementReportAggregator(Column.CURRENCY, Column.DATESTAMP)
+ *   .aggregate(data.toColumns());
+ * }</pre>
+ */
+public class SettlementReportAggregator {
+
+  // Below this many rows, splitting the columns costs more than it gains.
+  private static final int PARALLEL_THRESHOLD = 64 * 1024;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final Column[] groupBy;
+  private final ZoneOffset dayOffset;
+  private final boolean fxAdjustable;
+
+  public SettlementReportAggregator(Column... groupBy) {
+    this(ZoneOffset.UTC, groupBy);
+  }
+
+  /**
+   * @param dayOffset The offset of the days that {@link Column#DATESTAMP} is grouped by
+   * @param groupBy   The columns to group by, which may be none to aggregate all rows together
+   */
+  public SettlementReportAggregator(ZoneOffset dayOffset, Column... groupBy) {
+
+    for (Column column : groupBy) {
+      if (column == Column.AMOUNT || column == Column.TOTAL || column == Column.FX_PAYMENT_AMOUNT) {
+        throw new IllegalArgumentException(String.format("Cannot group by the amount column %s", column));
+      }
+    }
+
+    this.groupBy = groupBy.clone();
+    this.dayOffset = dayOffset;
+
+    List<Column> columns = Arrays.asList(groupBy);
+    this.fxAdjustable = columns.contains(Column.CURRENCY) && columns.contains(Column.FX_PAYMENT_CURRENCY);
+  }
+
+  /**
+   * Aggregates the entries as they are given, without keeping them, such as from {@link SettlementReportResponseData#streamEntries()}.
+   */
+  public Map<List<String>, SettlementReportAggregate> aggregate(Stream<SettlementReportResponseDataEntry> entries) {
+
+    Groups groups = new Groups();
+    Iterator<SettlementReportResponseDataEntry> iterator = entries.iterator();
+    while (iterator.hasNext()) {
+      SettlementReportResponseDataEntry entry = iterator.next();
+      for (int i = 0; i < this.groupBy.length; i++) {
+        groups.probe.values[i] = (this.groupBy[i] == Column.DATESTAMP)
+          ? groups.days.label(entry.getDatestamp() == null ? SettlementReportColumns.NULL : entry.getDatestamp().getEpochSecond())
+          : getText(entry, this.groupBy[i]);
+      }
+
+      groups.get().add(
+        unscaled(entry.getAmountUnscaled()),
+        (entry.getAmountUnscaled() == null) ? entry.getAmount() : null,
+        this.fxAdjustable && isPresent(entry.getFxPaymentCurrency()),
+        unscaled(entry.getFxPaymentAmountUnscaled()),
+        (entry.getFxPaymentAmountUnscaled() == null) ? entry.getFxPaymentAmount() : null
+      );
+    }
+
+    return groups.toMap();
+  }
+
+  /**
+   * Aggregates the columns, splitting large reports into ranges of rows that are aggregated in parallel on the common
+   * {@link ForkJoinPool}.
+   */
+  public Map<List<String>, SettlementReportAggregate> aggregate(SettlementReportColumns columns) {
+    return this.aggregate(columns, ForkJoinPool.commonPool());
+  }
+
+  public Map<List<String>, SettlementReportAggregate> aggregate(SettlementReportColumns columns, ForkJoinPool pool) {
+
+    int size = columns.size();
+    if (size < PARALLEL_THRESHOLD || pool.getParallelism() <= 1) {
+      return this.aggregate(columns, 0, size).toMap();
+    }
+
+    int chunkCount = pool.getParallelism() * CHUNKS_PER_THREAD;
+    int chunkSize = (size + chunkCount - 1) / chunkCount;
+
+    List<ForkJoinTask<Groups>> tasks = new ArrayList<>();
+    for (int start = 0; start < size; start += chunkSize) {
+      final int from = start;
+      final int to = Math.min(size, start + chunkSize);
+      tasks.add(pool.submit(() -> this.aggregate(columns, from, to)));
+    }
+
+    // Merged in the order of the chunks, so the groups keep the order they first appear in.
+    Groups result = tasks.get(0).join();
+    for (int i = 1; i < tasks.size(); i++) {
+      result.merge(tasks.get(i).join());
+    }
+
+    return result.toMap();
+  }
+
+  private Groups aggregate(SettlementReportColumns columns, int from, int to) {
+
+    AmountColumn amounts = columns.getAmountColumn(Column.AMOUNT);
+    AmountColumn fxPaymentAmounts = columns.getAmountColumn(Column.FX_PAYMENT_AMOUNT);
+
+    Groups groups = new Groups();
+    for (int row = from; row < to; row++) {
+      for (int i = 0; i < this.groupBy.length; i++) {
+        if (this.groupBy[i] == Column.DATESTAMP) {
+          long nanos = columns.getDatestampEpochNanos(row);
+          groups.probe.values[i] = groups.days.label(nanos == SettlementReportColumns.NULL ? nanos : Math.floorDiv(nanos, 1_000_000_000L));
+        } else {
+          groups.probe.values[i] = columns.getText(this.groupBy[i], row);
+        }
+      }
+
+      long unscaled = amounts.getUnscaled(row);
+      long fxUnscaled = fxPaymentAmounts.getUnscaled(row);
+      groups.get().add(
+        unscaled,
+        (unscaled == SettlementReportColumns.NULL) ? amounts.get(row) : null,
+        this.fxAdjustable && isPresent(columns.getText(Column.FX_PAYMENT_CURRENCY, row)),
+        fxUnscaled,
+        (fxUnscaled == SettlementReportColumns.NULL) ? fxPaymentAmounts.get(row) : null
+      );
+    }
+
+    return groups;
+  }
+
+  private static boolean isPresent(String value) {
+    return value != null && !value.isEmpty();
+  }
+
+  private static long unscaled(Long value) {
+    return (value == null) ? SettlementReportColumns.NULL : value;
+  }
+
+  private static String getText(SettlementReportResponseDataEntry entry, Column column) {
+    switch (column) {
+      case ACCOUNT_NAME:
+        return entry.getAccountName();
+      case CURRENCY:
+        return entry.getCurrency();
+      case ORDER_ID:
+        return entry.getOrderId();
+      case ORDER_TYPE:
+        return entry.getOrderType();
+      case MESSAGE_ID:
+        return entry.getMessageId();
+      case USERNAME:
+        return entry.getUsername();
+      case FX_PAYMENT_CURRENCY:
+        return entry.getFxPaymentCurrency();
+      case SETTLEMENT_BANK_WITHDRAWAL_ID:
+        return entry.getSettlementBankWithdrawalId();
+      case EXTERNAL_REFERENCE:
+        return entry.getExternalReference();
+      default:
+        throw new IllegalArgumentException(String.format("Cannot group by the column %s", column));
+    }
+  }
+
+  /**
+   * The groups of one pass over the rows. Each row is looked up with a reused probe key, so a key is only created for each new group.
+   */
+  private final class Groups {
+
+    private final Map<List<String>, SettlementReportAggregate> aggregates = new LinkedHashMap<>();
+    private final ProbeKey probe = new ProbeKey(SettlementReportAggregator.this.groupBy.length);
+    private final DayLabels days = new DayLabels(SettlementReportAggregator.this.dayOffset);
+
+    SettlementReportAggregate get() {
+      SettlementReportAggregate aggregate = this.aggregates.get(this.probe);
+      if (aggregate == null) {
+        aggregate = new SettlementReportAggregate(SettlementReportAggregator.this.fxAdjustable);
+        this.aggregates.put(Collections.unmodifiableList(Arrays.asList(this.probe.values.clone())), aggregate);
+      }
+
+      return aggregate;
+    }
+
+    void merge(Groups other) {
+      for (Map.Entry<List<String>, SettlementReportAggregate> entry : other.aggregates.entrySet()) {
+        SettlementReportAggregate aggregate = this.aggregates.get(entry.getKey());
+        if (aggregate == null) {
+          this.aggregates.put(entry.getKey(), entry.getValue());
+        } else {
+          aggregate.merge(entry.getValue());
+        }
+      }
+    }
+
+    Map<List<String>, SettlementReportAggregate> toMap() {
+      return Collections.unmodifiableMap(this.aggregates);
+    }
+  }
+
+  /**
+   * A list of the group values of the current row, which equals the key of its group.
+   */
+  private static final class ProbeKey extends AbstractList<String> {
+
+    private final String[] values;
+
+    ProbeKey(int size) {
+      this.values = new String[size];
+    }
+
+    @Override
+    public String get(int index) {
+      return this.values[index];
+    }
+
+    @Override
+    public int size() {
+      return this.values.length;
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(this.values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+      if (!(o instanceof List)) {
+        return false;
+      }
+
+      List<?> other = (List<?>) o;
+      if (other.size() != this.values.length) {
+        return false;
+      }
+
+      for (int i = 0; i < this.values.length; i++) {
+        Object value = other.get(i);
+        if (this.values[i] == null ? value != null : !this.values[i].equals(value)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
+
+  /**
+   * Gives the {@code yyyy-MM-dd} label of the day of an epoch second. The rows of a report are in time order, so the label of the last day
+   * is kept, and a new one is only created when the day changes.
+   */
+  private static final class DayLabels {
+
+    private final int offsetSeconds;
+    private long lastDay = Long.MIN_VALUE;
+    private String lastLabel;
+
+    DayLabels(ZoneOffset offset) {
+      this.offsetSeconds = offset.getTotalSeconds();
+    }
+
+    String label(long epochSecond) {
+
+      if (epochSecond == SettlementReportColumns.NULL) {
+        return null;
+      }
+
+      long day = Math.floorDiv(epochSecond + this.offsetSeconds, 86_400L);
+      if (day != this.lastDay) {
+        this.lastDay = day;
+        this.lastLabel = LocalDate.ofEpochDay(day).toString();
+      }
+
+      return this.lastLabel;
+    }
+  }
+}
@@ -0,0 +1,527 @@
+package com.trustly.api.domain.methods.settlementreport;
+
+import com.trustly.api.util.StringDictionary;
+import com.trustly.api.util.TrustlyNumberUtils;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A settlement report stored column by column, as created by {@link SettlementReportParser#parseColumns(java.io.Reader)}.
+ * <p>
+ * Amounts and datestamps are kept as primitive longs, and columns with few distinct values, such as the currency, are kept as an int code
+ * per row into a dictionary of the distinct values. This takes a fraction of the memory of one {@link SettlementReportResponseDataEntry}
+ * per row, and lets sums and groupings run over plain arrays. A {@link Row} can be used to look at a single row as a whole.
+ */
+public final class SettlementReportColumns {
+
+  /**
+   * Given instead of a datestamp or an unscaled amount, if the row has no value.
+   */
+  public static final long NULL = Long.MIN_VALUE;
+
+  public enum Column {
+
+    DATESTAMP("datestamp"),
+    ACCOUNT_NAME("accountname"),
+    CURRENCY("currency"),
+    AMOUNT("amount"),
+    TOTAL("total"),
+    ORDER_ID("orderid"),
+    ORDER_TYPE("ordertype"),
+    MESSAGE_ID("messageid"),
+    USERNAME("username"),
+    FX_PAYMENT_AMOUNT("fxpaymentamount"),
+    FX_PAYMENT_CURRENCY("fxpaymentcurrency"),
+    SETTLEMENT_BANK_WITHDRAWAL_ID("settlementbankwithdrawalid"),
+    EXTERNAL_REFERENCE("externalreference");
+
+    private static final Map<String, Column> BY_HEADER = new HashMap<>();
+
+    static {
+      for (Column column : values()) {
+        BY_HEADER.put(column.header, column);
+      }
+    }
+
+    private final String header;
+
+    Column(String header) {
+      this.header = header;
+    }
+
+    public String getHeader() {
+      return this.header;
+    }
+
+    /**
+     * @return The column with the header, ignoring case and surrounding whitespace, or null if it is not a known column.
+     */
+    public static Column fromHeader(String header) {
+      return BY_HEADER.get(header.trim().toLowerCase(Locale.ROOT));
+    }
+  }
+
+  private static final Column[] AMOUNT_COLUMNS = {Column.AMOUNT, Column.TOTAL, Column.FX_PAYMENT_AMOUNT};
+  private static final Column[] DICTIONARY_COLUMNS = {
+    Column.ACCOUNT_NAME, Column.CURRENCY, Column.ORDER_TYPE, Column.USERNAME, Column.FX_PAYMENT_CURRENCY,
+    Column.SETTLEMENT_BANK_WITHDRAWAL_ID
+  };
+  private static final Column[] TEXT_COLUMNS = {Column.ORDER_ID, Column.MESSAGE_ID, Column.EXTERNAL_REFERENCE};
+
+  private final int size;
+  private final long[] datestamps;
+  private final Map<Column, AmountColumn> amountColumns;
+  private final Map<Column, DictionaryColumn> dictionaryColumns;
+  private final Map<Column, String[]> textColumns;
+
+  private SettlementReportColumns(
+    int size,
+    long[] datestamps,
+    Map<Column, AmountColumn> amountColumns,
+    Map<Column, DictionaryColumn> dictionaryColumns,
+    Map<Column, String[]> textColumns
+  ) {
+    this.size = size;
+    this.datestamps = datestamps;
+    this.amountColumns = amountColumns;
+    this.dictionaryColumns = dictionaryColumns;
+    this.textColumns = textColumns;
+  }
+
+  /**
+   * @return The number of rows.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * @return The datestamp of the row in nanoseconds since the epoch, or {@link #NULL} if it has none.
+   */
+  public long getDatestampEpochNanos(int row) {
+    return this.datestamps[this.checkRow(row)];
+  }
+
+  public Instant getDatestamp(int row) {
+    long nanos = this.getDatestampEpochNanos(row);
+    if (nanos == NULL) {
+      return null;
+    }
+
+    return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+  }
+
+  /**
+   * @return The column of {@link Column#AMOUNT}, {@link Column#TOTAL} or {@link Column#FX_PAYMENT_AMOUNT}.
+   */
+  public AmountColumn getAmountColumn(Column column) {
+    AmountColumn amountColumn = this.amountColumns.get(column);
+    if (amountColumn == null) {
+      throw new IllegalArgumentException(String.format("The column %s is not an amount", column));
+    }
+
+    return amountColumn;
+  }
+
+  /**
+   * @return The column of {@link Column#ACCOUNT_NAME}, {@link Column#CURRENCY}, {@link Column#ORDER_TYPE}, {@link Column#USERNAME},
+   *   {@link Column#FX_PAYMENT_CURRENCY} or {@link Column#SETTLEMENT_BANK_WITHDRAWAL_ID}.
+   */
+  public DictionaryColumn getDictionaryColumn(Column column) {
+    DictionaryColumn dictionaryColumn = this.dictionaryColumns.get(column);
+    if (dictionaryColumn == null) {
+      throw new IllegalArgumentException(String.format("The column %s is not dictionary encoded", column));
+    }
+
+    return dictionaryColumn;
+  }
+
+  /**
+   * @return The value of any column that is not an amount or the datestamp, or null if the row has none.
+   */
+  public String getText(Column column, int row) {
+
+    DictionaryColumn dictionaryColumn = this.dictionaryColumns.get(column);
+    if (dictionaryColumn != null) {
+      return dictionaryColumn.get(row);
+    }
+
+    String[] values = this.textColumns.get(column);
+    if (values == null) {
+      throw new IllegalArgumentException(String.format("The column %s is not a text column", column));
+    }
+
+    return values[this.checkRow(row)];
+  }
+
+  /**
+   * @return A view of the row, which reads its values from the columns.
+   */
+  public Row getRow(int row) {
+    return new Row(this.checkRow(row));
+  }
+
+  public Stream<Row> rows() {
+    return IntStream.range(0, this.size).mapToObj(Row::new);
+  }
+
+  public List<SettlementReportResponseDataEntry> toEntries() {
+    List<SettlementReportResponseDataEntry> entries = new ArrayList<>(this.size);
+    for (int row = 0; row < this.size; row++) {
+      entries.add(new Row(row).toEntry());
+    }
+
+    return entries;
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= this.size) {
+      throw new IndexOutOfBoundsException(String.format("Row %d is outside of the %d rows", row, this.size));
+    }
+
+    return row;
+  }
+
+  /**
+   * The amounts of a column, as unscaled longs in millionths (see {@link TrustlyNumberUtils#AMOUNT_SCALE}).
+   * <p>
+   * The few amounts whose double cannot be derived from the unscaled long, such as those with more decimals than the scale, or
+   * {@code -0.00}, also have their double kept on the side.
+   */
+  public static final class AmountColumn {
+
+    private long[] unscaled;
+    private Map<Integer, Double> doubles = new HashMap<>();
+
+    private AmountColumn(int capacity) {
+      this.unscaled = new long[capacity];
+    }
+
+    /**
+     * @return The exact amount of the row, or {@link #NULL} if it has none, or it cannot be given exactly.
+     */
+    public long getUnscaled(int row) {
+      return this.unscaled[row];
+    }
+
+    public Double get(int row) {
+      long value = this.unscaled[row];
+      if (value == NULL || value == 0) {
+        Double special = this.doubles.get(row);
+        if (special != null || value == NULL) {
+          return special;
+        }
+      }
+
+      return TrustlyNumberUtils.unscaledToDouble(value, TrustlyNumberUtils.AMOUNT_SCALE);
+    }
+
+    public BigDecimal getAsBigDecimal(int row) {
+      long value = this.unscaled[row];
+      if (value != NULL) {
+        return BigDecimal.valueOf(value, TrustlyNumberUtils.AMOUNT_SCALE);
+      }
+
+      Double inexact = this.doubles.get(row);
+      return (inexact == null) ? null : BigDecimal.valueOf(inexact);
+    }
+
+    /**
+     * @return If the amount of the row can be given exactly by {@link #getUnscaled(int)}. Rows without an amount count as exact.
+     */
+    public boolean isExact(int row) {
+      return this.unscaled[row] != NULL || !this.doubles.containsKey(row);
+    }
+
+    void set(int row, long unscaledValue, double value) {
+      this.unscaled[row] = unscaledValue;
+      if (unscaledValue == NULL || (unscaledValue == 0 && Double.doubleToRawLongBits(value) != 0L)) {
+        this.doubles.put(row, value);
+      }
+    }
+
+    void startRow(int row) {
+      if (row == this.unscaled.length) {
+        this.unscaled = Arrays.copyOf(this.unscaled, row * 2);
+      }
+
+      this.unscaled[row] = NULL;
+      this.doubles.remove(row);
+    }
+
+    void trim(int size) {
+      this.unscaled = Arrays.copyOf(this.unscaled, size);
+      this.doubles = this.doubles.isEmpty() ? Collections.emptyMap() : this.doubles;
+    }
+  }
+
+  /**
+   * The values of a column as an int code per row, where each code is the index of the value in the dictionary of distinct values.
+   */
+  public static final class DictionaryColumn {
+
+    /**
+     * The code of rows without a value.
+     */
+    public static final int NULL_CODE = -1;
+
+    private int[] codes;
+    private StringDictionary builder = new StringDictionary();
+    private String[] dictionary;
+
+    private DictionaryColumn(int capacity) {
+      this.codes = new int[capacity];
+    }
+
+    /**
+     * @return The code of the row's value, or {@link #NULL_CODE} if it has none.
+     */
+    public int getCode(int row) {
+      return this.codes[row];
+    }
+
+    public String get(int row) {
+      int code = this.codes[row];
+      return (code == NULL_CODE) ? null : this.dictionary[code];
+    }
+
+    /**
+     * @return The number of distinct values.
+     */
+    public int getCardinality() {
+      return this.dictionary.length;
+    }
+
+    public String getValue(int code) {
+      return this.dictionary[code];
+    }
+
+    void set(int row, CharSequence value) {
+      this.codes[row] = this.builder.codeOf(value);
+    }
+
+    void startRow(int row) {
+      if (row == this.codes.length) {
+        this.codes = Arrays.copyOf(this.codes, row * 2);
+      }
+
+      this.codes[row] = NULL_CODE;
+    }
+
+    void trim(int size) {
+      this.codes = Arrays.copyOf(this.codes, size);
+      this.dictionary = this.builder.toArray();
+      this.builder = null;
+    }
+  }
+
+  /**
+   * A view of a single row, which reads its values from the columns when asked for them.
+   */
+  public final class Row {
+
+    private final int index;
+
+    private Row(int index) {
+      this.index = index;
+    }
+
+    public int getIndex() {
+      return this.index;
+    }
+
+    public Instant getDatestamp() {
+      return SettlementReportColumns.this.getDatestamp(this.index);
+    }
+
+    public String getAccountName() {
+      return this.getText(Column.ACCOUNT_NAME);
+    }
+
+    public String getCurrency() {
+      return this.getText(Column.CURRENCY);
+    }
+
+    public Double getAmount() {
+      return this.getAmount(Column.AMOUNT);
+    }
+
+    public Double getTotal() {
+      return this.getAmount(Column.TOTAL);
+    }
+
+    public String getOrderId() {
+      return this.getText(Column.ORDER_ID);
+    }
+
+    public String getOrderType() {
+      return this.getText(Column.ORDER_TYPE);
+    }
+
+    public String getMessageId() {
+      return this.getText(Column.MESSAGE_ID);
+    }
+
+    public String getUsername() {
+      return this.getText(Column.USERNAME);
+    }
+
+    public Double getFxPaymentAmount() {
+      return this.getAmount(Column.FX_PAYMENT_AMOUNT);
+    }
+
+    public String getFxPaymentCurrency() {
+      return this.getText(Column.FX_PAYMENT_CURRENCY);
+    }
+
+    public String getSettlementBankWithdrawalId() {
+      return this.getText(Column.SETTLEMENT_BANK_WITHDRAWAL_ID);
+    }
+
+    public String getExternalReference() {
+      return this.getText(Column.EXTERNAL_REFERENCE);
+    }
+
+    /**
+     * @return The row as an entry, equal to the one {@link SettlementReportParser#parse(String)} gives.
+     */
+    public SettlementReportResponseDataEntry toEntry() {
+      return SettlementReportResponseDataEntry.builder()
+        .datestamp(this.getDatestamp())
+        .accountName(this.getAccountName())
+        .currency(this.getCurrency())
+        .amount(this.getAmount())
+        .amountUnscaled(this.getUnscaled(Column.AMOUNT))
+        .total(this.getTotal())
+        .totalUnscaled(this.getUnscaled(Column.TOTAL))
+        .orderId(this.getOrderId())
+        .orderType(this.getOrderType())
+        .messageId(this.getMessageId())
+        .username(this.getUsername())
+        .fxPaymentAmount(this.getFxPaymentAmount())
+        .fxPaymentAmountUnscaled(this.getUnscaled(Column.FX_PAYMENT_AMOUNT))
+        .fxPaymentCurrency(this.getFxPaymentCurrency())
+        .settlementBankWithdrawalId(this.getSettlementBankWithdrawalId())
+        .externalReference(this.getExternalReference())
+        .build();
+    }
+
+    private String getText(Column column) {
+      return SettlementReportColumns.this.getText(column, this.index);
+    }
+
+    private Double getAmount(Column column) {
+      return SettlementReportColumns.this.getAmountColumn(column).get(this.index);
+    }
+
+    private Long getUnscaled(Column column) {
+      long value = SettlementReportColumns.this.getAmountColumn(column).getUnscaled(this.index);
+      return (value == NULL) ? null : value;
+    }
+  }
+
+  /**
+   * Fills the columns one row at a time. Every value of a new row starts out as null.
+   */
+  static final class Builder {
+
+    private int size;
+    private long[] datestamps;
+    private final Map<Column, AmountColumn> amountColumns = new EnumMap<>(Column.class);
+    private final Map<Column, DictionaryColumn> dictionaryColumns = new EnumMap<>(Column.class);
+    private final Map<Column, String[]> textColumns = new EnumMap<>(Column.class);
+
+    Builder() {
+      int capacity = 64;
+      this.datestamps = new long[capacity];
+      for (Column column : AMOUNT_COLUMNS) {
+        this.amountColumns.put(column, new AmountColumn(capacity));
+      }
+
+      for (Column column : DICTIONARY_COLUMNS) {
+        this.dictionaryColumns.put(column, new DictionaryColumn(capacity));
+      }
+
+      for (Column column : TEXT_COLUMNS) {
+        this.textColumns.put(column, new String[capacity]);
+      }
+    }
+
+    void startRow() {
+
+      int row = this.size++;
+      if (row == this.datestamps.length) {
+        this.datestamps = Arrays.copyOf(this.datestamps, row * 2);
+        this.textColumns.replaceAll((column, values) -> Arrays.copyOf(values, row * 2));
+      }
+
+      this.datestamps[row] = NULL;
+      for (AmountColumn amountColumn : this.amountColumns.values()) {
+        amountColumn.startRow(row);
+      }
+
+      for (DictionaryColumn dictionaryColumn : this.dictionaryColumns.values()) {
+        dictionaryColumn.startRow(row);
+      }
+
+      for (String[] values : this.textColumns.values()) {
+        values[row] = null;
+      }
+    }
+
+    /**
+     * Drops the row that was last started, such as when it turned out to be blank.
+     */
+    void discardRow() {
+      this.size--;
+    }
+
+    void datestamp(long epochNanos) {
+      this.datestamps[this.size - 1] = epochNanos;
+    }
+
+    void amount(Column column, long unscaled, double value) {
+      this.amountColumns.get(column).set(this.size - 1, unscaled, value);
+    }
+
+    void text(Column column, CharSequence value) {
+      DictionaryColumn dictionaryColumn = this.dictionaryColumns.get(column);
+      if (dictionaryColumn != null) {
+        dictionaryColumn.set(this.size - 1, value);
+      } else {
+        this.textColumns.get(column)[this.size - 1] = value.toString();
+      }
+    }
+
+    SettlementReportColumns build() {
+
+      for (AmountColumn amountColumn : this.amountColumns.values()) {
+        amountColumn.trim(this.size);
+      }
+
+      for (DictionaryColumn dictionaryColumn : this.dictionaryColumns.values()) {
+        dictionaryColumn.trim(this.size);
+      }
+
+      this.textColumns.replaceAll((column, values) -> Arrays.copyOf(values, this.size));
+
+      return new SettlementReportColumns(
+        this.size,
+        Arrays.copyOf(this.datestamps, this.size),
+        this.amountColumns,
+        this.dictionaryColumns,
+        this.textColumns
+      );
+    }
+  }
+}
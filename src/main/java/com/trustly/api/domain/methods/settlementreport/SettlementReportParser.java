@@ -1,27 +1,63 @@
 package com.trustly.api.domain.methods.settlementreport;
 
+import com.trustly.api.domain.methods.settlementreport.SettlementReportColumns.Column;
 import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseDataEntry.SettlementReportResponseDataEntryBuilder;
+import com.trustly.api.util.CharSlice;
+import com.trustly.api.util.CsvTokenizer;
+import com.trustly.api.util.CsvTokenizer.FieldHandler;
+import com.trustly.api.util.MappedFileReader;
+import com.trustly.api.util.StringDictionary;
+import com.trustly.api.util.TrustlyDateUtils;
+import com.trustly.api.util.TrustlyNumberUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class SettlementReportParser {
 
   @FunctionalInterface
   public interface Mapper {
 
-    void map(SettlementReportResponseDataEntryBuilder row, String value);
+    /**
+     * @param value The value of the column, which is only valid during this call, so call {@code toString()} on it to keep it
+     */
+    void map(SettlementReportResponseDataEntryBuilder row, CharSequence value);
   }
 
   private static final Mapper NOOP_MAPPER = (row, value) -> {
   };
 
+  // Below this many chars, splitting the report costs more than it gains.
+  private static final int PARALLEL_THRESHOLD = 256 * 1024;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private static final String DATESTAMP_HEADER = "datestamp";
+
   private static final DateTimeFormatter[] DATE_TIME_FORMATTERS = new DateTimeFormatter[]{
 
     new DateTimeFormatterBuilder()
@@ -29,122 +65,577 @@ public class SettlementReportParser {
       .append(DateTimeFormatter.ISO_LOCAL_DATE)
       .appendLiteral(' ')
       .append(DateTimeFormatter.ISO_LOCAL_TIME)
-      .appendOffsetId()
+      // The reports use short offsets such as "+00", which appendOffsetId() does not accept.
+      .appendOffset("+HH:mm", "Z")
       .toFormatter(Locale.ROOT),
 
     DateTimeFormatter.ISO_DATE_TIME,
     DateTimeFormatter.ISO_INSTANT
   };
 
-  private final Map<String, Mapper> mappers = new HashMap<>();
+  // The mappers are immutable and shared, so a parser is cheap to create and can be used by many threads at the same time.
+  private static final Map<String, Mapper> MAPPERS;
 
-  public SettlementReportParser() {
-    this.mappers.put("accountname", SettlementReportResponseDataEntryBuilder::accountName);
-    this.mappers.put("currency", SettlementReportResponseDataEntryBuilder::currency);
-    this.mappers.put("messageid", SettlementReportResponseDataEntryBuilder::messageId);
-    this.mappers.put("orderid", SettlementReportResponseDataEntryBuilder::orderId);
-    this.mappers.put("ordertype", SettlementReportResponseDataEntryBuilder::orderType);
-    this.mappers.put("username", SettlementReportResponseDataEntryBuilder::username);
-    this.mappers.put("fxpaymentcurrency", SettlementReportResponseDataEntryBuilder::fxPaymentCurrency);
-    this.mappers.put("settlementbankwithdrawalid", SettlementReportResponseDataEntryBuilder::settlementBankWithdrawalId);
-    this.mappers.put("externalreference", SettlementReportResponseDataEntryBuilder::externalReference);
+  // The columns that only have a handful of distinct values, which all rows of a report share a single instance of.
+  private static final Map<String, BiConsumer<SettlementReportResponseDataEntryBuilder, String>> INTERNED_SETTERS;
 
-    this.mappers.put("amount", (row, value) -> row.amount(Double.parseDouble(value)));
-    this.mappers.put("fxpaymentamount", (row, value) -> row.fxPaymentAmount(Double.parseDouble(value)));
-    this.mappers.put("total", (row, value) -> row.total(Double.parseDouble(value)));
+  static {
 
-    this.mappers.put("datestamp", (row, value) -> {
+    Map<String, Mapper> mappers = new HashMap<>();
+    mappers.put("messageid", (row, value) -> row.messageId(value.toString()));
+    mappers.put("orderid", (row, value) -> row.orderId(value.toString()));
+    mappers.put("externalreference", (row, value) -> row.externalReference(value.toString()));
 
-      List<DateTimeParseException> exceptions = new ArrayList<>();
-      for (DateTimeFormatter formatter : DATE_TIME_FORMATTERS) {
-        try {
-          row.datestamp(formatter.parse(value, Instant::from));
-          return;
-        } catch (DateTimeParseException ex) {
-          exceptions.add(ex);
-        }
-      }
+    mappers.put("amount", (row, value) -> mapAmount(value, (unscaled, d) -> row.amount(d).amountUnscaled(toNullable(unscaled))));
+    mappers.put("fxpaymentamount", (row, value) -> mapAmount(
+      value,
+      (unscaled, d) -> row.fxPaymentAmount(d).fxPaymentAmountUnscaled(toNullable(unscaled))
+    ));
+    mappers.put("total", (row, value) -> mapAmount(value, (unscaled, d) -> row.total(d).totalUnscaled(toNullable(unscaled))));
+
+    MAPPERS = Collections.unmodifiableMap(mappers);
+
+    Map<String, BiConsumer<SettlementReportResponseDataEntryBuilder, String>> internedSetters = new HashMap<>();
+    internedSetters.put("accountname", SettlementReportResponseDataEntryBuilder::accountName);
+    internedSetters.put("currency", SettlementReportResponseDataEntryBuilder::currency);
+    internedSetters.put("ordertype", SettlementReportResponseDataEntryBuilder::orderType);
+    internedSetters.put("username", SettlementReportResponseDataEntryBuilder::username);
+    internedSetters.put("fxpaymentcurrency", SettlementReportResponseDataEntryBuilder::fxPaymentCurrency);
+    internedSetters.put("settlementbankwithdrawalid", SettlementReportResponseDataEntryBuilder::settlementBankWithdrawalId);
+
+    INTERNED_SETTERS = Collections.unmodifiableMap(internedSetters);
+  }
+
+  @FunctionalInterface
+  private interface AmountConsumer {
 
-      throw exceptions.stream().findFirst().orElseThrow(() -> new IllegalStateException("Unknown date format exception"));
-    });
+    /**
+     * @param unscaled The exact amount, or {@link SettlementReportColumns#NULL} if it has more decimals than can be held
+     */
+    void accept(long unscaled, double value);
+  }
+
+  /**
+   * Parses the amount once, into an exact unscaled long, which the double is then derived from. Only if the amount has more decimals than
+   * the unscaled long can hold, is it parsed as a double instead.
+   */
+  private static void mapAmount(CharSequence value, AmountConsumer consumer) {
+
+    long unscaled;
+    try {
+      unscaled = TrustlyNumberUtils.parseUnscaled(value, TrustlyNumberUtils.AMOUNT_SCALE);
+    } catch (ArithmeticException | NumberFormatException ex) {
+      consumer.accept(SettlementReportColumns.NULL, TrustlyNumberUtils.parseDouble(value));
+      return;
+    }
+
+    // Zero is parsed as a double, so that "-0.00" keeps its sign, like it would with Double.parseDouble().
+    consumer.accept(
+      unscaled,
+      (unscaled == 0)
+        ? TrustlyNumberUtils.parseDouble(value)
+        : TrustlyNumberUtils.unscaledToDouble(unscaled, TrustlyNumberUtils.AMOUNT_SCALE)
+    );
+  }
+
+  private static Long toNullable(long unscaled) {
+    return (unscaled == SettlementReportColumns.NULL) ? null : unscaled;
   }
 
   public List<SettlementReportResponseDataEntry> parse(String csv) {
-    String[] lines = csv.replace("\r", "").trim().split("\n");
+
     List<SettlementReportResponseDataEntry> rows = new ArrayList<>();
+    try {
+      this.parse(new StringReader(csv), rows::add);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Could not read the settlement report string", ex);
+    }
+
+    return rows;
+  }
+
+  /**
+   * Same as {@link #parse(String)}, but large reports are split into chunks that are parsed in parallel on the common
+   * {@link ForkJoinPool}.
+   */
+  public List<SettlementReportResponseDataEntry> parseParallel(String csv) {
+    return this.parseParallel(csv, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Same as {@link #parse(String)}, but large reports are split into chunks that are parsed in parallel on the given pool. The chunks are
+   * split between records, taking quotes into account, and the entries are returned in the same order as in the report.
+   */
+  public List<SettlementReportResponseDataEntry> parseParallel(String csv, ForkJoinPool pool) {
+
+    if (csv.length() < PARALLEL_THRESHOLD || pool.getParallelism() <= 1) {
+      return this.parse(csv);
+    }
+
+    char[] chars = csv.toCharArray();
+
+    // The header is read first, so all chunks can create their mappers from it.
+    CsvTokenizer headerTokenizer = new CsvTokenizer(chars, 0, chars.length);
+    List<String> headers;
+    try {
+      headers = new HeaderReader().read(headerTokenizer);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Could not read the settlement report header", ex);
+    }
+
+    if (headers == null) {
+      return new ArrayList<>();
+    }
+
+    int[] boundaries = findChunkBoundaries(chars, headerTokenizer.getPosition(), pool.getParallelism() * CHUNKS_PER_THREAD);
+
+    List<ForkJoinTask<List<SettlementReportResponseDataEntry>>> tasks = new ArrayList<>();
+    for (int i = 0; i < boundaries.length - 1; i++) {
+      final int start = boundaries[i];
+      final int end = boundaries[i + 1];
+      tasks.add(pool.submit(() -> {
+        List<SettlementReportResponseDataEntry> rows = new ArrayList<>();
+        // Each chunk gets its own mappers, since the dictionaries they intern text with are not thread-safe.
+        EntryReader entryReader = new EntryReader(new CsvTokenizer(chars, start, end), getHeaderMappers(headers));
+        for (SettlementReportResponseDataEntry entry; (entry = entryReader.next()) != null; ) {
+          rows.add(entry);
+        }
+
+        return rows;
+      }));
+    }
+
+    List<SettlementReportResponseDataEntry> rows = new ArrayList<>();
+    for (ForkJoinTask<List<SettlementReportResponseDataEntry>> task : tasks) {
+      rows.addAll(task.join());
+    }
+
+    return rows;
+  }
+
+  /**
+   * Parses the UTF-8 encoded report from the stream, giving each row to the consumer as soon as it has been read. The stream is not closed.
+   */
+  public void parse(InputStream in, Consumer<SettlementReportResponseDataEntry> consumer) throws IOException {
+    this.parse(new InputStreamReader(in, StandardCharsets.UTF_8), consumer);
+  }
+
+  /**
+   * Parses the report from the reader, giving each row to the consumer as soon as it has been read. Only one row is kept in memory at a
+   * time, so the size of the report does not matter. The reader is not closed.
+   */
+  public void parse(Reader reader, Consumer<SettlementReportResponseDataEntry> consumer) throws IOException {
+
+    EntryReader entryReader = new EntryReader(reader);
+    for (SettlementReportResponseDataEntry entry; (entry = entryReader.next()) != null; ) {
+      consumer.accept(entry);
+    }
+  }
+
+  /**
+   * Parses the report into columns instead of entries, which takes much less memory for large reports. See
+   * {@link SettlementReportColumns}.
+   */
+  public SettlementReportColumns parseColumns(String csv) {
+    try {
+      return this.parseColumns(new StringReader(csv));
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Could not read the settlement report string", ex);
+    }
+  }
+
+  /**
+   * Parses the UTF-8 encoded report file by memory-mapping it, so the file is decoded straight from the page cache without being read
+   * into the heap. Each row is given to the consumer as soon as it has been read.
+   */
+  public void parse(Path path, Consumer<SettlementReportResponseDataEntry> consumer) throws IOException {
+    try (Reader reader = new MappedFileReader(path)) {
+      this.parse(reader, consumer);
+    }
+  }
 
-    if (lines.length == 0) {
-      return rows;
+  /**
+   * The same as {@link #parse(Path, Consumer)}, but parses the report file into columns.
+   */
+  public SettlementReportColumns parseColumns(Path path) throws IOException {
+    try (Reader reader = new MappedFileReader(path)) {
+      return this.parseColumns(reader);
     }
+  }
+
+  /**
+   * Parses the report from the reader into columns, without creating an entry per row. The reader is not closed.
+   */
+  public SettlementReportColumns parseColumns(Reader reader) throws IOException {
+    return new ColumnReader(new CsvTokenizer(reader)).read();
+  }
+
+  /**
+   * Gives the rows of the report lazily, reading from the reader as the iterator is advanced. Read errors are thrown as
+   * {@link UncheckedIOException}.
+   */
+  public Iterator<SettlementReportResponseDataEntry> iterator(Reader reader) {
+    return new EntryIterator(new EntryReader(reader));
+  }
+
+  /**
+   * Gives the rows of the report as a lazy sequential stream, reading from the reader as the stream is consumed. Closing the stream closes
+   * the reader.
+   */
+  public Stream<SettlementReportResponseDataEntry> stream(Reader reader) {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(this.iterator(reader), Spliterator.ORDERED | Spliterator.NONNULL),
+        false
+      )
+      .onClose(() -> {
+        try {
+          reader.close();
+        } catch (IOException ex) {
+          throw new UncheckedIOException("Could not close the settlement report reader", ex);
+        }
+      });
+  }
 
-    String[] headers = lines[0].split(",");
+  /**
+   * Finds where to split the text into about the given number of chunks, so that each chunk starts at the beginning of a record.
+   *
+   * @return The start of each chunk, followed by the end of the last chunk
+   */
+  private static int[] findChunkBoundaries(char[] chars, int start, int chunkCount) {
 
-    List<Mapper> localMappers = new ArrayList<>();
-    for (String header : headers) {
-      String lowerCaseHeaderKey = header.toLowerCase(Locale.ROOT);
-      if (this.mappers.containsKey(lowerCaseHeaderKey)) {
-        localMappers.add(this.mappers.get(lowerCaseHeaderKey));
+    int targetSize = Math.max(1, (chars.length - start) / chunkCount);
+
+    List<Integer> boundaries = new ArrayList<>();
+    boundaries.add(start);
+
+    int nextTarget = start + targetSize;
+    boolean insideQuote = false;
+    for (int i = start; i < chars.length; i++) {
+      char c = chars[i];
+      if (c == '"') {
+        // An escaped quote toggles twice, so it leaves the state as it was.
+        insideQuote = !insideQuote;
+      } else if (c == '\n' && !insideQuote && i >= nextTarget) {
+        boundaries.add(i + 1);
+        nextTarget = i + 1 + targetSize;
+      }
+    }
+
+    if (boundaries.get(boundaries.size() - 1) != chars.length) {
+      boundaries.add(chars.length);
+    }
+
+    int[] result = new int[boundaries.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = boundaries.get(i);
+    }
+
+    return result;
+  }
+
+  private static Mapper[] getHeaderMappers(List<String> headers) {
+
+    Mapper[] localMappers = new Mapper[headers.size()];
+    StringDictionary dictionary = new StringDictionary();
+    for (int i = 0; i < localMappers.length; i++) {
+      String lowerCaseHeaderKey = headers.get(i).trim().toLowerCase(Locale.ROOT);
+      if (DATESTAMP_HEADER.equals(lowerCaseHeaderKey)) {
+        // Each report gets its own, since it remembers which date format the report uses.
+        DatestampParser datestampParser = new DatestampParser();
+        localMappers[i] = (row, value) -> row.datestamp(datestampParser.parse(value));
+      } else if (INTERNED_SETTERS.containsKey(lowerCaseHeaderKey)) {
+        BiConsumer<SettlementReportResponseDataEntryBuilder, String> setter = INTERNED_SETTERS.get(lowerCaseHeaderKey);
+        localMappers[i] = (row, value) -> setter.accept(row, dictionary.intern(value));
+      } else if (MAPPERS.containsKey(lowerCaseHeaderKey)) {
+        localMappers[i] = MAPPERS.get(lowerCaseHeaderKey);
       } else {
         // We do not recognize this new header key.
         // This could count as an error, but we will let it go.
         // The preferred way would perhaps be to log about the lost data,
         // but we do not want to include a dependency on a logging library.
-        localMappers.add(NOOP_MAPPER);
+        localMappers[i] = NOOP_MAPPER;
       }
     }
 
-    for (int i = 1; i < lines.length; i++) {
-      String line = lines[i];
-      if (line == null || line.isEmpty()) {
-        continue;
+    return localMappers;
+  }
+
+  /**
+   * Parses the datestamp with {@link TrustlyDateUtils#parseInstant(CharSequence)}, and only falls back on the formatters if that fails.
+   * <p>
+   * All rows of a report normally have the same format, so the one that matched last is tried first for the next row, which means that
+   * failed attempts with their exceptions are only made when the format changes.
+   */
+  private static final class DatestampParser {
+
+    private static final int FAST_PATH = -1;
+
+    private int lastMatched = FAST_PATH;
+
+    Instant parse(CharSequence value) {
+
+      int first = this.lastMatched;
+      Instant instant = parse(first, value);
+      for (int format = FAST_PATH; instant == null && format < DATE_TIME_FORMATTERS.length; format++) {
+        if (format != first) {
+          instant = parse(format, value);
+          if (instant != null) {
+            this.lastMatched = format;
+          }
+        }
       }
 
-      String[] fieldsValues = this.getFieldValues(line);
+      if (instant == null) {
+        // None of the formats matched, so we throw the exception of the main format.
+        instant = DATE_TIME_FORMATTERS[0].parse(value, Instant::from);
+      }
 
-      SettlementReportResponseDataEntryBuilder rowBuilder = SettlementReportResponseDataEntry.builder();
-      for (int columnIndex = 0; columnIndex < fieldsValues.length; columnIndex++) {
-        if (fieldsValues[columnIndex] != null && !fieldsValues[columnIndex].isEmpty()) {
-          localMappers.get(columnIndex).map(rowBuilder, fieldsValues[columnIndex]);
+      return instant;
+    }
+
+    long parseEpochNanos(CharSequence value) {
+
+      if (this.lastMatched == FAST_PATH) {
+        long epochNanos = TrustlyDateUtils.parseEpochNanos(value);
+        if (epochNanos != TrustlyDateUtils.NOT_PARSED) {
+          return epochNanos;
         }
       }
 
-      rows.add(rowBuilder.build());
+      Instant instant = this.parse(value);
+      return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
     }
 
-    return rows;
+    private static Instant parse(int format, CharSequence value) {
+
+      if (format == FAST_PATH) {
+        return TrustlyDateUtils.parseInstant(value);
+      }
+
+      try {
+        return DATE_TIME_FORMATTERS[format].parse(value, Instant::from);
+      } catch (DateTimeParseException ex) {
+        return null;
+      }
+    }
   }
 
-  private String[] getFieldValues(String line) {
-    List<String> tokens = new ArrayList<>();
+  /**
+   * Reads the first non-blank record of the report, which is the header.
+   */
+  private static class HeaderReader implements FieldHandler {
 
-    StringBuilder buffer = new StringBuilder();
-    boolean insideQuote = false;
+    private final List<String> headers = new ArrayList<>();
+    private boolean blankRecord;
+
+    /**
+     * @return The header of each column, or null if there was no header.
+     */
+    List<String> read(CsvTokenizer tokenizer) throws IOException {
 
-    for (int i = 0; i < line.length(); i++) {
-      char c = line.charAt(i);
-      if (insideQuote) {
-        if (c == '"') {
-          insideQuote = false;
-        } else {
-          buffer.append(c);
+      do {
+        this.headers.clear();
+        this.blankRecord = true;
+        if (!tokenizer.nextRecord(this)) {
+          return null;
         }
-      } else {
-        if (c == '"') {
-          insideQuote = true;
-        } else if (c == ',') {
-          tokens.add(buffer.toString());
-          buffer.setLength(0);
-        } else {
-          buffer.append(c);
+      } while (this.blankRecord);
+
+      return this.headers;
+    }
+
+    @Override
+    public void field(int column, CharSlice value) {
+      if (this.blankRecord && !value.isBlank()) {
+        this.blankRecord = false;
+      }
+
+      this.headers.add(value.toString());
+    }
+
+    @Override
+    public void endRecord(int fieldCount) {
+      // The header is used once it has been read completely.
+    }
+  }
+
+  /**
+   * Reads one entry at a time from a {@link CsvTokenizer}. Unless the mappers are given, the first record is the header, which decides
+   * how each column is mapped.
+   */
+  private static class EntryReader implements FieldHandler {
+
+    private final CsvTokenizer tokenizer;
+
+    private Mapper[] localMappers;
+
+    private SettlementReportResponseDataEntryBuilder rowBuilder;
+    private boolean blankRecord;
+
+    EntryReader(Reader reader) {
+      this(new CsvTokenizer(reader), null);
+    }
+
+    EntryReader(CsvTokenizer tokenizer, Mapper[] localMappers) {
+      this.tokenizer = tokenizer;
+      this.localMappers = localMappers;
+    }
+
+    /**
+     * @return The next entry, or null if there are no more entries.
+     */
+    SettlementReportResponseDataEntry next() throws IOException {
+
+      if (this.localMappers == null) {
+        List<String> headers = new HeaderReader().read(this.tokenizer);
+        if (headers == null) {
+          return null;
         }
+
+        this.localMappers = getHeaderMappers(headers);
+      }
+
+      do {
+        this.rowBuilder = SettlementReportResponseDataEntry.builder();
+        this.blankRecord = true;
+        if (!this.tokenizer.nextRecord(this)) {
+          return null;
+        }
+      } while (this.blankRecord);
+
+      return this.rowBuilder.build();
+    }
+
+    @Override
+    public void field(int column, CharSlice value) {
+
+      if (this.blankRecord && !value.isBlank()) {
+        this.blankRecord = false;
+      }
+
+      if (!value.isEmpty() && column < this.localMappers.length) {
+        this.localMappers[column].map(this.rowBuilder, value);
       }
     }
 
-    if (buffer.length() > 0) {
-      tokens.add(buffer.toString());
-      buffer.setLength(0);
+    @Override
+    public void endRecord(int fieldCount) {
+      // Each entry is built by next(), once the whole record has been read.
     }
+  }
+
+  /**
+   * Reads all records of a {@link CsvTokenizer} straight into a {@link SettlementReportColumns.Builder}. Unlike {@link EntryReader}, no
+   * builder or strings are created per row, except for the text of columns that are not dictionary encoded.
+   */
+  private static class ColumnReader implements FieldHandler {
 
-    return tokens.toArray(new String[0]);
+    private final CsvTokenizer tokenizer;
+    private final SettlementReportColumns.Builder columns = new SettlementReportColumns.Builder();
+    private final DatestampParser datestampParser = new DatestampParser();
+
+    private Column[] localColumns;
+    private boolean blankRecord;
+
+    ColumnReader(CsvTokenizer tokenizer) {
+      this.tokenizer = tokenizer;
+    }
+
+    SettlementReportColumns read() throws IOException {
+
+      List<String> headers = new HeaderReader().read(this.tokenizer);
+      if (headers == null) {
+        return this.columns.build();
+      }
+
+      this.localColumns = new Column[headers.size()];
+      for (int i = 0; i < this.localColumns.length; i++) {
+        this.localColumns[i] = Column.fromHeader(headers.get(i));
+      }
+
+      while (true) {
+        this.columns.startRow();
+        this.blankRecord = true;
+        if (!this.tokenizer.nextRecord(this)) {
+          this.columns.discardRow();
+          return this.columns.build();
+        }
+
+        if (this.blankRecord) {
+          this.columns.discardRow();
+        }
+      }
+    }
+
+    @Override
+    public void field(int column, CharSlice value) {
+
+      if (this.blankRecord && !value.isBlank()) {
+        this.blankRecord = false;
+      }
+
+      if (value.isEmpty() || column >= this.localColumns.length || this.localColumns[column] == null) {
+        return;
+      }
+
+      Column localColumn = this.localColumns[column];
+      switch (localColumn) {
+        case DATESTAMP:
+          this.columns.datestamp(this.datestampParser.parseEpochNanos(value));
+          break;
+        case AMOUNT:
+        case TOTAL:
+        case FX_PAYMENT_AMOUNT:
+          mapAmount(value, (unscaled, d) -> this.columns.amount(localColumn, unscaled, d));
+          break;
+        default:
+          this.columns.text(localColumn, value);
+          break;
+      }
+    }
+
+    @Override
+    public void endRecord(int fieldCount) {
+      // The row was started before the record was read.
+    }
+  }
+
+  private static class EntryIterator implements Iterator<SettlementReportResponseDataEntry> {
+
+    private final EntryReader entryReader;
+    private SettlementReportResponseDataEntry nextEntry;
+    private boolean done;
+
+    EntryIterator(EntryReader entryReader) {
+      this.entryReader = entryReader;
+    }
+
+    @Override
+    public boolean hasNext() {
+
+      if (this.nextEntry == null && !this.done) {
+        try {
+          this.nextEntry = this.entryReader.next();
+        } catch (IOException ex) {
+          throw new UncheckedIOException("Could not read the settlement report", ex);
+        }
+
+        this.done = (this.nextEntry == null);
+      }
+
+      return this.nextEntry != null;
+    }
+
+    @Override
+    public SettlementReportResponseDataEntry next() {
+
+      if (!this.hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      SettlementReportResponseDataEntry entry = this.nextEntry;
+      this.nextEntry = null;
+      return entry;
+    }
   }
 }
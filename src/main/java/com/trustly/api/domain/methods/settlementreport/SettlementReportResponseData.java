@@ -4,28 +4,137 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.trustly.api.domain.base.AbstractResponseResultData;
+import java.io.StringReader;
+import java.util.Collections;
 import java.util.List;
-import lombok.AllArgsConstructor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.Value;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.jackson.Jacksonized;
 
+/**
+ * The CSV of the settlement report is only parsed into entries when they are asked for, and the parsed entries are then kept. Callers that
+ * only need the raw CSV, for example to store it, can use {@link #getCsvContent()} without any parsing taking place.
+ * <p>
+ * Since the parsing is deferred, a report that cannot be parsed no longer fails the deserialization of the response. The exception of the
+ * parser is instead thrown by the first call to {@link #getEntries()}, {@link #streamEntries()} or {@link #toColumns()}.
+ */
 @Value
 @SuperBuilder
 @EqualsAndHashCode(callSuper = true)
-@AllArgsConstructor
 @Jacksonized
 public class SettlementReportResponseData extends AbstractResponseResultData {
 
+  private static final SettlementReportParser PARSER = new SettlementReportParser();
+
+  @JsonProperty("view_automatic_settlement_details")
   String csvContent;
 
+  /**
+   * Entries given up front, which are then used instead of parsing the CSV.
+   *
+   * @deprecated Only kept so that responses built with entries, such as test doubles, still compile. Give the CSV instead.
+   */
+  @Deprecated
   @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
   List<SettlementReportResponseDataEntry> entries;
 
+  // Initialized here, so it is not part of the builder or the constructor.
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  AtomicReference<List<SettlementReportResponseDataEntry>> parsedEntries = new AtomicReference<>();
+
   @JsonCreator
   public SettlementReportResponseData(@JsonProperty("view_automatic_settlement_details") String csvContent) {
     this.csvContent = csvContent;
-    this.entries = new SettlementReportParser().parse(csvContent);
+    this.entries = null;
+  }
+
+  /**
+   * @param entries The entries of the report, which are given as they are by {@link #getEntries()} instead of parsing the CSV
+   * @deprecated Use {@link #SettlementReportResponseData(String)}, which parses the entries from the CSV when they are asked for.
+   */
+  @Deprecated
+  public SettlementReportResponseData(String csvContent, List<SettlementReportResponseDataEntry> entries) {
+    this.csvContent = csvContent;
+    this.entries = entries;
+  }
+
+  /**
+   * @return The entries of the report, which are parsed on the calling thread the first time they are asked for. The parsed list cannot be
+   *   modified, since it is shared by all callers; a list that was given to the deprecated constructor or builder is returned as it is.
+   */
+  @JsonIgnore
+  public List<SettlementReportResponseDataEntry> getEntries() {
+    return this.getEntries(null);
+  }
+
+  /**
+   * Same as {@link #getEntries()}, but if the entries have not been parsed yet, a large report is parsed in parallel on the given pool.
+   *
+   * @param pool The pool to parse on, or null to parse on the calling thread
+   */
+  public List<SettlementReportResponseDataEntry> getEntries(ForkJoinPool pool) {
+
+    if (this.entries != null) {
+      return this.entries;
+    }
+
+    List<SettlementReportResponseDataEntry> result = this.parsedEntries.get();
+    if (result == null) {
+      synchronized (this.parsedEntries) {
+        result = this.parsedEntries.get();
+        if (result == null) {
+          if (this.csvContent == null) {
+            result = Collections.emptyList();
+          } else if (pool == null) {
+            result = Collections.unmodifiableList(PARSER.parse(this.csvContent));
+          } else {
+            result = Collections.unmodifiableList(PARSER.parseParallel(this.csvContent, pool));
+          }
+
+          this.parsedEntries.set(result);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Gives the entries of the report one at a time, without keeping them. If the entries have already been parsed by {@link #getEntries()},
+   * those are used instead of parsing again.
+   */
+  public Stream<SettlementReportResponseDataEntry> streamEntries() {
+
+    List<SettlementReportResponseDataEntry> result = (this.entries != null) ? this.entries : this.parsedEntries.get();
+    if (result != null) {
+      return result.stream();
+    }
+
+    if (this.csvContent == null) {
+      return Stream.empty();
+    }
+
+    return PARSER.stream(new StringReader(this.csvContent));
+  }
+
+  /**
+   * Parses the report into columns, which takes much less memory than {@link #getEntries()} for large reports. The columns are not kept,
+   * so each call parses the report again.
+   */
+  public SettlementReportColumns toColumns() {
+    return PARSER.parseColumns((this.csvContent == null) ? "" : this.csvContent);
   }
 }
@@ -1,15 +1,21 @@
 package com.trustly.api.domain.methods.settlementreport;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.trustly.api.util.TrustlyNumberUtils;
+import java.math.BigDecimal;
 import java.time.Instant;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.Value;
 import lombok.extern.jackson.Jacksonized;
 
 @Value
 @Builder
-@AllArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 @Jacksonized
 public class SettlementReportResponseDataEntry {
 
@@ -24,6 +30,15 @@ public class SettlementReportResponseDataEntry {
    */
   Double amount;
 
+  /**
+   * The same as {@link #getAmount()}, but exact, as an unscaled number in millionths (see {@link TrustlyNumberUtils#AMOUNT_SCALE}). This
+   * is null if there is no amount, or if it has more decimals than that.
+   */
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  Long amountUnscaled;
+
   /**
    * The three-letter currency code of the transaction.
    */
@@ -56,6 +71,14 @@ public class SettlementReportResponseDataEntry {
    */
   Double total;
 
+  /**
+   * The same as {@link #getTotal()}, but exact, as an unscaled number in millionths (see {@link TrustlyNumberUtils#AMOUNT_SCALE}).
+   */
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  Long totalUnscaled;
+
   /**
    * The username of the child merchant account.
    */
@@ -67,6 +90,15 @@ public class SettlementReportResponseDataEntry {
    */
   Double fxPaymentAmount;
 
+  /**
+   * The same as {@link #getFxPaymentAmount()}, but exact, as an unscaled number in millionths (see
+   * {@link TrustlyNumberUtils#AMOUNT_SCALE}).
+   */
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  Long fxPaymentAmountUnscaled;
+
   /**
    * The currency that the user paid with, if the currency is different from the requested deposit currency. For transactions where the
    * payment currency is the same as the requested currency, this field will be empty.
@@ -84,4 +116,52 @@ public class SettlementReportResponseDataEntry {
    */
   @JsonAlias("extraRef")
   String externalReference;
+
+  /**
+   * Creates an entry without the exact unscaled amounts, so the {@code *AsBigDecimal} getters derive them from the doubles. Use the builder
+   * to also give the unscaled amounts.
+   */
+  public SettlementReportResponseDataEntry(
+    String accountName,
+    Double amount,
+    String currency,
+    Instant datestamp,
+    String messageId,
+    String orderId,
+    String orderType,
+    Double total,
+    String username,
+    Double fxPaymentAmount,
+    String fxPaymentCurrency,
+    String settlementBankWithdrawalId,
+    String externalReference
+  ) {
+    this(
+      accountName, amount, null, currency, datestamp, messageId, orderId, orderType, total, null, username, fxPaymentAmount, null,
+      fxPaymentCurrency, settlementBankWithdrawalId, externalReference
+    );
+  }
+
+  @JsonIgnore
+  public BigDecimal getAmountAsBigDecimal() {
+    return toBigDecimal(this.amountUnscaled, this.amount);
+  }
+
+  @JsonIgnore
+  public BigDecimal getTotalAsBigDecimal() {
+    return toBigDecimal(this.totalUnscaled, this.total);
+  }
+
+  @JsonIgnore
+  public BigDecimal getFxPaymentAmountAsBigDecimal() {
+    return toBigDecimal(this.fxPaymentAmountUnscaled, this.fxPaymentAmount);
+  }
+
+  private static BigDecimal toBigDecimal(Long unscaled, Double value) {
+    if (unscaled != null) {
+      return BigDecimal.valueOf(unscaled, TrustlyNumberUtils.AMOUNT_SCALE);
+    }
+
+    return (value == null) ? null : BigDecimal.valueOf(value);
+  }
 }
@@ -0,0 +1,237 @@
+package com.trustly.api.ledger;
+
+import com.trustly.api.client.TrustlyApiClient;
+import com.trustly.api.domain.exceptions.TrustlyRequestException;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerRequestData;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fetches the account ledger of a long period by splitting it into slices of a few days, and per currency, which are requested in
+ * parallel. A slice that fails with a connection error is retried, and the entries of all slices are merged in datestamp order.
+ *
+ * <pre>{@code
+ * try (AccountLedgerFetcher fetcher = new AccountLedgerFetcher(client)) {
+ *   List<AccountLedgerResponseDataEntry> entries = fetcher.fetch(LocalDate.of(2023, 1, 1), LocalDate.of(2024, 1, 1), Arrays.asList("EUR", "SEK"));
+ * }
+ * }</pre>
+ */
+@Slf4j
+public class AccountLedgerFetcher implements Closeable {
+
+  private static final int DEFAULT_SLICE_DAYS = 1;
+  private static final int DEFAULT_PARALLELISM = 4;
+  private static final int DEFAULT_MAX_ATTEMPTS = 3;
+  private static final long DEFAULT_RETRY_DELAY_MILLIS = 500;
+
+  private final TrustlyApiClient client;
+  private final int sliceDays;
+  private final int maxAttempts;
+  private final long retryDelayMillis;
+  private final ExecutorService executor;
+
+  public AccountLedgerFetcher(TrustlyApiClient client) {
+    this(client, DEFAULT_SLICE_DAYS, DEFAULT_PARALLELISM, DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_DELAY_MILLIS);
+  }
+
+  /**
+   * @param sliceDays        The number of days requested in each call
+   * @param parallelism      The maximum number of calls made at the same time
+   * @param maxAttempts      The number of times a slice is tried before giving up
+   * @param retryDelayMillis The delay before the first retry of a slice, which is doubled for each further retry
+   */
+  public AccountLedgerFetcher(TrustlyApiClient client, int sliceDays, int parallelism, int maxAttempts, long retryDelayMillis) {
+
+    if (sliceDays <= 0) {
+      throw new IllegalArgumentException("A slice must be at least one day");
+    }
+
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("There must be at least one call allowed at a time");
+    }
+
+    if (maxAttempts <= 0) {
+      throw new IllegalArgumentException("Each slice must be tried at least once");
+    }
+
+    if (retryDelayMillis < 0) {
+      throw new IllegalArgumentException("The retry delay cannot be negative");
+    }
+
+    this.client = client;
+    this.sliceDays = sliceDays;
+    this.maxAttempts = maxAttempts;
+    this.retryDelayMillis = retryDelayMillis;
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "trustly-ledger-fetcher-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Fetches the ledger from the start date up to, but not including, the end date.
+   *
+   * @param currencies The currencies to fetch, each with its own calls. If empty, all currencies are fetched together.
+   * @return The entries of all slices in datestamp order. An entry that is given by two adjacent slices of the same currency is only
+   *   included once.
+   * @throws TrustlyRequestException The exception of the first slice that still failed after all attempts
+   */
+  public List<AccountLedgerResponseDataEntry> fetch(LocalDate fromDate, LocalDate toDate, Collection<String> currencies)
+    throws TrustlyRequestException {
+
+    List<String> sliceCurrencies = currencies.isEmpty() ? Collections.singletonList(null) : new ArrayList<>(currencies);
+
+    List<Future<List<AccountLedgerResponseDataEntry>>> futures = new ArrayList<>();
+    List<String> futureCurrencies = new ArrayList<>();
+    for (LocalDate sliceStart = fromDate; sliceStart.isBefore(toDate); sliceStart = sliceStart.plusDays(this.sliceDays)) {
+      LocalDate sliceEnd = sliceStart.plusDays(this.sliceDays);
+      if (sliceEnd.isAfter(toDate)) {
+        sliceEnd = toDate;
+      }
+
+      for (String currency : sliceCurrencies) {
+        AccountLedgerRequestData request = AccountLedgerRequestData.builder()
+          .fromDate(sliceStart.toString())
+          .toDate(sliceEnd.toString())
+          .currency(currency)
+          .build();
+
+        futures.add(this.executor.submit(() -> this.fetchSlice(request)));
+        futureCurrencies.add(currency);
+      }
+    }
+
+    // The slices are joined in order. An entry of a slice boundary can be given by the previous slice of the same currency as well, so
+    // each entry of that slice skips one equal entry of the next. Equal entries within a slice are real, separate rows, and are all kept.
+    List<AccountLedgerResponseDataEntry> merged = new ArrayList<>();
+    Map<String, List<AccountLedgerResponseDataEntry>> previousSlices = new HashMap<>();
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        List<AccountLedgerResponseDataEntry> slice = getSlice(futures.get(i));
+        List<AccountLedgerResponseDataEntry> previous = previousSlices.put(futureCurrencies.get(i), slice);
+        merged.addAll((previous == null) ? slice : withoutOverlap(previous, slice));
+      }
+    } finally {
+      for (Future<List<AccountLedgerResponseDataEntry>> future : futures) {
+        future.cancel(true);
+      }
+    }
+
+    return sortByDatestamp(merged);
+  }
+
+  @Override
+  public void close() {
+    this.executor.shutdownNow();
+  }
+
+  private List<AccountLedgerResponseDataEntry> fetchSlice(AccountLedgerRequestData request) throws TrustlyRequestException, IOException {
+
+    long delay = this.retryDelayMillis;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        List<AccountLedgerResponseDataEntry> entries = new ArrayList<>();
+        this.client.accountLedger(request, entries::add);
+        return entries;
+      } catch (TrustlyRequestException ex) {
+
+        // Only connection errors are retried, since an error response from Trustly would only be given again.
+        if (attempt >= this.maxAttempts || !(ex.getCause() instanceof IOException)) {
+          throw ex;
+        }
+
+        log.debug("Could not fetch the ledger from {} to {}, attempt {} of {}", request.getFromDate(), request.getToDate(), attempt,
+          this.maxAttempts, ex);
+      }
+
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting to retry the ledger slice");
+      }
+
+      delay *= 2;
+    }
+  }
+
+  /**
+   * @return The entries of the slice, without one equal entry for each entry of the previous slice.
+   */
+  private static List<AccountLedgerResponseDataEntry> withoutOverlap(
+    List<AccountLedgerResponseDataEntry> previous,
+    List<AccountLedgerResponseDataEntry> slice
+  ) {
+
+    Map<AccountLedgerResponseDataEntry, Integer> previousCounts = new HashMap<>();
+    for (AccountLedgerResponseDataEntry entry : previous) {
+      previousCounts.merge(entry, 1, Integer::sum);
+    }
+
+    List<AccountLedgerResponseDataEntry> result = new ArrayList<>(slice.size());
+    for (AccountLedgerResponseDataEntry entry : slice) {
+      Integer count = previousCounts.get(entry);
+      if (count == null) {
+        result.add(entry);
+      } else if (count == 1) {
+        previousCounts.remove(entry);
+      } else {
+        previousCounts.put(entry, count - 1);
+      }
+    }
+
+    return result;
+  }
+
+  private static List<AccountLedgerResponseDataEntry> getSlice(Future<List<AccountLedgerResponseDataEntry>> future)
+    throws TrustlyRequestException {
+
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new TrustlyRequestException(new InterruptedIOException("Interrupted while waiting for the ledger slices"));
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof TrustlyRequestException) {
+        throw (TrustlyRequestException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw new TrustlyRequestException(cause);
+    }
+  }
+
+  /**
+   * Sorts the entries by the instant of their datestamp, keeping the order of entries with the same instant, or without a datestamp that
+   * can be parsed.
+   */
+  private static List<AccountLedgerResponseDataEntry> sortByDatestamp(Collection<AccountLedgerResponseDataEntry> entries) {
+
+    List<AccountLedgerResponseDataEntry> sorted = new ArrayList<>(entries);
+    sorted.sort(Comparator.comparing(AccountLedgerResponseDataEntry::getDatestampEpochMicros, Comparator.nullsLast(Comparator.naturalOrder())));
+    return sorted;
+  }
+}
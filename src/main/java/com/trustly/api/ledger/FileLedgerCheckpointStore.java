@@ -0,0 +1,71 @@
+package com.trustly.api.ledger;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the checkpoints of all currencies in a single JSON file. The file is replaced as a whole on each save, so a sync that is stopped
+ * midway never leaves a half-written file behind.
+ */
+public class FileLedgerCheckpointStore implements LedgerCheckpointStore {
+
+  private static final TypeReference<TreeMap<String, LedgerCheckpoint>> CHECKPOINTS_TYPE = new TypeReference<TreeMap<String, LedgerCheckpoint>>() {
+  };
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Path path;
+
+  public FileLedgerCheckpointStore(Path path) {
+    this.path = path;
+  }
+
+  @Override
+  public synchronized LedgerCheckpoint load(String currency) throws IOException {
+    requireCurrency(currency);
+    return this.read().get(currency);
+  }
+
+  @Override
+  public synchronized void save(String currency, LedgerCheckpoint checkpoint) throws IOException {
+
+    requireCurrency(currency);
+
+    Map<String, LedgerCheckpoint> checkpoints = this.read();
+    checkpoints.put(currency, checkpoint);
+
+    Path directory = this.path.toAbsolutePath().getParent();
+    Path temporary = Files.createTempFile(directory, this.path.getFileName().toString(), ".tmp");
+    try {
+      this.objectMapper.writerWithDefaultPrettyPrinter().writeValue(temporary.toFile(), checkpoints);
+      try {
+        Files.move(temporary, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(temporary, this.path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private static void requireCurrency(String currency) {
+    if (currency == null) {
+      throw new IllegalArgumentException("The currency must be set");
+    }
+  }
+
+  private Map<String, LedgerCheckpoint> read() throws IOException {
+
+    if (!Files.exists(this.path)) {
+      return new TreeMap<>();
+    }
+
+    return this.objectMapper.readValue(this.path.toFile(), CHECKPOINTS_TYPE);
+  }
+}
@@ -0,0 +1,195 @@
+package com.trustly.api.ledger;
+
+import com.trustly.api.client.TrustlyApiClient;
+import com.trustly.api.domain.exceptions.TrustlyRequestException;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerRequestData;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
+import com.trustly.api.util.TrustlyDateUtils;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Polls the account ledger of a currency and only gives the entries that have not been given before. The datestamp of the latest entry is
+ * kept as a {@link LedgerCheckpoint} in a {@link LedgerCheckpointStore}, and each sync only asks for the days from that checkpoint on.
+ * <p>
+ * The entries that were already given by an earlier sync, because the requested days overlap, are recognized by their {@code orderid},
+ * {@code accountname} and {@code datestamp}. The checkpoint is only saved after all new entries have been given to the consumer, so if the
+ * consumer fails the same entries are given again by the next sync.
+ *
+ * <pre>{@code
+ * IncrementalLedgerSync sync = new IncrementalLedgerSync(client, new FileLedgerCheckpointStore(Paths.get("ledger-checkpoints.json")),
+ *   LocalDate.of(2024, 1, 1));
+ * sync.sync("EUR", entry -> bookkeeping.record(entry));
+ * }</pre>
+ */
+@Slf4j
+public class IncrementalLedgerSync {
+
+  // AccountLedger takes dates without an offset, so one extra day is asked for to cover any offset that Trustly reads them in.
+  private static final int OVERLAP_DAYS = 1;
+
+  private final TrustlyApiClient client;
+  private final LedgerCheckpointStore store;
+  private final LocalDate initialFromDate;
+  private final Clock clock;
+
+  /**
+   * @param initialFromDate The first day to fetch for currencies that have never been synced
+   */
+  public IncrementalLedgerSync(TrustlyApiClient client, LedgerCheckpointStore store, LocalDate initialFromDate) {
+    this(client, store, initialFromDate, Clock.systemUTC());
+  }
+
+  public IncrementalLedgerSync(TrustlyApiClient client, LedgerCheckpointStore store, LocalDate initialFromDate, Clock clock) {
+    this.client = client;
+    this.store = store;
+    this.initialFromDate = initialFromDate;
+    this.clock = clock;
+  }
+
+  /**
+   * Fetches the ledger of the currency since the last sync, and gives the new entries to the consumer in datestamp order. The entries are
+   * only given once the whole response has been received and its signature verified. Entries without a valid datestamp are given first,
+   * and only by the first sync that receives them.
+   *
+   * @return The number of new entries.
+   * @throws IOException If the checkpoint could not be loaded or saved
+   */
+  public synchronized int sync(String currency, Consumer<AccountLedgerResponseDataEntry> consumer)
+    throws TrustlyRequestException, IOException {
+
+    if (currency == null) {
+      throw new IllegalArgumentException("The currency must be set");
+    }
+
+    LedgerCheckpoint checkpoint = this.store.load(currency);
+    long checkpointMicros = TrustlyDateUtils.NOT_PARSED;
+    Set<String> checkpointEntries = new HashSet<>();
+    Set<String> undatedEntries = new LinkedHashSet<>();
+    LocalDate fromDate = this.initialFromDate;
+
+    if (checkpoint != null) {
+      checkpointEntries.addAll(checkpoint.getEntries());
+      undatedEntries.addAll(checkpoint.getUndatedEntries());
+      if (checkpoint.getDatestamp() != null) {
+        checkpointMicros = TrustlyDateUtils.parseEpochMicros(checkpoint.getDatestamp());
+        if (checkpointMicros == TrustlyDateUtils.NOT_PARSED) {
+          throw new IOException(String.format("The checkpoint of %s has an invalid datestamp '%s'", currency, checkpoint.getDatestamp()));
+        }
+
+        fromDate = Instant.ofEpochSecond(Math.floorDiv(checkpointMicros, 1_000_000L))
+          .atOffset(ZoneOffset.UTC)
+          .toLocalDate()
+          .minusDays(OVERLAP_DAYS);
+      }
+    }
+
+    AccountLedgerRequestData request = AccountLedgerRequestData.builder()
+      .fromDate(fromDate.toString())
+      .toDate(LocalDate.now(this.clock).plusDays(1 + OVERLAP_DAYS).toString())
+      .currency(currency)
+      .build();
+
+    List<NewEntry> newEntries = new ArrayList<>();
+    final long previousMicros = checkpointMicros;
+    this.client.accountLedger(request, entry -> {
+
+      Long epochMicros = entry.getDatestampEpochMicros();
+      if (epochMicros == null) {
+        if (undatedEntries.add(undatedEntryKey(entry))) {
+          log.warn("The ledger entry of order {} has an invalid datestamp '{}', it is given once without checking the checkpoint",
+            entry.getOrderId(), entry.getDatestamp());
+          newEntries.add(new NewEntry(TrustlyDateUtils.NOT_PARSED, entry));
+        }
+      } else if (epochMicros > previousMicros || (epochMicros == previousMicros && !checkpointEntries.contains(entryKey(entry)))) {
+        newEntries.add(new NewEntry(epochMicros, entry));
+      }
+    });
+
+    newEntries.sort(Comparator.comparingLong(newEntry -> newEntry.epochMicros));
+    for (NewEntry newEntry : newEntries) {
+      consumer.accept(newEntry.entry);
+    }
+
+    LedgerCheckpoint next = nextCheckpoint(checkpoint, checkpointMicros, newEntries, undatedEntries);
+    if (next != checkpoint) {
+      this.store.save(currency, next);
+    }
+
+    return newEntries.size();
+  }
+
+  private static LedgerCheckpoint nextCheckpoint(
+    LedgerCheckpoint checkpoint,
+    long checkpointMicros,
+    List<NewEntry> newEntries,
+    Set<String> undatedEntries
+  ) {
+
+    long latestMicros = checkpointMicros;
+    String latestDatestamp = null;
+    boolean added = false;
+    for (NewEntry newEntry : newEntries) {
+      if (newEntry.epochMicros == TrustlyDateUtils.NOT_PARSED) {
+        added = true;
+      } else if (newEntry.epochMicros > latestMicros) {
+        latestMicros = newEntry.epochMicros;
+        latestDatestamp = newEntry.entry.getDatestamp();
+      }
+    }
+
+    Set<String> entries = new LinkedHashSet<>();
+    if (latestDatestamp == null && checkpoint != null) {
+
+      // Only entries with the same datestamp as the checkpoint were new, if any.
+      latestDatestamp = checkpoint.getDatestamp();
+      entries.addAll(checkpoint.getEntries());
+    }
+
+    for (NewEntry newEntry : newEntries) {
+      if (newEntry.epochMicros != TrustlyDateUtils.NOT_PARSED && newEntry.epochMicros == latestMicros) {
+        added |= entries.add(entryKey(newEntry.entry));
+      }
+    }
+
+    if (!added) {
+      return checkpoint;
+    }
+
+    return LedgerCheckpoint.builder()
+      .datestamp(latestDatestamp)
+      .entries(entries)
+      .undatedEntries(undatedEntries)
+      .build();
+  }
+
+  private static String entryKey(AccountLedgerResponseDataEntry entry) {
+    return entry.getOrderId() + "|" + entry.getAccountName();
+  }
+
+  private static String undatedEntryKey(AccountLedgerResponseDataEntry entry) {
+    return entryKey(entry) + "|" + entry.getDatestamp();
+  }
+
+  private static final class NewEntry {
+
+    private final long epochMicros;
+    private final AccountLedgerResponseDataEntry entry;
+
+    NewEntry(long epochMicros, AccountLedgerResponseDataEntry entry) {
+      this.epochMicros = epochMicros;
+      this.entry = entry;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.trustly.api.ledger;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * How far the ledger of one currency has been synced by {@link IncrementalLedgerSync}.
+ */
+@Value
+@Builder
+@Jacksonized
+public class LedgerCheckpoint {
+
+  /**
+   * The datestamp of the latest entry that has been given, or null if only entries without a valid datestamp have been given.
+   */
+  @JsonProperty("datestamp")
+  String datestamp;
+
+  /**
+   * The keys of the entries with exactly {@link #getDatestamp()} that have been given, since more entries with the same datestamp can
+   * still come in the next sync. Each key is the {@code orderid} and {@code accountname} of the entry.
+   */
+  @JsonProperty("entries")
+  @Singular("entry")
+  List<String> entries;
+
+  /**
+   * The keys of the entries without a valid datestamp that have been given. They cannot be placed before or after the checkpoint, so they
+   * are remembered one by one to only give them once. Each key is the {@code orderid}, {@code accountname} and {@code datestamp} of the
+   * entry.
+   */
+  @JsonProperty("undatedEntries")
+  @Singular("undatedEntry")
+  List<String> undatedEntries;
+}
@@ -0,0 +1,17 @@
+package com.trustly.api.ledger;
+
+import java.io.IOException;
+
+/**
+ * Keeps the {@link LedgerCheckpoint} of each currency between the syncs of an {@link IncrementalLedgerSync}, such as in
+ * {@link FileLedgerCheckpointStore}.
+ */
+public interface LedgerCheckpointStore {
+
+  /**
+   * @return The checkpoint of the currency, or null if it has never been synced.
+   */
+  LedgerCheckpoint load(String currency) throws IOException;
+
+  void save(String currency, LedgerCheckpoint checkpoint) throws IOException;
+}
@@ -0,0 +1,341 @@
+package com.trustly.api.ledger;
+
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseData;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
+import com.trustly.api.domain.methods.getwithdrawals.GetWithdrawalsResponseDataEntry;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseData;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseDataEntry;
+import com.trustly.api.ledger.ReconciliationDiscrepancy.Type;
+import com.trustly.api.util.TrustlyNumberUtils;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Matches the ledger entries, settlement report entries and withdrawals of each order, and gives the orders where they do not agree.
+ * <p>
+ * For each order, the amounts of its ledger entries and of its settlement report entries are summed per currency, and the sums must be
+ * exactly the same. If the order is one of the given withdrawals, the amount of the withdrawal must also be the amount, without its sign,
+ * that the settlement report gives in the currency of the withdrawal. Entries without an order id are not reconciled.
+ * <p>
+ * The ledger and the settlement report are read together in a single pass, always taking the entry with the earliest datestamp next. The
+ * entries are summed per order in a hash table, and an order is compared and forgotten as soon as its ledger and settlement report sums
+ * agree in every currency, so only the orders that are not matched are kept in memory. The entries of an order do not have to come
+ * together: a refund or fee that comes later starts the order again, and is matched on its own. An order that does not agree when both
+ * sources are done is given as a discrepancy, with the sums since it last agreed. The withdrawals, of which there are usually far fewer,
+ * are kept in a hash table with the sums of their orders, and are checked at the end.
+ *
+ * <pre>{@code
+ * new LedgerReconciler().reconcile(ledger, settlementReport, withdrawals, discrepancy -> log.warn("{}", discrepancy));
+ * }</pre>
+ */
+public class LedgerReconciler {
+
+  /**
+   * @return The number of orders that were reconciled. An order whose later entries are matched on their own is counted again.
+   */
+  public long reconcile(
+    AccountLedgerResponseData ledger,
+    SettlementReportResponseData settlementReport,
+    Collection<GetWithdrawalsResponseDataEntry> withdrawals,
+    Consumer<ReconciliationDiscrepancy> consumer
+  ) {
+    try (Stream<SettlementReportResponseDataEntry> settlementEntries = settlementReport.streamEntries()) {
+      return this.reconcile(ledger.getEntries().iterator(), settlementEntries.iterator(), withdrawals, consumer);
+    }
+  }
+
+  /**
+   * @param ledger           The ledger entries, preferably in datestamp order, such as from {@link AccountLedgerFetcher}
+   * @param settlementReport The settlement report entries, preferably in datestamp order, as they are in a report
+   * @return The number of orders that were reconciled. An order whose later entries are matched on their own is counted again.
+   */
+  public long reconcile(
+    Iterator<AccountLedgerResponseDataEntry> ledger,
+    Iterator<SettlementReportResponseDataEntry> settlementReport,
+    Collection<GetWithdrawalsResponseDataEntry> withdrawals,
+    Consumer<ReconciliationDiscrepancy> consumer
+  ) {
+
+    Map<String, PendingWithdrawal> withdrawalsByOrderId = new LinkedHashMap<>();
+    for (GetWithdrawalsResponseDataEntry withdrawal : withdrawals) {
+      if (withdrawal.getOrderId() != null) {
+        withdrawalsByOrderId.put(withdrawal.getOrderId(), new PendingWithdrawal(withdrawal));
+      }
+    }
+
+    Pass pass = new Pass(withdrawalsByOrderId, consumer);
+
+    AccountLedgerResponseDataEntry ledgerEntry = next(ledger);
+    SettlementReportResponseDataEntry settlementEntry = next(settlementReport);
+    while (ledgerEntry != null || settlementEntry != null) {
+
+      boolean takeLedger = settlementEntry == null
+        || (ledgerEntry != null && toEpochNanos(ledgerEntry) <= toEpochNanos(settlementEntry));
+
+      if (takeLedger) {
+        if (ledgerEntry.getOrderId() != null) {
+          pass.addLedgerEntry(ledgerEntry);
+        }
+
+        ledgerEntry = next(ledger);
+      } else {
+        if (settlementEntry.getOrderId() != null) {
+          pass.addSettlementEntry(settlementEntry);
+        }
+
+        settlementEntry = next(settlementReport);
+      }
+    }
+
+    pass.finish();
+    return pass.reconciled;
+  }
+
+  private static <T> T next(Iterator<T> iterator) {
+    return iterator.hasNext() ? iterator.next() : null;
+  }
+
+  private static long toEpochNanos(AccountLedgerResponseDataEntry entry) {
+    // The head of the ledger is compared to each settlement report entry until it is taken, so the parsed datestamp that the entry keeps is
+    // used rather than parsing it again.
+    Long epochMicros = entry.getDatestampEpochMicros();
+    return (epochMicros == null) ? Long.MIN_VALUE : epochMicros * 1_000L;
+  }
+
+  private static long toEpochNanos(SettlementReportResponseDataEntry entry) {
+    if (entry.getDatestamp() == null) {
+      return Long.MIN_VALUE;
+    }
+
+    return entry.getDatestamp().getEpochSecond() * 1_000_000_000L + entry.getDatestamp().getNano();
+  }
+
+  /**
+   * The state of one reconciliation.
+   */
+  private static final class Pass {
+
+    private final Map<String, PendingWithdrawal> withdrawals;
+    private final Consumer<ReconciliationDiscrepancy> consumer;
+
+    // The orders whose ledger and settlement report entries do not agree yet.
+    private final Map<String, PendingOrder> pending = new LinkedHashMap<>();
+
+    private long reconciled;
+
+    Pass(Map<String, PendingWithdrawal> withdrawals, Consumer<ReconciliationDiscrepancy> consumer) {
+      this.withdrawals = withdrawals;
+      this.consumer = consumer;
+    }
+
+    void addLedgerEntry(AccountLedgerResponseDataEntry entry) {
+
+      PendingWithdrawal withdrawal = this.withdrawals.get(entry.getOrderId());
+      if (withdrawal != null) {
+        withdrawal.booked = true;
+        if (Objects.equals(entry.getCurrency(), withdrawal.entry.getCurrency())) {
+          withdrawal.ledger = (withdrawal.ledger == null) ? new Sum() : withdrawal.ledger;
+          withdrawal.ledger.add(entry.getAmount());
+        }
+      }
+
+      PendingOrder order = this.pending.computeIfAbsent(entry.getOrderId(), orderId -> new PendingOrder());
+      order.ledger.computeIfAbsent(entry.getCurrency(), currency -> new Sum()).add(entry.getAmount());
+      this.forgetIfMatched(entry.getOrderId(), order);
+    }
+
+    void addSettlementEntry(SettlementReportResponseDataEntry entry) {
+
+      PendingWithdrawal withdrawal = this.withdrawals.get(entry.getOrderId());
+      if (withdrawal != null) {
+        withdrawal.booked = true;
+        if (Objects.equals(entry.getCurrency(), withdrawal.entry.getCurrency())) {
+          withdrawal.settlement = (withdrawal.settlement == null) ? new Sum() : withdrawal.settlement;
+          withdrawal.settlement.add(entry.getAmountUnscaled(), entry.getAmount());
+        }
+      }
+
+      PendingOrder order = this.pending.computeIfAbsent(entry.getOrderId(), orderId -> new PendingOrder());
+      order.settlement.computeIfAbsent(entry.getCurrency(), currency -> new Sum()).add(entry.getAmountUnscaled(), entry.getAmount());
+      this.forgetIfMatched(entry.getOrderId(), order);
+    }
+
+    void finish() {
+
+      // Whatever is left did not agree, or was only in one of the sources.
+      for (Map.Entry<String, PendingOrder> order : this.pending.entrySet()) {
+        this.reconciled++;
+        this.compare(order.getKey(), order.getValue());
+      }
+
+      this.pending.clear();
+
+      for (PendingWithdrawal withdrawal : this.withdrawals.values()) {
+        this.compare(withdrawal);
+      }
+    }
+
+    private void forgetIfMatched(String orderId, PendingOrder order) {
+
+      if (order.ledger.size() != order.settlement.size()) {
+        return;
+      }
+
+      for (Map.Entry<String, Sum> ledgerSum : order.ledger.entrySet()) {
+        Sum settlementSum = order.settlement.get(ledgerSum.getKey());
+        if (settlementSum == null || ledgerSum.getValue().toBigDecimal().compareTo(settlementSum.toBigDecimal()) != 0) {
+          return;
+        }
+      }
+
+      this.pending.remove(orderId);
+      this.reconciled++;
+    }
+
+    private void compare(String orderId, PendingOrder order) {
+
+      Set<String> currencies = new LinkedHashSet<>(order.ledger.keySet());
+      currencies.addAll(order.settlement.keySet());
+      for (String currency : currencies) {
+        Sum ledgerSum = order.ledger.get(currency);
+        Sum settlementSum = order.settlement.get(currency);
+        BigDecimal ledgerAmount = (ledgerSum == null) ? null : ledgerSum.toBigDecimal();
+        BigDecimal settlementAmount = (settlementSum == null) ? null : settlementSum.toBigDecimal();
+
+        Type type = null;
+        if (ledgerAmount == null) {
+          type = Type.MISSING_FROM_LEDGER;
+        } else if (settlementAmount == null) {
+          type = Type.MISSING_FROM_SETTLEMENT_REPORT;
+        } else if (ledgerAmount.compareTo(settlementAmount) != 0) {
+          type = Type.AMOUNT_MISMATCH;
+        }
+
+        if (type != null) {
+          this.consumer.accept(ReconciliationDiscrepancy.builder()
+            .type(type)
+            .orderId(orderId)
+            .currency(currency)
+            .ledgerAmount(ledgerAmount)
+            .settlementAmount(settlementAmount)
+            .build());
+        }
+      }
+    }
+
+    private void compare(PendingWithdrawal withdrawal) {
+
+      GetWithdrawalsResponseDataEntry entry = withdrawal.entry;
+      BigDecimal withdrawalAmount = toBigDecimal(entry.getAmount());
+
+      if (!withdrawal.booked) {
+        this.consumer.accept(ReconciliationDiscrepancy.builder()
+          .type(Type.WITHDRAWAL_NOT_BOOKED)
+          .orderId(entry.getOrderId())
+          .currency(entry.getCurrency())
+          .withdrawalAmount(withdrawalAmount)
+          .build());
+        return;
+      }
+
+      BigDecimal settlementAmount = (withdrawal.settlement == null) ? null : withdrawal.settlement.toBigDecimal();
+      if (settlementAmount == null || withdrawalAmount == null || settlementAmount.abs().compareTo(withdrawalAmount.abs()) != 0) {
+        this.consumer.accept(ReconciliationDiscrepancy.builder()
+          .type(Type.WITHDRAWAL_AMOUNT_MISMATCH)
+          .orderId(entry.getOrderId())
+          .currency(entry.getCurrency())
+          .ledgerAmount((withdrawal.ledger == null) ? null : withdrawal.ledger.toBigDecimal())
+          .settlementAmount(settlementAmount)
+          .withdrawalAmount(withdrawalAmount)
+          .build());
+      }
+    }
+
+    private static BigDecimal toBigDecimal(String amount) {
+      return (amount == null) ? null : new BigDecimal(amount);
+    }
+  }
+
+  private static final class PendingOrder {
+
+    // Most orders only have entries in a single currency, or two with a fee.
+    private final Map<String, Sum> ledger = new HashMap<>(4);
+    private final Map<String, Sum> settlement = new HashMap<>(4);
+  }
+
+  /**
+   * A withdrawal with the sums of all entries of its order in the currency of the withdrawal, which unlike a {@link PendingOrder} is kept
+   * until both sources are done.
+   */
+  private static final class PendingWithdrawal {
+
+    private final GetWithdrawalsResponseDataEntry entry;
+
+    // Null if the source has no entries of the order in the currency of the withdrawal.
+    private Sum ledger;
+    private Sum settlement;
+
+    // If the order is in either source, in any currency.
+    private boolean booked;
+
+    PendingWithdrawal(GetWithdrawalsResponseDataEntry entry) {
+      this.entry = entry;
+    }
+  }
+
+  /**
+   * An exact sum, which adds unscaled longs and only moves over to {@link BigDecimal} for amounts with more decimals than
+   * {@link TrustlyNumberUtils#AMOUNT_SCALE}, or if the long would overflow.
+   */
+  private static final class Sum {
+
+    private long unscaled;
+    private BigDecimal rest;
+
+    void add(String amount) {
+      if (amount == null) {
+        return;
+      }
+
+      try {
+        this.add(TrustlyNumberUtils.parseUnscaled(amount, TrustlyNumberUtils.AMOUNT_SCALE));
+      } catch (ArithmeticException ex) {
+        this.add(new BigDecimal(amount));
+      }
+    }
+
+    void add(Long unscaled, Double value) {
+      if (unscaled != null) {
+        this.add(unscaled.longValue());
+      } else if (value != null) {
+        this.add(BigDecimal.valueOf(value));
+      }
+    }
+
+    void add(long value) {
+      try {
+        this.unscaled = Math.addExact(this.unscaled, value);
+      } catch (ArithmeticException ex) {
+        this.add(BigDecimal.valueOf(value, TrustlyNumberUtils.AMOUNT_SCALE));
+      }
+    }
+
+    void add(BigDecimal value) {
+      this.rest = (this.rest == null) ? value : this.rest.add(value);
+    }
+
+    BigDecimal toBigDecimal() {
+      BigDecimal sum = BigDecimal.valueOf(this.unscaled, TrustlyNumberUtils.AMOUNT_SCALE);
+      return (this.rest == null) ? sum : sum.add(this.rest);
+    }
+  }
+}
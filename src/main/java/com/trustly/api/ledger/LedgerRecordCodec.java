@@ -0,0 +1,166 @@
+package com.trustly.api.ledger;
+
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseDataEntry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Encodes the entries kept by a {@link LedgerStore} as compact binary records. Each record starts with its type, followed by the fields
+ * of the entry in declaration order, where every field can be null.
+ */
+final class LedgerRecordCodec {
+
+  static final byte LEDGER_ENTRY = 1;
+  static final byte SETTLEMENT_ENTRY = 2;
+
+  private LedgerRecordCodec() {
+  }
+
+  static byte[] encode(AccountLedgerResponseDataEntry entry) throws IOException {
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(LEDGER_ENTRY);
+    writeString(out, entry.getUserId());
+    writeString(out, entry.getDatestamp());
+    writeString(out, entry.getOrderId());
+    writeString(out, entry.getAccountName());
+    writeString(out, entry.getMessageId());
+    writeString(out, entry.getTransactionType());
+    writeString(out, entry.getCurrency());
+    writeString(out, entry.getAmount());
+    writeString(out, entry.getGluepayId());
+
+    return bytes.toByteArray();
+  }
+
+  static byte[] encode(SettlementReportResponseDataEntry entry) throws IOException {
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(SETTLEMENT_ENTRY);
+    writeString(out, entry.getAccountName());
+    writeDouble(out, entry.getAmount());
+    writeLong(out, entry.getAmountUnscaled());
+    writeString(out, entry.getCurrency());
+    writeInstant(out, entry.getDatestamp());
+    writeString(out, entry.getMessageId());
+    writeString(out, entry.getOrderId());
+    writeString(out, entry.getOrderType());
+    writeDouble(out, entry.getTotal());
+    writeLong(out, entry.getTotalUnscaled());
+    writeString(out, entry.getUsername());
+    writeDouble(out, entry.getFxPaymentAmount());
+    writeLong(out, entry.getFxPaymentAmountUnscaled());
+    writeString(out, entry.getFxPaymentCurrency());
+    writeString(out, entry.getSettlementBankWithdrawalId());
+    writeString(out, entry.getExternalReference());
+
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return The decoded entry, either an {@link AccountLedgerResponseDataEntry} or a {@link SettlementReportResponseDataEntry}.
+   */
+  static Object decode(byte[] record) throws IOException {
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+    byte type = in.readByte();
+    if (type == LEDGER_ENTRY) {
+      return AccountLedgerResponseDataEntry.builder()
+        .userId(readString(in))
+        .datestamp(readString(in))
+        .orderId(readString(in))
+        .accountName(readString(in))
+        .messageId(readString(in))
+        .transactionType(readString(in))
+        .currency(readString(in))
+        .amount(readString(in))
+        .gluepayId(readString(in))
+        .build();
+    } else if (type == SETTLEMENT_ENTRY) {
+      return SettlementReportResponseDataEntry.builder()
+        .accountName(readString(in))
+        .amount(readDouble(in))
+        .amountUnscaled(readLong(in))
+        .currency(readString(in))
+        .datestamp(readInstant(in))
+        .messageId(readString(in))
+        .orderId(readString(in))
+        .orderType(readString(in))
+        .total(readDouble(in))
+        .totalUnscaled(readLong(in))
+        .username(readString(in))
+        .fxPaymentAmount(readDouble(in))
+        .fxPaymentAmountUnscaled(readLong(in))
+        .fxPaymentCurrency(readString(in))
+        .settlementBankWithdrawalId(readString(in))
+        .externalReference(readString(in))
+        .build();
+    }
+
+    throw new IOException(String.format("Unknown ledger record type %d", type));
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeDouble(value);
+    }
+  }
+
+  private static Double readDouble(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readDouble() : null;
+  }
+
+  private static void writeLong(DataOutputStream out, Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value);
+    }
+  }
+
+  private static Long readLong(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value.getEpochSecond());
+      out.writeInt(value.getNano());
+    }
+  }
+
+  private static Instant readInstant(DataInputStream in) throws IOException {
+    return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+  }
+}
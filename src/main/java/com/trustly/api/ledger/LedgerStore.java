@@ -0,0 +1,326 @@
+package com.trustly.api.ledger;
+
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseDataEntry;
+import com.trustly.api.util.MappedSegmentLog;
+import com.trustly.api.util.MappedSegmentLog.FsyncPolicy;
+import com.trustly.api.util.TrustlyDateUtils;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * A local store of ledger and settlement report entries, for reconciliation that looks up the same entries over and over again.
+ * <p>
+ * The entries are appended to memory-mapped segment files (see {@link MappedSegmentLog}) in the given directory, so they do not have to be
+ * kept in memory. Only the indexes are kept in memory: a hash index on the order id and on the message id, and an index on the datestamp
+ * for range scans. The indexes hold the positions of the entries in the log, and are built again by reading the log when it is opened.
+ * <p>
+ * Entries are stored as they are given, so the same entry added twice is given twice by lookups; use {@link IncrementalLedgerSync} to only
+ * add new ledger entries.
+ *
+ * <pre>{@code
+ * try (LedgerStore store = new LedgerStore(Paths.get("ledger"))) {
+ *   sync.sync("EUR", store::addLedgerEntry);
+ *   List<AccountLedgerResponseDataEntry> entries = store.findLedgerEntriesByOrderId("1436615387");
+ * }
+ * }</pre>
+ */
+public class LedgerStore implements Closeable {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  // The entries can always be fetched from Trustly again, so they are not forced to disk one by one.
+  private static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
+
+  private final MappedSegmentLog log;
+  private final Index ledgerIndex = new Index();
+  private final Index settlementIndex = new Index();
+
+  public LedgerStore(Path directory) throws IOException {
+    this(directory, DEFAULT_SEGMENT_SIZE, FsyncPolicy.INTERVAL, DEFAULT_FSYNC_INTERVAL_MILLIS);
+  }
+
+  public LedgerStore(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+
+    this.log = new MappedSegmentLog(directory, segmentSize, fsyncPolicy, fsyncIntervalMillis);
+    try {
+      this.log.read(MappedSegmentLog.FIRST_POSITION, Integer.MAX_VALUE, (position, nextPosition, record) -> this.index(position, record));
+    } catch (IOException | RuntimeException ex) {
+      this.log.close();
+      throw ex;
+    } catch (Exception ex) {
+      this.log.close();
+      throw new IOException("Could not read the ledger store", ex);
+    }
+  }
+
+  public void addLedgerEntry(AccountLedgerResponseDataEntry entry) throws IOException {
+    byte[] record = LedgerRecordCodec.encode(entry);
+    long position = this.log.append(record, 0, record.length);
+    this.ledgerIndex.add(entry.getOrderId(), entry.getMessageId(), toEpochNanos(entry), position);
+  }
+
+  public void addLedgerEntries(Iterable<AccountLedgerResponseDataEntry> entries) throws IOException {
+    for (AccountLedgerResponseDataEntry entry : entries) {
+      this.addLedgerEntry(entry);
+    }
+  }
+
+  public void addSettlementEntry(SettlementReportResponseDataEntry entry) throws IOException {
+    byte[] record = LedgerRecordCodec.encode(entry);
+    long position = this.log.append(record, 0, record.length);
+    this.settlementIndex.add(entry.getOrderId(), entry.getMessageId(), toEpochNanos(entry), position);
+  }
+
+  public void addSettlementEntries(Iterable<SettlementReportResponseDataEntry> entries) throws IOException {
+    for (SettlementReportResponseDataEntry entry : entries) {
+      this.addSettlementEntry(entry);
+    }
+  }
+
+  public int getLedgerEntryCount() {
+    return this.ledgerIndex.size();
+  }
+
+  public int getSettlementEntryCount() {
+    return this.settlementIndex.size();
+  }
+
+  /**
+   * @return The ledger entries of the order, in the order they were added.
+   */
+  public List<AccountLedgerResponseDataEntry> findLedgerEntriesByOrderId(String orderId) throws IOException {
+    return this.readAll(this.ledgerIndex.byOrderId(orderId), AccountLedgerResponseDataEntry.class);
+  }
+
+  /**
+   * @return The ledger entries with the message id, in the order they were added.
+   */
+  public List<AccountLedgerResponseDataEntry> findLedgerEntriesByMessageId(String messageId) throws IOException {
+    return this.readAll(this.ledgerIndex.byMessageId(messageId), AccountLedgerResponseDataEntry.class);
+  }
+
+  /**
+   * Gives the ledger entries with a datestamp from the start, up to but not including the end, in datestamp order. Entries without a
+   * datestamp that can be parsed are never given.
+   */
+  public void scanLedgerEntries(Instant from, Instant to, Consumer<AccountLedgerResponseDataEntry> consumer) throws IOException {
+    this.readAll(this.ledgerIndex.between(toEpochNanos(from), toEpochNanos(to)), AccountLedgerResponseDataEntry.class, consumer);
+  }
+
+  /**
+   * @return The settlement report entries of the order, in the order they were added.
+   */
+  public List<SettlementReportResponseDataEntry> findSettlementEntriesByOrderId(String orderId) throws IOException {
+    return this.readAll(this.settlementIndex.byOrderId(orderId), SettlementReportResponseDataEntry.class);
+  }
+
+  /**
+   * @return The settlement report entries with the message id, in the order they were added.
+   */
+  public List<SettlementReportResponseDataEntry> findSettlementEntriesByMessageId(String messageId) throws IOException {
+    return this.readAll(this.settlementIndex.byMessageId(messageId), SettlementReportResponseDataEntry.class);
+  }
+
+  /**
+   * The same as {@link #scanLedgerEntries(Instant, Instant, Consumer)}, but for the settlement report entries.
+   */
+  public void scanSettlementEntries(Instant from, Instant to, Consumer<SettlementReportResponseDataEntry> consumer) throws IOException {
+    this.readAll(this.settlementIndex.between(toEpochNanos(from), toEpochNanos(to)), SettlementReportResponseDataEntry.class, consumer);
+  }
+
+  @Override
+  public void close() {
+    this.log.close();
+  }
+
+  private void index(long position, byte[] record) throws IOException {
+    Object entry = LedgerRecordCodec.decode(record);
+    if (entry instanceof AccountLedgerResponseDataEntry) {
+      AccountLedgerResponseDataEntry ledgerEntry = (AccountLedgerResponseDataEntry) entry;
+      this.ledgerIndex.add(ledgerEntry.getOrderId(), ledgerEntry.getMessageId(), toEpochNanos(ledgerEntry), position);
+    } else {
+      SettlementReportResponseDataEntry settlementEntry = (SettlementReportResponseDataEntry) entry;
+      this.settlementIndex.add(settlementEntry.getOrderId(), settlementEntry.getMessageId(), toEpochNanos(settlementEntry), position);
+    }
+  }
+
+  private <E> List<E> readAll(long[] positions, Class<E> type) throws IOException {
+    List<E> entries = new ArrayList<>(positions.length);
+    this.readAll(positions, type, entries::add);
+    return entries;
+  }
+
+  private <E> void readAll(long[] positions, Class<E> type, Consumer<E> consumer) throws IOException {
+    for (long position : positions) {
+      final Object[] entry = new Object[1];
+      try {
+        this.log.read(position, 1, (recordPosition, nextPosition, record) -> entry[0] = LedgerRecordCodec.decode(record));
+      } catch (IOException | RuntimeException ex) {
+        throw ex;
+      } catch (Exception ex) {
+        throw new IOException("Could not read the ledger store", ex);
+      }
+
+      consumer.accept(type.cast(entry[0]));
+    }
+  }
+
+  private static long toEpochNanos(AccountLedgerResponseDataEntry entry) {
+    return (entry.getDatestamp() == null) ? TrustlyDateUtils.NOT_PARSED : TrustlyDateUtils.parseEpochNanos(entry.getDatestamp());
+  }
+
+  private static long toEpochNanos(SettlementReportResponseDataEntry entry) {
+    return (entry.getDatestamp() == null) ? TrustlyDateUtils.NOT_PARSED : toEpochNanos(entry.getDatestamp());
+  }
+
+  private static long toEpochNanos(Instant instant) {
+    try {
+      return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    } catch (ArithmeticException ex) {
+      // Only possible for instants hundreds of years away, such as Instant.MIN or Instant.MAX as the bounds of a scan.
+      return (instant.getEpochSecond() < 0) ? Long.MIN_VALUE + 1 : Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * The in-memory indexes of one kind of entry, which map to the positions of the entries in the log.
+   */
+  private static final class Index {
+
+    private static final long[] NONE = new long[0];
+
+    private final Map<String, Positions> orderIds = new HashMap<>();
+    private final Map<String, Positions> messageIds = new HashMap<>();
+
+    // Sorted by the datestamp when a range is asked for, since the entries are mostly added in datestamp order anyway.
+    private long[] epochNanos = new long[1024];
+    private long[] datestampPositions = new long[1024];
+    private int datestampCount;
+    private boolean sorted = true;
+
+    private int size;
+
+    synchronized void add(String orderId, String messageId, long nanos, long position) {
+
+      this.size++;
+      put(this.orderIds, orderId, position);
+      put(this.messageIds, messageId, position);
+
+      if (nanos == TrustlyDateUtils.NOT_PARSED) {
+        return;
+      }
+
+      if (this.datestampCount == this.epochNanos.length) {
+        this.epochNanos = Arrays.copyOf(this.epochNanos, this.datestampCount * 2);
+        this.datestampPositions = Arrays.copyOf(this.datestampPositions, this.datestampCount * 2);
+      }
+
+      if (this.datestampCount > 0 && nanos < this.epochNanos[this.datestampCount - 1]) {
+        this.sorted = false;
+      }
+
+      this.epochNanos[this.datestampCount] = nanos;
+      this.datestampPositions[this.datestampCount] = position;
+      this.datestampCount++;
+    }
+
+    synchronized int size() {
+      return this.size;
+    }
+
+    synchronized long[] byOrderId(String orderId) {
+      Positions positions = this.orderIds.get(orderId);
+      return (positions == null) ? NONE : positions.toArray();
+    }
+
+    synchronized long[] byMessageId(String messageId) {
+      Positions positions = this.messageIds.get(messageId);
+      return (positions == null) ? NONE : positions.toArray();
+    }
+
+    synchronized long[] between(long fromNanos, long toNanos) {
+
+      if (!this.sorted) {
+        this.sort();
+      }
+
+      int from = this.lowerBound(fromNanos);
+      int to = Math.max(from, this.lowerBound(toNanos));
+      return Arrays.copyOfRange(this.datestampPositions, from, to);
+    }
+
+    private int lowerBound(long nanos) {
+      int low = 0;
+      int high = this.datestampCount;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (this.epochNanos[middle] < nanos) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+
+      return low;
+    }
+
+    private void sort() {
+
+      // A stable sort, so entries with the same datestamp stay in the order they were added.
+      int[] order = IntStream.range(0, this.datestampCount)
+        .boxed()
+        .sorted((a, b) -> Long.compare(this.epochNanos[a], this.epochNanos[b]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+
+      long[] sortedNanos = new long[this.epochNanos.length];
+      long[] sortedPositions = new long[this.datestampPositions.length];
+      for (int i = 0; i < order.length; i++) {
+        sortedNanos[i] = this.epochNanos[order[i]];
+        sortedPositions[i] = this.datestampPositions[order[i]];
+      }
+
+      this.epochNanos = sortedNanos;
+      this.datestampPositions = sortedPositions;
+      this.sorted = true;
+    }
+
+    private static void put(Map<String, Positions> index, String key, long position) {
+      if (key != null) {
+        index.computeIfAbsent(key, k -> new Positions()).add(position);
+      }
+    }
+  }
+
+  /**
+   * The positions of the entries with one key, which grows by doubling so that adding stays cheap for keys with many entries.
+   */
+  private static final class Positions {
+
+    // Most keys only have a few entries, such as the ledger entries of one order, so the array starts small.
+    private long[] values = new long[2];
+    private int size;
+
+    void add(long position) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+
+      this.values[this.size++] = position;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(this.values, this.size);
+    }
+  }
+}
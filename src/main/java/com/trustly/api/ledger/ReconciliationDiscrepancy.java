@@ -0,0 +1,62 @@
+package com.trustly.api.ledger;
+
+import java.math.BigDecimal;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * An order whose ledger entries, settlement report entries and withdrawal do not agree, as found by {@link LedgerReconciler}.
+ */
+@Value
+@Builder
+public class ReconciliationDiscrepancy {
+
+  public enum Type {
+
+    /**
+     * The order is in the settlement report, but not in the ledger.
+     */
+    MISSING_FROM_LEDGER,
+
+    /**
+     * The order is in the ledger, but not in the settlement report.
+     */
+    MISSING_FROM_SETTLEMENT_REPORT,
+
+    /**
+     * The ledger and the settlement report give a different sum for the order in the currency.
+     */
+    AMOUNT_MISMATCH,
+
+    /**
+     * The amount of the withdrawal is not the amount that the settlement report gives for the order in the currency of the withdrawal.
+     */
+    WITHDRAWAL_AMOUNT_MISMATCH,
+
+    /**
+     * The withdrawal is in neither the ledger nor the settlement report.
+     */
+    WITHDRAWAL_NOT_BOOKED
+  }
+
+  Type type;
+
+  String orderId;
+
+  String currency;
+
+  /**
+   * The sum of the amounts of the ledger entries of the order in the currency, or null if there are none.
+   */
+  BigDecimal ledgerAmount;
+
+  /**
+   * The sum of the amounts of the settlement report entries of the order in the currency, or null if there are none.
+   */
+  BigDecimal settlementAmount;
+
+  /**
+   * The amount of the withdrawal, or null if the order is not a withdrawal that was given to the reconciler.
+   */
+  BigDecimal withdrawalAmount;
+}
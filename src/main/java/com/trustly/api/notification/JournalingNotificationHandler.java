@@ -0,0 +1,187 @@
+package com.trustly.api.notification;
+
+import com.trustly.api.client.TrustlyApiClient;
+import com.trustly.api.client.TrustlyApiClientExtensions;
+import com.trustly.api.client.TrustlyApiClientExtensions.NotificationResponder;
+import com.trustly.api.domain.base.IFromTrustlyRequestData;
+import com.trustly.api.domain.base.NotificationRequest;
+import com.trustly.api.domain.exceptions.TrustlyNoNotificationClientException;
+import com.trustly.api.domain.exceptions.TrustlyNoNotificationListenerException;
+import com.trustly.api.domain.exceptions.TrustlyNotificationException;
+import com.trustly.api.domain.exceptions.TrustlySignatureException;
+import com.trustly.api.domain.exceptions.TrustlyValidationException;
+import com.trustly.api.util.ReusableByteBuffer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Handles incoming notifications by verifying them, appending them to a {@link NotificationJournal} and directly responding with
+ * {@code OK}. The notification listeners of the registered {@link TrustlyApiClient}s are then called later, from the journal.
+ * <p>
+ * This decouples the time it takes to respond to Trustly from the time it takes to process the notification. Since the notification has
+ * already been acknowledged when the listeners are called, a listener that responds with {@link
+ * com.trustly.api.client.NotificationArgs#respondWithFailed(String)} or throws an exception will not reach Trustly. Instead, processing of
+ * the journal stops at that notification, and it is retried the next time the journal is processed.
+ * <p>
+ * This makes it unsuitable for notifications where the response matters to Trustly, such as a {@code debit} notification for a withdrawal
+ * that the merchant might want to deny.
+ */
+@Slf4j
+public class JournalingNotificationHandler implements Closeable {
+
+  private static final int PROCESS_BATCH_SIZE = 100;
+
+  private final NotificationJournal journal;
+  private ScheduledExecutorService executor;
+
+  public JournalingNotificationHandler(NotificationJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Reads and verifies the incoming notification, appends it to the journal and then responds {@code OK} to Trustly.
+   * <p>
+   * This is the journaling counterpart of {@link TrustlyApiClientExtensions#handleNotificationRequest(InputStream, NotificationResponder)}.
+   *
+   * @throws IOException If the notification could not be read or appended to the journal, or the response could not be sent.
+   * @throws TrustlyNoNotificationClientException If there are no registered clients.
+   * @throws TrustlyNoNotificationListenerException If there was no listener for the notification, nor one for unknown ones.
+   * @throws TrustlyValidationException If the response data could not be properly validated.
+   * @throws TrustlySignatureException If the signature of the notification could not be properly verified.
+   */
+  public void handleNotificationRequest(InputStream incoming, NotificationResponder responder)
+    throws IOException,
+    TrustlyNoNotificationClientException,
+    TrustlyNoNotificationListenerException,
+    TrustlyValidationException,
+    TrustlySignatureException {
+
+    ReusableByteBuffer body = TrustlyApiClientExtensions.readBody(incoming);
+    try {
+
+      // Every registered client is tried, like when handling the notification directly, since only one might be able to verify it.
+      TrustlyApiClient client = null;
+      NotificationRequest<? extends IFromTrustlyRequestData> rpcRequest = null;
+      Exception lastFailure = null;
+      for (TrustlyApiClient registeredClient : TrustlyApiClient.getRegisteredClients()) {
+        try {
+          rpcRequest = registeredClient.verifyNotification(body.getBytes(), 0, body.getLength());
+          client = registeredClient;
+          break;
+        } catch (TrustlySignatureException | TrustlyNoNotificationListenerException ex) {
+          lastFailure = ex;
+        }
+      }
+
+      if (client == null) {
+        if (lastFailure instanceof TrustlySignatureException) {
+          throw (TrustlySignatureException) lastFailure;
+        } else if (lastFailure instanceof TrustlyNoNotificationListenerException) {
+          throw (TrustlyNoNotificationListenerException) lastFailure;
+        }
+
+        throw new TrustlyNoNotificationClientException("There are no registered Api Clients listening to notifications");
+      }
+
+      this.journal.append(body.getBytes(), 0, body.getLength());
+
+      TrustlyApiClientExtensions.respond(client, responder, rpcRequest.getMethod(), rpcRequest.getParams().getUuid(), "OK", null, 200);
+    } finally {
+      TrustlyApiClientExtensions.releaseBody(body);
+    }
+  }
+
+  /**
+   * Calls the listeners of all registered clients for the notifications in the journal that have not yet been processed.
+   *
+   * @param maxNotifications The maximum number of notifications to process
+   * @return The number of notifications that were successfully processed
+   * @throws Exception The exception of the notification that failed processing, which will be retried the next time
+   */
+  public int processPending(int maxNotifications) throws Exception {
+    return this.journal.process(maxNotifications, JournalingNotificationHandler::dispatch);
+  }
+
+  /**
+   * Starts processing the journal in a background thread, checking for new notifications at the given interval.
+   * <p>
+   * If processing a notification fails, the failure is logged and the notification is retried at the next interval.
+   */
+  public synchronized void start(long pollInterval, TimeUnit unit) {
+
+    if (this.executor != null) {
+      throw new IllegalStateException("The journal is already being processed");
+    }
+
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "trustly-notification-journal");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    this.executor.scheduleWithFixedDelay(() -> {
+      try {
+        while (this.journal.hasPending() && this.processPending(PROCESS_BATCH_SIZE) > 0) {
+          // Keep going until the journal is drained, or a notification fails.
+        }
+      } catch (Exception ex) {
+        log.warn("Could not process journaled notification, will retry later", ex);
+      }
+    }, 0, pollInterval, unit);
+  }
+
+  /**
+   * Stops any background processing. The journal itself is not closed, since it is owned by the caller.
+   */
+  @Override
+  public synchronized void close() {
+    if (this.executor != null) {
+      this.executor.shutdown();
+      try {
+        if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+          log.warn("Timed out waiting for the notification journal processing to stop");
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+
+      this.executor = null;
+    }
+  }
+
+  private static void dispatch(byte[] notification) throws Exception {
+
+    final AtomicReference<String> failure = new AtomicReference<>();
+    boolean handled = false;
+    Exception lastFailure = null;
+    for (TrustlyApiClient client : TrustlyApiClient.getRegisteredClients()) {
+      try {
+        client.handleNotification(
+          notification, 0, notification.length,
+          (method, uuid) -> {
+            // Already acknowledged when the notification was appended to the journal.
+          },
+          (method, uuid, message) -> failure.set(String.format("Listener for '%s' notification %s failed: %s", method, uuid, message))
+        );
+        handled = true;
+      } catch (TrustlySignatureException | TrustlyNoNotificationListenerException ex) {
+        // This client is for another merchant, or does not listen to this kind of notification.
+        lastFailure = ex;
+      }
+    }
+
+    if (!handled && lastFailure != null) {
+      throw lastFailure;
+    }
+
+    if (failure.get() != null) {
+      throw new TrustlyNotificationException(failure.get());
+    }
+  }
+}
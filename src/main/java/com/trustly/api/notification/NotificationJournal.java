@@ -0,0 +1,129 @@
+package com.trustly.api.notification;
+
+import com.trustly.api.util.MappedSegmentLog;
+import com.trustly.api.util.MappedSegmentLog.FsyncPolicy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A durable, append-only journal of incoming notifications, with a checkpoint of how far the notifications have been processed.
+ * <p>
+ * Notifications are stored in memory-mapped segment files in the given directory, and the checkpoint in a file next to them. Processing
+ * is at-least-once: the checkpoint is only moved past a notification once it has been successfully processed, so a notification can be
+ * processed again if the application stops after processing but before the checkpoint was written.
+ */
+public class NotificationJournal implements Closeable {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  @FunctionalInterface
+  public interface NotificationConsumer {
+
+    /**
+     * @param notification The UTF-8 encoded notification, exactly as it was appended
+     */
+    void consume(byte[] notification) throws Exception;
+  }
+
+  private static final String SEGMENTS_DIRECTORY = "segments";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+
+  private final MappedSegmentLog log;
+  private final MappedByteBuffer checkpoint;
+  private final FsyncPolicy fsyncPolicy;
+
+  public NotificationJournal(Path directory) throws IOException {
+    this(directory, DEFAULT_SEGMENT_SIZE, FsyncPolicy.ALWAYS, 0);
+  }
+
+  public NotificationJournal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+
+    this.log = new MappedSegmentLog(directory.resolve(SEGMENTS_DIRECTORY), segmentSize, fsyncPolicy, fsyncIntervalMillis);
+    this.fsyncPolicy = fsyncPolicy;
+
+    try (FileChannel channel = FileChannel.open(
+      directory.resolve(CHECKPOINT_FILE),
+      StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+    )) {
+      this.checkpoint = channel.map(MapMode.READ_WRITE, 0, Long.BYTES);
+    }
+  }
+
+  /**
+   * Appends the notification to the journal. When this method returns, the notification is stored according to the given
+   * {@link FsyncPolicy}.
+   */
+  public void append(String notification) throws IOException {
+    byte[] bytes = notification.getBytes(StandardCharsets.UTF_8);
+    this.append(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Appends the UTF-8 encoded notification to the journal, without first decoding it into a string.
+   */
+  public void append(byte[] notification, int offset, int length) throws IOException {
+    this.log.append(notification, offset, length);
+  }
+
+  /**
+   * @return If there are notifications in the journal that have not yet been successfully processed.
+   */
+  public boolean hasPending() {
+    return this.getCheckpoint() < this.log.getEndPosition();
+  }
+
+  /**
+   * Gives the unprocessed notifications to the consumer, in the order they were appended, moving the checkpoint after each one.
+   * <p>
+   * If the consumer throws an exception, processing stops and the exception is rethrown. The checkpoint then stays at the failed
+   * notification, which will be the first one given to the consumer the next time this method is called.
+   *
+   * @param maxNotifications The maximum number of notifications to process
+   * @param consumer         The consumer of each notification
+   * @return The number of notifications that were successfully processed
+   */
+  public synchronized int process(int maxNotifications, NotificationConsumer consumer) throws Exception {
+
+    final int[] processed = new int[1];
+    try {
+      this.log.read(this.getCheckpoint(), maxNotifications, (position, nextPosition, record) -> {
+
+        consumer.consume(record);
+
+        processed[0]++;
+        this.setCheckpoint(nextPosition);
+      });
+    } finally {
+      if (processed[0] > 0) {
+        this.log.deleteBefore(this.getCheckpoint());
+      }
+    }
+
+    return processed[0];
+  }
+
+  @Override
+  public void close() {
+    this.log.close();
+    if (this.fsyncPolicy != FsyncPolicy.NEVER) {
+      this.checkpoint.force();
+    }
+  }
+
+  private long getCheckpoint() {
+    return this.checkpoint.getLong(0);
+  }
+
+  private void setCheckpoint(long position) {
+    this.checkpoint.putLong(0, position);
+    if (this.fsyncPolicy == FsyncPolicy.ALWAYS) {
+      this.checkpoint.force();
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.trustly.api.notification;
+
+import com.trustly.api.client.NotificationArgs;
+import com.trustly.api.client.NotificationEvent;
+import com.trustly.api.domain.base.IFromTrustlyRequestData;
+import com.trustly.api.domain.exceptions.TrustlyValidationException;
+import com.trustly.api.domain.notifications.AbstractCreditDebitPendingPayoutNotificationData;
+import com.trustly.api.domain.notifications.AccountNotificationData;
+import com.trustly.api.domain.notifications.CancelNotificationData;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs notification listeners so that notifications for the same order are handled one at a time and in the order they arrived, while
+ * notifications for different orders are handled in parallel.
+ * <p>
+ * The order id of each notification is hashed onto one of a fixed number of stripes, where each stripe is a single thread. Wrap your
+ * listeners with {@link OrderedNotificationDispatcher#ordered(NotificationEvent)} when registering them:
+ *
+ * <pre>{@code
+ * OrderedNotificationDispatcher dispatcher = new OrderedNotificationDispatcher();
+ * client.addOnPending(dispatcher.ordered(args -> ...));
+ * client.addOnCreditListener(dispatcher.ordered(args -> ...));
+ * }</pre>
+ * <p>
+ * The thread that handles the incoming notification waits for the listener to finish, so the listener can still respond to Trustly
+ * through the {@link NotificationArgs}. Notifications without an order id are handled directly on the calling thread.
+ */
+public class OrderedNotificationDispatcher implements Closeable {
+
+  private static final ThreadLocal<OrderedNotificationDispatcher> CURRENT_DISPATCHER = new ThreadLocal<>();
+
+  private final ExecutorService[] stripes;
+
+  public OrderedNotificationDispatcher() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public OrderedNotificationDispatcher(int stripeCount) {
+
+    if (stripeCount <= 0) {
+      throw new IllegalArgumentException("There must be at least one stripe");
+    }
+
+    this.stripes = new ExecutorService[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      final String threadName = "trustly-notification-stripe-" + i;
+      this.stripes[i] = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+          CURRENT_DISPATCHER.set(this);
+          runnable.run();
+        }, threadName);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Wraps the listener so that it is called on the stripe of the notification's order id.
+   */
+  public <D extends IFromTrustlyRequestData> NotificationEvent<D> ordered(NotificationEvent<D> listener) {
+    return args -> this.dispatch(listener, args);
+  }
+
+  /**
+   * @return The order id of the notification data, or null if the notification type does not have one.
+   */
+  public static String getOrderId(IFromTrustlyRequestData data) {
+
+    if (data instanceof AbstractCreditDebitPendingPayoutNotificationData) {
+      return ((AbstractCreditDebitPendingPayoutNotificationData) data).getOrderId();
+    } else if (data instanceof CancelNotificationData) {
+      return ((CancelNotificationData) data).getOrderId();
+    } else if (data instanceof AccountNotificationData) {
+      return ((AccountNotificationData) data).getOrderId();
+    }
+
+    return null;
+  }
+
+  @Override
+  public void close() {
+    for (ExecutorService stripe : this.stripes) {
+      stripe.shutdown();
+    }
+
+    try {
+      for (ExecutorService stripe : this.stripes) {
+        stripe.awaitTermination(30, TimeUnit.SECONDS);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private <D extends IFromTrustlyRequestData> void dispatch(NotificationEvent<D> listener, NotificationArgs<D> args)
+    throws IOException, TrustlyValidationException {
+
+    String orderId = getOrderId(args.getData());
+
+    // If we are already on one of our stripes, then a listener is dispatching another notification. Waiting on our own stripe, or on a
+    // stripe that might in turn be waiting on ours, could deadlock. So we run it directly instead.
+    if (orderId == null || CURRENT_DISPATCHER.get() == this) {
+      listener.onNotification(args);
+      return;
+    }
+
+    Future<Void> future = this.stripes[this.getStripeIndex(orderId)].submit(() -> {
+      listener.onNotification(args);
+      return null;
+    });
+
+    try {
+      future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(String.format("Interrupted while waiting for the listener of order %s", orderId));
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof TrustlyValidationException) {
+        throw (TrustlyValidationException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw new IllegalStateException(String.format("The listener of order %s failed", orderId), cause);
+    }
+  }
+
+  private int getStripeIndex(String orderId) {
+    int hash = orderId.hashCode();
+    hash ^= (hash >>> 16);
+    return (hash & Integer.MAX_VALUE) % this.stripes.length;
+  }
+}
@@ -3,8 +3,8 @@ package com.trustly.api.request;
 import com.trustly.api.client.TrustlyApiClientSettings;
 import com.trustly.api.util.TrustlyStreamUtils;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.methods.PostMethod;
@@ -16,6 +16,11 @@ public class ApacheHttpClient3HttpRequester implements HttpRequester {
 
   @Override
   public String request(TrustlyApiClientSettings settings, String request) throws IOException {
+    return new String(this.requestBytes(settings, request), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public byte[] requestBytes(TrustlyApiClientSettings settings, String request) throws IOException {
 
     if (this.httpClient == null) {
       this.httpClient = new HttpClient();
@@ -28,16 +33,24 @@ public class ApacheHttpClient3HttpRequester implements HttpRequester {
 
     int statusCode = httpClient.executeMethod(postMethod);
 
-    String charset = postMethod.getResponseCharSet();
-    if (charset == null) {
-      charset = StandardCharsets.UTF_8.name();
+    Charset charset = StandardCharsets.UTF_8;
+    if (postMethod.getResponseCharSet() != null) {
+      charset = Charset.forName(postMethod.getResponseCharSet());
     }
 
-    Reader sr = new InputStreamReader(postMethod.getResponseBodyAsStream(), charset);
-    String responseBody = TrustlyStreamUtils.readerToString(sr);
+    byte[] responseBody;
+    try (InputStream is = postMethod.getResponseBodyAsStream()) {
+      responseBody = TrustlyStreamUtils.readAllBytes(is, Integer.MAX_VALUE);
+    }
+
+    if (!StandardCharsets.UTF_8.equals(charset)) {
+      responseBody = new String(responseBody, charset).getBytes(StandardCharsets.UTF_8);
+    }
 
     if (statusCode > 299) {
-      throw new IOException(String.format("Received error response %d: %s", statusCode, responseBody));
+      throw new IOException(
+        String.format("Received error response %d: %s", statusCode, new String(responseBody, StandardCharsets.UTF_8))
+      );
     }
 
     return responseBody;
@@ -2,6 +2,7 @@ package com.trustly.api.request;
 
 import com.trustly.api.client.TrustlyApiClientSettings;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -18,6 +19,26 @@ public class ApacheHttpClient4HttpRequester implements HttpRequester {
 
   @Override
   public String request(TrustlyApiClientSettings settings, String request) throws IOException {
+    return new String(this.requestBytes(settings, request), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public byte[] requestBytes(TrustlyApiClientSettings settings, String request) throws IOException {
+    return EntityUtils.toByteArray(this.execute(settings, request).getEntity());
+  }
+
+  @Override
+  public void requestStream(TrustlyApiClientSettings settings, String request, ResponseBodyHandler handler) throws IOException {
+
+    HttpEntity entity = this.execute(settings, request).getEntity();
+    try (InputStream is = entity.getContent()) {
+      handler.handle(is);
+    } finally {
+      EntityUtils.consumeQuietly(entity);
+    }
+  }
+
+  private HttpResponse execute(TrustlyApiClientSettings settings, String request) throws IOException {
 
     if (this.httpClient == null) {
       this.httpClient = HttpClients.createDefault();
@@ -28,9 +49,6 @@ public class ApacheHttpClient4HttpRequester implements HttpRequester {
     HttpPost postMethod = new HttpPost(settings.getUrl());
     postMethod.setEntity(requestEntity);
 
-    HttpResponse response = this.httpClient.execute(postMethod);
-
-    HttpEntity entity = response.getEntity();
-    return EntityUtils.toString(entity, StandardCharsets.UTF_8);
+    return this.httpClient.execute(postMethod);
   }
 }
@@ -2,11 +2,15 @@ package com.trustly.api.request;
 
 import com.trustly.api.client.TrustlyApiClientSettings;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.impl.classic.BasicHttpClientResponseHandler;
+import org.apache.hc.client5.http.impl.classic.AbstractHttpClientResponseHandler;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.HttpEntities;
 
 public class ApacheHttpClient5HttpRequester implements HttpRequester {
@@ -15,14 +19,47 @@ public class ApacheHttpClient5HttpRequester implements HttpRequester {
 
   @Override
   public String request(TrustlyApiClientSettings settings, String request) throws IOException {
+    return new String(this.requestBytes(settings, request), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public byte[] requestBytes(TrustlyApiClientSettings settings, String request) throws IOException {
+
+    return this.getHttpClient().execute(this.createPost(settings, request), new AbstractHttpClientResponseHandler<byte[]>() {
+      @Override
+      public byte[] handleEntity(HttpEntity entity) throws IOException {
+        return EntityUtils.toByteArray(entity);
+      }
+    });
+  }
+
+  @Override
+  public void requestStream(TrustlyApiClientSettings settings, String request, ResponseBodyHandler handler) throws IOException {
+
+    this.getHttpClient().execute(this.createPost(settings, request), new AbstractHttpClientResponseHandler<Void>() {
+      @Override
+      public Void handleEntity(HttpEntity entity) throws IOException {
+        try (InputStream is = entity.getContent()) {
+          handler.handle(is);
+        }
+
+        return null;
+      }
+    });
+  }
+
+  private HttpClient getHttpClient() {
 
     if (this.httpClient == null) {
       this.httpClient = HttpClients.createDefault();
     }
 
+    return this.httpClient;
+  }
+
+  private HttpPost createPost(TrustlyApiClientSettings settings, String request) {
     final HttpPost httpPost = new HttpPost(settings.getUrl());
     httpPost.setEntity(HttpEntities.create(request, ContentType.APPLICATION_JSON));
-
-    return httpClient.execute(httpPost, new BasicHttpClientResponseHandler());
+    return httpPost;
   }
 }
@@ -1,9 +1,41 @@
 package com.trustly.api.request;
 
 import com.trustly.api.client.TrustlyApiClientSettings;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 public interface HttpRequester {
 
+  @FunctionalInterface
+  interface ResponseBodyHandler {
+
+    /**
+     * @param body The UTF-8 encoded response body, which is only valid during this call, and is closed by the requester afterwards
+     */
+    void handle(InputStream body) throws IOException;
+  }
+
   String request(TrustlyApiClientSettings settings, String request) throws IOException;
+
+  /**
+   * Same as {@link HttpRequester#request(TrustlyApiClientSettings, String)}, but gives the UTF-8 encoded response body, so the client can
+   * parse it without first decoding it into a string.
+   * <p>
+   * The default implementation encodes the string response, and should be overridden by requesters that have access to the raw bytes.
+   */
+  default byte[] requestBytes(TrustlyApiClientSettings settings, String request) throws IOException {
+    return this.request(settings, request).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Same as {@link HttpRequester#requestBytes(TrustlyApiClientSettings, String)}, but gives the response body to the handler as a stream,
+   * so a large response can be processed while it is being downloaded.
+   * <p>
+   * The default implementation reads the whole response first, and should be overridden by requesters that can stream the body.
+   */
+  default void requestStream(TrustlyApiClientSettings settings, String request, ResponseBodyHandler handler) throws IOException {
+    handler.handle(new ByteArrayInputStream(this.requestBytes(settings, request)));
+  }
 }
@@ -3,9 +3,8 @@ package com.trustly.api.request;
 import com.trustly.api.client.TrustlyApiClientSettings;
 import com.trustly.api.util.TrustlyStreamUtils;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
@@ -14,6 +13,28 @@ public class JavaUrlConnectionHttpRequester implements HttpRequester {
 
   @Override
   public String request(TrustlyApiClientSettings settings, String request) throws IOException {
+    return new String(this.requestBytes(settings, request), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public byte[] requestBytes(TrustlyApiClientSettings settings, String request) throws IOException {
+
+    HttpURLConnection con = this.send(settings, request);
+    try (InputStream is = getResponseStream(con)) {
+      return TrustlyStreamUtils.readAllBytes(is, Integer.MAX_VALUE);
+    }
+  }
+
+  @Override
+  public void requestStream(TrustlyApiClientSettings settings, String request, ResponseBodyHandler handler) throws IOException {
+
+    HttpURLConnection con = this.send(settings, request);
+    try (InputStream is = getResponseStream(con)) {
+      handler.handle(is);
+    }
+  }
+
+  private HttpURLConnection send(TrustlyApiClientSettings settings, String request) throws IOException {
 
     byte[] requestBytes = request.getBytes(StandardCharsets.UTF_8);
 
@@ -30,15 +51,10 @@ public class JavaUrlConnectionHttpRequester implements HttpRequester {
       os.write(requestBytes, 0, requestBytes.length);
     }
 
-    int status = con.getResponseCode();
-
-    Reader sr;
-    if (status > 299) {
-      sr = new InputStreamReader(con.getErrorStream(), StandardCharsets.UTF_8);
-    } else {
-      sr = new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8);
-    }
+    return con;
+  }
 
-    return TrustlyStreamUtils.readerToString(sr);
+  private static InputStream getResponseStream(HttpURLConnection con) throws IOException {
+    return (con.getResponseCode() > 299) ? con.getErrorStream() : con.getInputStream();
   }
 }
@@ -0,0 +1,95 @@
+package com.trustly.api.util;
+
+/**
+ * A reusable view of a range of a char array, so text can be looked at without creating a {@link String} for it.
+ * <p>
+ * The view is only valid until its owner points it somewhere else, so use {@link #toString()} to keep the text.
+ */
+public final class CharSlice implements CharSequence {
+
+  private char[] chars;
+  private int offset;
+  private int length;
+
+  public CharSlice() {
+    this(new char[0], 0, 0);
+  }
+
+  public CharSlice(char[] chars, int offset, int length) {
+    this.set(chars, offset, length);
+  }
+
+  public CharSlice set(char[] chars, int offset, int length) {
+    this.chars = chars;
+    this.offset = offset;
+    this.length = length;
+    return this;
+  }
+
+  public char[] getChars() {
+    return this.chars;
+  }
+
+  public int getOffset() {
+    return this.offset;
+  }
+
+  @Override
+  public int length() {
+    return this.length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= this.length) {
+      throw new IndexOutOfBoundsException(String.format("Index %d is outside of the slice of length %d", index, this.length));
+    }
+
+    return this.chars[this.offset + index];
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > this.length || start > end) {
+      throw new IndexOutOfBoundsException(String.format("Range %d-%d is outside of the slice of length %d", start, end, this.length));
+    }
+
+    return new String(this.chars, this.offset + start, end - start);
+  }
+
+  public boolean isEmpty() {
+    return this.length == 0;
+  }
+
+  /**
+   * @return If the slice is empty or only contains whitespace.
+   */
+  public boolean isBlank() {
+    for (int i = 0; i < this.length; i++) {
+      if (!Character.isWhitespace(this.chars[this.offset + i])) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  public boolean contentEquals(CharSequence other) {
+    if (other.length() != this.length) {
+      return false;
+    }
+
+    for (int i = 0; i < this.length; i++) {
+      if (this.chars[this.offset + i] != other.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return new String(this.chars, this.offset, this.length);
+  }
+}
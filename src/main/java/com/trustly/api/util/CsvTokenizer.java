@@ -0,0 +1,244 @@
+package com.trustly.api.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Splits CSV text into records and fields in a single pass, following RFC 4180 quoting, where a quote inside a quoted field is written
+ * as two quotes ({@code ""}).
+ * <p>
+ * Fields are given to a {@link FieldHandler} as a {@link CharSlice} that points straight into the buffer, so no {@link String} is created
+ * unless the handler asks for one. Only a field with escaped quotes in it needs to be copied, into a scratch buffer that is reused.
+ * <p>
+ * Line breaks inside quotes are part of the field, carriage returns outside of quotes are ignored, and empty lines are skipped.
+ */
+public class CsvTokenizer {
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  public interface FieldHandler {
+
+    /**
+     * @param column The zero-based index of the field in its record
+     * @param value  The value of the field, with any quoting removed, which is only valid during this call
+     */
+    void field(int column, CharSlice value);
+
+    /**
+     * Called after the last field of each record.
+     *
+     * @param fieldCount The number of fields in the record
+     */
+    void endRecord(int fieldCount);
+  }
+
+  private final Reader reader;
+
+  private char[] buffer;
+  private int position;
+  private int limit;
+
+  // The value of the current field is kept as a range of the buffer for as long as it is contiguous, and only copied to the scratch
+  // buffer if it is not. These are moved along with the field when the buffer is compacted.
+  private int fieldStart;
+  private int valueStart;
+  private int valueEnd;
+
+  private final CharSlice slice = new CharSlice();
+  private char[] scratch = new char[64];
+  private int scratchLength;
+
+  /**
+   * Tokenizes the text from the reader, which is read through a buffer that only grows if a single field does not fit in it.
+   */
+  public CsvTokenizer(Reader reader) {
+    this.reader = reader;
+    this.buffer = new char[DEFAULT_BUFFER_SIZE];
+  }
+
+  /**
+   * Tokenizes the given range of the array directly, without copying it. The array is not modified.
+   */
+  public CsvTokenizer(char[] chars, int start, int end) {
+    this.reader = null;
+    this.buffer = chars;
+    this.position = start;
+    this.limit = end;
+  }
+
+  /**
+   * @return The index in the array directly after the last record that was read, when tokenizing an array.
+   */
+  public int getPosition() {
+    return this.position;
+  }
+
+  /**
+   * Reads the next non-empty record, giving each of its fields to the handler.
+   *
+   * @return False if there were no more records
+   */
+  public boolean nextRecord(FieldHandler handler) throws IOException {
+
+    // Skip empty lines between records.
+    while (true) {
+      this.fieldStart = this.position;
+      if (this.position == this.limit && !this.fill()) {
+        return false;
+      }
+
+      char c = this.buffer[this.position];
+      if (c != '\n' && c != '\r') {
+        break;
+      }
+
+      this.position++;
+    }
+
+    int column = 0;
+    while (true) {
+      boolean endOfRecord = this.readField();
+      handler.field(column++, this.slice);
+      if (endOfRecord) {
+        handler.endRecord(column);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Reads one field into the slice.
+   *
+   * @return True if the field was the last one of its record
+   */
+  private boolean readField() throws IOException {
+
+    this.fieldStart = this.position;
+    this.valueStart = -1;
+    this.valueEnd = -1;
+    this.scratchLength = -1;
+
+    boolean insideQuote = false;
+    while (true) {
+
+      if (this.position == this.limit && !this.fill()) {
+        this.setSlice();
+        return true;
+      }
+
+      int index = this.position++;
+      char c = this.buffer[index];
+
+      if (insideQuote) {
+        if (c == '"') {
+          if (this.position == this.limit && !this.fill()) {
+            this.setSlice();
+            return true;
+          }
+
+          if (this.buffer[this.position] != '"') {
+            insideQuote = false;
+            continue;
+          }
+
+          // An escaped quote, of which only the second one is part of the value.
+          index = this.position++;
+        }
+      } else if (c == '"') {
+        insideQuote = true;
+        continue;
+      } else if (c == ',') {
+        this.setSlice();
+        return false;
+      } else if (c == '\n') {
+        this.setSlice();
+        return true;
+      } else if (c == '\r') {
+        continue;
+      }
+
+      this.appendValue(index);
+    }
+  }
+
+  private void appendValue(int index) {
+    if (this.scratchLength >= 0) {
+      this.appendScratch(this.buffer[index]);
+    } else if (this.valueStart < 0) {
+      this.valueStart = index;
+      this.valueEnd = index + 1;
+    } else if (index == this.valueEnd) {
+      this.valueEnd++;
+    } else {
+      int length = this.valueEnd - this.valueStart;
+      this.ensureScratch(length + 1);
+      System.arraycopy(this.buffer, this.valueStart, this.scratch, 0, length);
+      this.scratchLength = length;
+      this.appendScratch(this.buffer[index]);
+    }
+  }
+
+  private void appendScratch(char c) {
+    this.ensureScratch(this.scratchLength + 1);
+    this.scratch[this.scratchLength++] = c;
+  }
+
+  private void ensureScratch(int capacity) {
+    if (capacity > this.scratch.length) {
+      this.scratch = Arrays.copyOf(this.scratch, Math.max(capacity, this.scratch.length * 2));
+    }
+  }
+
+  private void setSlice() {
+    if (this.scratchLength >= 0) {
+      this.slice.set(this.scratch, 0, this.scratchLength);
+    } else if (this.valueStart >= 0) {
+      this.slice.set(this.buffer, this.valueStart, this.valueEnd - this.valueStart);
+    } else {
+      this.slice.set(this.buffer, 0, 0);
+    }
+  }
+
+  /**
+   * Reads more chars into the buffer, keeping everything from the start of the current field, which is moved to the start of the buffer.
+   *
+   * @return False if there was nothing more to read
+   */
+  private boolean fill() throws IOException {
+
+    if (this.reader == null) {
+      return false;
+    }
+
+    int shift = this.fieldStart;
+    int kept = this.limit - shift;
+    if (shift > 0) {
+      System.arraycopy(this.buffer, shift, this.buffer, 0, kept);
+      this.position -= shift;
+      this.fieldStart = 0;
+      if (this.valueStart >= 0) {
+        this.valueStart -= shift;
+        this.valueEnd -= shift;
+      }
+    }
+
+    if (kept == this.buffer.length) {
+      this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+    }
+
+    this.limit = kept;
+
+    int read;
+    do {
+      read = this.reader.read(this.buffer, kept, this.buffer.length - kept);
+    } while (read == 0);
+
+    if (read < 0) {
+      return false;
+    }
+
+    this.limit += read;
+    return true;
+  }
+}
@@ -0,0 +1,135 @@
+package com.trustly.api.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 file by memory-mapping it and decoding the mapped bytes straight into the caller's char buffer. The file is never copied
+ * into the Java heap as bytes, so reading it costs page cache rather than garbage.
+ * <p>
+ * The file is mapped one window at a time, so files larger than 2 GiB can be read as well. Malformed UTF-8 is reported as a
+ * {@link CharacterCodingException}.
+ */
+public class MappedFileReader extends Reader {
+
+  private static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+  // The longest UTF-8 sequence, which may be split between two windows.
+  private static final int MAX_SEQUENCE_LENGTH = 4;
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final long windowSize;
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+    .onMalformedInput(CodingErrorAction.REPORT)
+    .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+  private MappedByteBuffer window;
+  private long windowStart;
+  private boolean flushed;
+
+  // The second half of a surrogate pair, when only one char was asked for.
+  private final CharBuffer pair = CharBuffer.allocate(2);
+  private boolean hasPendingChar;
+
+  public MappedFileReader(Path path) throws IOException {
+    this(path, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * @param windowSize The number of bytes to map at a time
+   */
+  public MappedFileReader(Path path, long windowSize) throws IOException {
+
+    if (windowSize < MAX_SEQUENCE_LENGTH) {
+      throw new IllegalArgumentException("The window must be able to hold at least one UTF-8 sequence");
+    }
+
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.fileSize = this.channel.size();
+    this.windowSize = windowSize;
+    try {
+      this.map(0);
+    } catch (IOException | RuntimeException ex) {
+      this.channel.close();
+      throw ex;
+    }
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+
+    if (len == 0) {
+      return 0;
+    }
+
+    if (this.hasPendingChar) {
+      cbuf[off] = this.pair.get();
+      this.hasPendingChar = false;
+      return 1;
+    }
+
+    if (this.flushed) {
+      return -1;
+    }
+
+    CharBuffer target = CharBuffer.wrap(cbuf, off, len);
+    while (target.position() == off) {
+
+      long windowEnd = this.windowStart + this.window.limit();
+      boolean lastWindow = windowEnd == this.fileSize;
+
+      if (!lastWindow && this.window.remaining() < MAX_SEQUENCE_LENGTH) {
+        // What is left might be the start of a sequence that continues in the next window.
+        this.map(this.windowStart + this.window.position());
+        continue;
+      }
+
+      CoderResult result = this.decoder.decode(this.window, target, lastWindow);
+      if (result.isError()) {
+        result.throwException();
+      }
+
+      if (result.isOverflow() && target.position() == off) {
+        // A surrogate pair does not fit in a single char, so the second half is kept for the next read.
+        this.pair.clear();
+        this.decoder.decode(this.window, this.pair, lastWindow);
+        this.pair.flip();
+        cbuf[off] = this.pair.get();
+        this.hasPendingChar = true;
+        return 1;
+      }
+
+      if (lastWindow && !this.window.hasRemaining() && target.position() == off) {
+        this.decoder.flush(target);
+        this.flushed = true;
+        return (target.position() == off) ? -1 : target.position() - off;
+      }
+    }
+
+    return target.position() - off;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.window = null;
+    this.channel.close();
+  }
+
+  private void map(long position) throws IOException {
+    long size = Math.min(this.windowSize, this.fileSize - position);
+    this.window = this.channel.map(MapMode.READ_ONLY, position, size);
+    this.windowStart = position;
+  }
+}
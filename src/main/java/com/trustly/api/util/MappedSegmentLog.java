@@ -0,0 +1,413 @@
+package com.trustly.api.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of length-prefixed and checksummed records, stored in fixed size memory-mapped segment files.
+ * <p>
+ * Each record is written as its payload length, a CRC32 of the payload and then the payload itself. When the log is opened, the last
+ * segment is scanned and anything after the last complete record (for example a record torn by a crash) is discarded.
+ * <p>
+ * Positions given by this log are opaque values, which can be given back to {@link MappedSegmentLog#read} to continue reading after a
+ * certain record. Appending is thread-safe, and reading can be done concurrently with appending.
+ */
+public class MappedSegmentLog implements Closeable {
+
+  public enum FsyncPolicy {
+
+    /**
+     * Every appended record is forced to the storage device before {@link MappedSegmentLog#append} returns.
+     */
+    ALWAYS,
+
+    /**
+     * Appended records are forced to the storage device at most once per configured interval, and when the log is closed.
+     */
+    INTERVAL,
+
+    /**
+     * Appended records are never explicitly forced, and it is up to the operating system to write back the mapped pages.
+     */
+    NEVER
+  }
+
+  @FunctionalInterface
+  public interface RecordHandler {
+
+    /**
+     * @param position     The position of the record, which can be used to read the log again starting from this record
+     * @param nextPosition The position directly after the record, which can be used to continue reading after this record
+     * @param record       A copy of the payload of the record
+     */
+    void handle(long position, long nextPosition, byte[] record) throws Exception;
+  }
+
+  public static final long FIRST_POSITION = 0L;
+
+  private static final int HEADER_SIZE = 8;
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Path directory;
+  private final int segmentSize;
+  private final FsyncPolicy fsyncPolicy;
+  private final long fsyncIntervalMillis;
+
+  private final List<Segment> segments = new ArrayList<>();
+  private int firstSegmentIndex;
+
+  private volatile long endPosition;
+  private long lastForceMillis;
+  private boolean closed;
+
+  public MappedSegmentLog(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+
+    if (segmentSize <= HEADER_SIZE) {
+      throw new IllegalArgumentException(String.format("The segment size must be larger than %d bytes", HEADER_SIZE));
+    }
+
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.fsyncPolicy = fsyncPolicy;
+    this.fsyncIntervalMillis = fsyncIntervalMillis;
+
+    Files.createDirectories(directory);
+
+    List<Integer> segmentIndexes = this.findSegmentIndexes();
+    if (segmentIndexes.isEmpty()) {
+      this.firstSegmentIndex = 0;
+      this.segments.add(this.mapSegment(0));
+      this.endPosition = FIRST_POSITION;
+    } else {
+      this.firstSegmentIndex = segmentIndexes.get(0);
+      for (int i = 0; i < segmentIndexes.size(); i++) {
+        if (segmentIndexes.get(i) != this.firstSegmentIndex + i) {
+          throw new IOException(String.format("Segment %d is missing from %s", this.firstSegmentIndex + i, directory));
+        }
+
+        this.segments.add(this.mapSegment(segmentIndexes.get(i)));
+      }
+
+      this.endPosition = this.recoverEndPosition();
+    }
+
+    this.lastForceMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * @return The position directly after the last appended record, which is where the next appended record will be placed.
+   */
+  public long getEndPosition() {
+    return this.endPosition;
+  }
+
+  /**
+   * @return The position of the oldest record still available in the log.
+   */
+  public synchronized long getStartPosition() {
+    return toPosition(this.firstSegmentIndex, 0);
+  }
+
+  public int getMaxRecordSize() {
+    return this.segmentSize - HEADER_SIZE;
+  }
+
+  /**
+   * Appends a record to the end of the log, forcing it to disk according to the configured {@link FsyncPolicy}.
+   *
+   * @return The position of the appended record
+   */
+  public synchronized long append(byte[] data, int offset, int length) throws IOException {
+
+    if (this.closed) {
+      throw new IOException("The log has been closed");
+    }
+
+    if (length <= 0 || length > this.getMaxRecordSize()) {
+      throw new IllegalArgumentException(
+        String.format("Record length must be between 1 and %d bytes, but was %d", this.getMaxRecordSize(), length)
+      );
+    }
+
+    int segmentIndex = segmentOf(this.endPosition);
+    int segmentOffset = offsetOf(this.endPosition);
+
+    if (segmentOffset + HEADER_SIZE + length > this.segmentSize) {
+
+      // A zero length marks the end of the segment for readers, who will then continue with the next segment.
+      MappedByteBuffer current = this.segments.get(this.segments.size() - 1).buffer;
+      if (segmentOffset + 4 <= this.segmentSize) {
+        current.putInt(segmentOffset, 0);
+      }
+
+      this.force(current);
+
+      segmentIndex++;
+      segmentOffset = 0;
+      this.segments.add(this.mapSegment(segmentIndex));
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(data, offset, length);
+
+    ByteBuffer segment = this.segments.get(segmentIndex - this.firstSegmentIndex).buffer.duplicate();
+    segment.position(segmentOffset + HEADER_SIZE);
+    segment.put(data, offset, length);
+    segment.putInt(segmentOffset + 4, (int) crc.getValue());
+
+    // The length is written last, so a concurrent reader never sees a length for a record that is not yet fully written.
+    segment.putInt(segmentOffset, length);
+
+    long position = toPosition(segmentIndex, segmentOffset);
+    this.endPosition = toPosition(segmentIndex, segmentOffset + HEADER_SIZE + length);
+
+    if (this.fsyncPolicy == FsyncPolicy.ALWAYS) {
+      this.force(this.segments.get(segmentIndex - this.firstSegmentIndex).buffer);
+    } else if (this.fsyncPolicy == FsyncPolicy.INTERVAL) {
+      long now = System.currentTimeMillis();
+      if (now - this.lastForceMillis >= this.fsyncIntervalMillis) {
+        this.force(this.segments.get(segmentIndex - this.firstSegmentIndex).buffer);
+        this.lastForceMillis = now;
+      }
+    }
+
+    return position;
+  }
+
+  /**
+   * Reads records starting at the given position.
+   * <p>
+   * If the handler throws an exception, reading stops and the exception is rethrown. To resume reading after the last successfully
+   * handled record, the handler should itself keep track of the {@code nextPosition} it was given.
+   *
+   * @param position   Where to start reading, either {@link MappedSegmentLog#FIRST_POSITION} or a position returned by this log
+   * @param maxRecords The maximum number of records to read
+   * @param handler    The handler that will receive each record
+   * @return The position after the last successfully handled record
+   */
+  public long read(long position, int maxRecords, RecordHandler handler) throws Exception {
+
+    long current = Math.max(position, this.getStartPosition());
+    for (int read = 0; read < maxRecords; read++) {
+
+      long end = this.endPosition;
+      if (current >= end) {
+        break;
+      }
+
+      int segmentIndex = segmentOf(current);
+      int segmentOffset = offsetOf(current);
+      Segment segment = this.acquireSegment(segmentIndex);
+      if (segment == null) {
+
+        // The segment was deleted while we were reading, so we continue with the oldest one that is left.
+        current = Math.max(current, this.getStartPosition());
+        read--;
+        continue;
+      }
+
+      byte[] record;
+      try {
+        int length = (segmentOffset + HEADER_SIZE <= this.segmentSize) ? segment.buffer.getInt(segmentOffset) : 0;
+        if (length == 0) {
+
+          // There are no more records in this segment, so we continue with the next one.
+          current = toPosition(segmentIndex + 1, 0);
+          read--;
+          continue;
+        }
+
+        record = new byte[length];
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(segmentOffset + HEADER_SIZE);
+        buffer.get(record);
+      } finally {
+        this.releaseSegment(segment);
+      }
+
+      long next = toPosition(segmentIndex, segmentOffset + HEADER_SIZE + record.length);
+      handler.handle(current, next, record);
+
+      current = next;
+    }
+
+    return current;
+  }
+
+  /**
+   * Deletes all segments that only contain records before the given position, to reclaim disk space for records that have been handled.
+   * <p>
+   * A segment that is being read right now is removed from the log directly, but its file is only deleted once the last reader is done
+   * with it.
+   */
+  public synchronized void deleteBefore(long position) throws IOException {
+
+    int segmentIndex = segmentOf(position);
+    while (this.firstSegmentIndex < segmentIndex && this.segments.size() > 1) {
+      Segment segment = this.segments.remove(0);
+      segment.removed = true;
+      if (segment.readers == 0) {
+        Files.deleteIfExists(this.getSegmentPath(segment.index));
+      }
+
+      this.firstSegmentIndex++;
+    }
+  }
+
+  /**
+   * Forces all appended records to the storage device.
+   */
+  public synchronized void flush() {
+    for (Segment segment : this.segments) {
+      this.force(segment.buffer);
+    }
+
+    this.lastForceMillis = System.currentTimeMillis();
+  }
+
+  @Override
+  public synchronized void close() {
+
+    if (this.closed) {
+      return;
+    }
+
+    if (this.fsyncPolicy != FsyncPolicy.NEVER) {
+      this.flush();
+    }
+
+    this.closed = true;
+  }
+
+  /**
+   * @return The segment, which must be given to {@link MappedSegmentLog#releaseSegment} when done with it, or null if it has been deleted.
+   */
+  private synchronized Segment acquireSegment(int segmentIndex) {
+
+    if (segmentIndex < this.firstSegmentIndex) {
+      return null;
+    }
+
+    Segment segment = this.segments.get(segmentIndex - this.firstSegmentIndex);
+    segment.readers++;
+    return segment;
+  }
+
+  private synchronized void releaseSegment(Segment segment) throws IOException {
+    segment.readers--;
+    if (segment.removed && segment.readers == 0) {
+      Files.deleteIfExists(this.getSegmentPath(segment.index));
+    }
+  }
+
+  private void force(MappedByteBuffer segment) {
+    if (this.fsyncPolicy != FsyncPolicy.NEVER) {
+      segment.force();
+    }
+  }
+
+  private long recoverEndPosition() {
+
+    int segmentIndex = this.firstSegmentIndex + this.segments.size() - 1;
+    ByteBuffer segment = this.segments.get(this.segments.size() - 1).buffer.duplicate();
+
+    int offset = 0;
+    while (offset + HEADER_SIZE <= this.segmentSize) {
+
+      int length = segment.getInt(offset);
+      if (length <= 0 || offset + HEADER_SIZE + length > this.segmentSize) {
+        break;
+      }
+
+      CRC32 crc = new CRC32();
+      ByteBuffer payload = segment.duplicate();
+      payload.position(offset + HEADER_SIZE);
+      payload.limit(offset + HEADER_SIZE + length);
+      crc.update(payload);
+
+      if ((int) crc.getValue() != segment.getInt(offset + 4)) {
+        break;
+      }
+
+      offset += HEADER_SIZE + length;
+    }
+
+    // Clear the header after the last complete record, so a torn record can never be mistaken for a valid one.
+    if (offset + 4 <= this.segmentSize) {
+      segment.putInt(offset, 0);
+    }
+
+    return toPosition(segmentIndex, offset);
+  }
+
+  private List<Integer> findSegmentIndexes() throws IOException {
+
+    List<Integer> indexes = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        String fileName = path.getFileName().toString();
+        try {
+          indexes.add(Integer.parseInt(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())));
+        } catch (NumberFormatException ignored) {
+          // Not one of our segment files, so we leave it alone.
+        }
+      }
+    }
+
+    Collections.sort(indexes);
+    return indexes;
+  }
+
+  private Segment mapSegment(int segmentIndex) throws IOException {
+    try (FileChannel channel = FileChannel.open(
+      this.getSegmentPath(segmentIndex),
+      StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+    )) {
+      return new Segment(segmentIndex, channel.map(MapMode.READ_WRITE, 0, this.segmentSize));
+    }
+  }
+
+  private Path getSegmentPath(int segmentIndex) {
+    return this.directory.resolve(String.format(Locale.ROOT, "%010d%s", segmentIndex, SEGMENT_SUFFIX));
+  }
+
+  private static long toPosition(int segmentIndex, int segmentOffset) {
+    return ((long) segmentIndex << 32) | (segmentOffset & 0xFFFFFFFFL);
+  }
+
+  private static int segmentOf(long position) {
+    return (int) (position >>> 32);
+  }
+
+  private static int offsetOf(long position) {
+    return (int) position;
+  }
+
+  private static final class Segment {
+
+    private final int index;
+    private final MappedByteBuffer buffer;
+
+    // Guarded by the lock of the log.
+    private int readers;
+    private boolean removed;
+
+    private Segment(int index, MappedByteBuffer buffer) {
+      this.index = index;
+      this.buffer = buffer;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.trustly.api.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A growable byte buffer that is meant to be reused, for example from a {@link Pool}, so reading a body does not need to allocate new
+ * buffers every time.
+ * <p>
+ * The bytes are only valid until the next time the buffer is filled or released.
+ */
+public class ReusableByteBuffer {
+
+  private static final int INITIAL_SIZE = 4096;
+
+  private final int maxRetainedSize;
+
+  private byte[] bytes = new byte[INITIAL_SIZE];
+  private int length;
+
+  /**
+   * @param maxRetainedSize If the buffer has grown larger than this, it is shrunk again when released
+   */
+  public ReusableByteBuffer(int maxRetainedSize) {
+    this.maxRetainedSize = maxRetainedSize;
+  }
+
+  /**
+   * Replaces the content of the buffer with everything from the stream, without closing it.
+   *
+   * @param maxLength The maximum number of bytes to read. If the stream contains more than this, an {@link IOException} is thrown.
+   */
+  public void readFrom(InputStream in, int maxLength) throws IOException {
+
+    this.length = 0;
+    while (true) {
+
+      // The buffer can already be larger than the max length, from an earlier and longer read.
+      int limit = Math.min(this.bytes.length, maxLength);
+      if (this.length >= limit) {
+        if (this.length >= maxLength) {
+          if (in.read() == -1) {
+            return;
+          }
+
+          throw new IOException(String.format("The stream contains more than the allowed %d bytes", maxLength));
+        }
+
+        this.bytes = Arrays.copyOf(this.bytes, (int) Math.min((long) this.bytes.length * 2, maxLength));
+      }
+
+      int read = in.read(this.bytes, this.length, Math.min(this.bytes.length, maxLength) - this.length);
+      if (read == -1) {
+        return;
+      }
+
+      this.length += read;
+    }
+  }
+
+  public byte[] getBytes() {
+    return this.bytes;
+  }
+
+  public int getLength() {
+    return this.length;
+  }
+
+  public String toString(Charset charset) {
+    return new String(this.bytes, 0, this.length, charset);
+  }
+
+  /**
+   * Empties the buffer, and shrinks it if it has grown larger than the max retained size.
+   */
+  public void release() {
+    this.length = 0;
+    if (this.bytes.length > this.maxRetainedSize) {
+      this.bytes = new byte[INITIAL_SIZE];
+    }
+  }
+
+  /**
+   * A bounded pool of buffers that are shared by all threads.
+   * <p>
+   * Unlike a buffer per thread, this does not keep a buffer alive for every pooled thread of a servlet container, and does not keep the
+   * class loader alive after a redeploy through thread locals. At most {@code maxPooled} buffers of at most {@code maxRetainedSize} bytes
+   * are kept; any more are left to the garbage collector.
+   */
+  public static class Pool {
+
+    private final BlockingQueue<ReusableByteBuffer> buffers;
+    private final int maxRetainedSize;
+
+    public Pool(int maxPooled, int maxRetainedSize) {
+      this.buffers = new ArrayBlockingQueue<>(maxPooled);
+      this.maxRetainedSize = maxRetainedSize;
+    }
+
+    /**
+     * @return An empty buffer, which should be given back with {@link Pool#release(ReusableByteBuffer)} when done with it.
+     */
+    public ReusableByteBuffer acquire() {
+      ReusableByteBuffer buffer = this.buffers.poll();
+      return (buffer != null) ? buffer : new ReusableByteBuffer(this.maxRetainedSize);
+    }
+
+    public void release(ReusableByteBuffer buffer) {
+      buffer.release();
+      this.buffers.offer(buffer);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.trustly.api.util;
+
+import java.util.Arrays;
+
+/**
+ * Gives each distinct string a small integer code, in the order they are first seen. Lookups are done on the characters of any
+ * {@link CharSequence}, so a {@link String} is only created the first time a value is seen.
+ * <p>
+ * This is not thread-safe, and is meant to be used for a single parse at a time.
+ */
+public class StringDictionary {
+
+  private String[] values = new String[16];
+  private int[] hashes = new int[16];
+  private int size;
+
+  // Open addressing table of code + 1, where 0 means an empty slot.
+  private int[] table = new int[32];
+
+  /**
+   * @return The code of the value, which is added to the dictionary if it was not already in it.
+   */
+  public int codeOf(CharSequence value) {
+
+    int hash = hash(value);
+    int mask = this.table.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int entry = this.table[slot];
+      if (entry == 0) {
+        return this.add(slot, hash, value);
+      }
+
+      int code = entry - 1;
+      if (this.hashes[code] == hash && contentEquals(this.values[code], value)) {
+        return code;
+      }
+    }
+  }
+
+  /**
+   * @return The single shared instance of the value.
+   */
+  public String intern(CharSequence value) {
+    // The code is taken first, since adding the value may replace the array.
+    int code = this.codeOf(value);
+    return this.values[code];
+  }
+
+  public String get(int code) {
+    if (code < 0 || code >= this.size) {
+      throw new IndexOutOfBoundsException(String.format("There is no value with code %d", code));
+    }
+
+    return this.values[code];
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * @return The values, where the index of each value is its code.
+   */
+  public String[] toArray() {
+    return Arrays.copyOf(this.values, this.size);
+  }
+
+  private int add(int slot, int hash, CharSequence value) {
+
+    if (this.size == this.values.length) {
+      this.values = Arrays.copyOf(this.values, this.size * 2);
+      this.hashes = Arrays.copyOf(this.hashes, this.size * 2);
+    }
+
+    int code = this.size++;
+    this.values[code] = value.toString();
+    this.hashes[code] = hash;
+    this.table[slot] = code + 1;
+
+    // Keep the table at most half full, so probe sequences stay short.
+    if (this.size * 2 > this.table.length) {
+      this.rehash();
+    }
+
+    return code;
+  }
+
+  private void rehash() {
+    this.table = new int[this.table.length * 2];
+    int mask = this.table.length - 1;
+    for (int code = 0; code < this.size; code++) {
+      int slot = this.hashes[code] & mask;
+      while (this.table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+
+      this.table[slot] = code + 1;
+    }
+  }
+
+  private static int hash(CharSequence value) {
+    int hash = 0;
+    for (int i = 0; i < value.length(); i++) {
+      hash = 31 * hash + value.charAt(i);
+    }
+
+    // Spread the high bits, since only the low bits are used for the slot.
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean contentEquals(String a, CharSequence b) {
+    if (a.length() != b.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < a.length(); i++) {
+      if (a.charAt(i) != b.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,195 @@
+package com.trustly.api.util;
+
+import java.time.Instant;
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class TrustlyDateUtils {
+
+  /**
+   * Returned by {@link #parseEpochNanos(CharSequence)} if the text is not in the expected layout.
+   */
+  public static final long NOT_PARSED = Long.MIN_VALUE;
+
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  private static final int SECONDS_PER_DAY = 86_400;
+  private static final int DAYS_0000_TO_1970 = 719_528;
+
+  // The range of years for which the epoch nanos fit in a long, with some margin.
+  private static final int MIN_YEAR = 1678;
+  private static final int MAX_YEAR = 2261;
+
+  /**
+   * Parses a timestamp in the layout that Trustly uses, such as {@code 2014-03-31 11:50:06.46106+00}, directly from the characters.
+   * <p>
+   * The date and time can be separated by a space or a {@code T}, the fraction of a second is optional and can have up to nine digits, and
+   * the offset can be {@code Z}, {@code +HH}, {@code +HHMM} or {@code +HH:MM}.
+   *
+   * @return The parsed instant, or null if the text is not in this layout, in which case a {@link java.time.format.DateTimeFormatter} can
+   *   be tried instead.
+   */
+  public static Instant parseInstant(CharSequence text) {
+
+    long epochNanos = parseEpochNanos(text);
+    if (epochNanos == NOT_PARSED) {
+      return null;
+    }
+
+    return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+  }
+
+  /**
+   * The same as {@link #parseInstant(CharSequence)}, but gives the nanoseconds since the epoch, without creating an {@link Instant}.
+   *
+   * @return The nanoseconds since the epoch, or {@link #NOT_PARSED} if the text is not in the expected layout.
+   */
+  public static long parseEpochNanos(CharSequence text) {
+
+    int length = text.length();
+    if (length < 20
+      || text.charAt(4) != '-' || text.charAt(7) != '-'
+      || (text.charAt(10) != ' ' && text.charAt(10) != 'T')
+      || text.charAt(13) != ':' || text.charAt(16) != ':') {
+      return NOT_PARSED;
+    }
+
+    int year = digits(text, 0, 4);
+    int month = digits(text, 5, 2);
+    int day = digits(text, 8, 2);
+    int hour = digits(text, 11, 2);
+    int minute = digits(text, 14, 2);
+    int second = digits(text, 17, 2);
+
+    if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+      || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+      return NOT_PARSED;
+    }
+
+    int index = 19;
+    long nanos = 0;
+    if (text.charAt(index) == '.') {
+      index++;
+      int fractionDigits = 0;
+      while (index < length && isDigit(text.charAt(index))) {
+        if (++fractionDigits > 9) {
+          return NOT_PARSED;
+        }
+
+        nanos = nanos * 10 + (text.charAt(index++) - '0');
+      }
+
+      if (fractionDigits == 0) {
+        return NOT_PARSED;
+      }
+
+      for (int i = fractionDigits; i < 9; i++) {
+        nanos *= 10;
+      }
+    }
+
+    if (index >= length) {
+      return NOT_PARSED;
+    }
+
+    int offsetSeconds;
+    char sign = text.charAt(index);
+    if (sign == 'Z' || sign == 'z') {
+      if (index + 1 != length) {
+        return NOT_PARSED;
+      }
+
+      offsetSeconds = 0;
+    } else if (sign == '+' || sign == '-') {
+      int remaining = length - index - 1;
+      int offsetHours;
+      int offsetMinutes = 0;
+      if (remaining == 2) {
+        offsetHours = digits(text, index + 1, 2);
+      } else if (remaining == 4) {
+        offsetHours = digits(text, index + 1, 2);
+        offsetMinutes = digits(text, index + 3, 2);
+      } else if (remaining == 5 && text.charAt(index + 3) == ':') {
+        offsetHours = digits(text, index + 1, 2);
+        offsetMinutes = digits(text, index + 4, 2);
+      } else {
+        return NOT_PARSED;
+      }
+
+      if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+        return NOT_PARSED;
+      }
+
+      offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (sign == '-' ? -1 : 1);
+    } else {
+      return NOT_PARSED;
+    }
+
+    long epochSecond = toEpochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second - offsetSeconds;
+    return epochSecond * NANOS_PER_SECOND + nanos;
+  }
+
+  /**
+   * The same as {@link #parseEpochNanos(CharSequence)}, but gives the microseconds since the epoch, which is the precision of the
+   * timestamps that Trustly gives.
+   *
+   * @return The microseconds since the epoch, or {@link #NOT_PARSED} if the text is not in the expected layout.
+   */
+  public static long parseEpochMicros(CharSequence text) {
+    long epochNanos = parseEpochNanos(text);
+    return (epochNanos == NOT_PARSED) ? NOT_PARSED : Math.floorDiv(epochNanos, 1_000L);
+  }
+
+  /**
+   * @return The value of the digits, or -1 if any of them is not a digit.
+   */
+  private static int digits(CharSequence text, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      char c = text.charAt(i);
+      if (!isDigit(c)) {
+        return -1;
+      }
+
+      value = value * 10 + (c - '0');
+    }
+
+    return value;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static int daysInMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return ((year % 4 == 0 && year % 100 != 0) || year % 400 == 0) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * The same calculation as {@link java.time.LocalDate#toEpochDay()}, without creating a date.
+   */
+  private static long toEpochDay(int year, int month, int day) {
+    long y = year;
+    long total = 365 * y;
+    total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+    total += (367 * month - 362) / 12;
+    total += day - 1;
+    if (month > 2) {
+      total--;
+      if (!(((year % 4 == 0 && year % 100 != 0) || year % 400 == 0))) {
+        total--;
+      }
+    }
+
+    return total - DAYS_0000_TO_1970;
+  }
+}
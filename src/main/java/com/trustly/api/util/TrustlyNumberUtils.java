@@ -0,0 +1,140 @@
+package com.trustly.api.util;
+
+import java.math.BigDecimal;
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class TrustlyNumberUtils {
+
+  /**
+   * The scale of amounts given as unscaled longs, which are in millionths of the currency unit. This leaves room for amounts of up to
+   * about 9 trillion, and sums of millions of them.
+   */
+  public static final int AMOUNT_SCALE = 6;
+
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  // Up to this value, a long converts to a double without any rounding.
+  private static final long MAX_EXACT_DOUBLE_INTEGER = 1L << 53;
+
+  /**
+   * Parses a decimal number such as {@code -145.00} directly from the characters, without creating a {@link String}.
+   * <p>
+   * Plain decimals that fit in the precision of a double are parsed with one exact division, which gives the same result as
+   * {@link Double#parseDouble(String)}. Anything else, such as exponents, falls back to {@link Double#parseDouble(String)}.
+   *
+   * @throws NumberFormatException If the text is not a number
+   */
+  public static double parseDouble(CharSequence text) {
+
+    int length = text.length();
+    int index = 0;
+    boolean negative = false;
+
+    if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+      negative = text.charAt(0) == '-';
+      index++;
+    }
+
+    long unscaled = 0;
+    int scale = -1;
+    int digits = 0;
+    for (; index < length; index++) {
+      char c = text.charAt(index);
+      if (c >= '0' && c <= '9') {
+        unscaled = unscaled * 10 + (c - '0');
+        if (unscaled >= MAX_EXACT_DOUBLE_INTEGER) {
+          return Double.parseDouble(text.toString());
+        }
+
+        digits++;
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (c == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        return Double.parseDouble(text.toString());
+      }
+    }
+
+    if (digits == 0 || scale >= POWERS_OF_TEN.length) {
+      return Double.parseDouble(text.toString());
+    }
+
+    double value = (scale > 0) ? unscaled / POWERS_OF_TEN[scale] : unscaled;
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses a decimal number such as {@code -145.00} directly from the characters, into an unscaled long at the given scale. With scale 2,
+   * {@code -145.00} gives {@code -14500}.
+   * <p>
+   * Decimals beyond the scale are allowed if they are zeros, since the result is then still exact.
+   *
+   * @throws NumberFormatException If the text is not a plain decimal number
+   * @throws ArithmeticException   If the number has non-zero decimals beyond the scale, or does not fit in a long
+   */
+  public static long parseUnscaled(CharSequence text, int scale) {
+
+    int length = text.length();
+    int index = 0;
+    boolean negative = false;
+
+    if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+      negative = text.charAt(0) == '-';
+      index++;
+    }
+
+    // Accumulated as a negative number, since that has room for Long.MIN_VALUE.
+    long unscaled = 0;
+    int decimals = -1;
+    int digits = 0;
+    for (; index < length; index++) {
+      char c = text.charAt(index);
+      if (c >= '0' && c <= '9') {
+        digits++;
+        if (decimals >= 0) {
+          decimals++;
+          if (decimals > scale) {
+            if (c != '0') {
+              throw new ArithmeticException(String.format("The number '%s' has more than %d decimals", text, scale));
+            }
+
+            continue;
+          }
+        }
+
+        unscaled = Math.subtractExact(Math.multiplyExact(unscaled, 10L), c - '0');
+      } else if (c == '.' && decimals < 0) {
+        decimals = 0;
+      } else {
+        throw new NumberFormatException(String.format("The text '%s' is not a decimal number", text));
+      }
+    }
+
+    if (digits == 0) {
+      throw new NumberFormatException(String.format("The text '%s' is not a decimal number", text));
+    }
+
+    for (int i = Math.max(decimals, 0); i < scale; i++) {
+      unscaled = Math.multiplyExact(unscaled, 10L);
+    }
+
+    return negative ? unscaled : Math.negateExact(unscaled);
+  }
+
+  /**
+   * @return The unscaled value at the given scale as a double, rounded the same way as {@link Double#parseDouble(String)} would.
+   */
+  public static double unscaledToDouble(long unscaled, int scale) {
+
+    if (unscaled > -MAX_EXACT_DOUBLE_INTEGER && unscaled < MAX_EXACT_DOUBLE_INTEGER && scale >= 0 && scale < POWERS_OF_TEN.length) {
+      return unscaled / POWERS_OF_TEN[scale];
+    }
+
+    return BigDecimal.valueOf(unscaled, scale).doubleValue();
+  }
+}
@@ -1,23 +1,49 @@
 package com.trustly.api.util;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import lombok.experimental.UtilityClass;
 
 @UtilityClass
 public class TrustlyStreamUtils {
 
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * Reads everything from the reader, including any line breaks, and then closes it.
+   */
   public static String readerToString(Reader reader) throws IOException {
 
-    BufferedReader in = new BufferedReader(reader);
-    String inputLine;
-    StringBuilder sb = new StringBuilder();
-    while ((inputLine = in.readLine()) != null) {
-      sb.append(inputLine);
+    try (Reader in = reader) {
+      char[] buffer = new char[BUFFER_SIZE];
+      StringBuilder sb = new StringBuilder();
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        sb.append(buffer, 0, read);
+      }
+
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Reads everything from the stream, without closing it.
+   *
+   * @param maxBytes The maximum number of bytes to read. If the stream contains more than this, an {@link IOException} is thrown.
+   */
+  public static byte[] readAllBytes(InputStream in, int maxBytes) throws IOException {
+
+    byte[] buffer = new byte[BUFFER_SIZE];
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    for (int read; (read = in.read(buffer)) != -1; ) {
+      if (baos.size() + read > maxBytes) {
+        throw new IOException(String.format("The stream contains more than the allowed %d bytes", maxBytes));
+      }
+
+      baos.write(buffer, 0, read);
     }
-    in.close();
 
-    return sb.toString();
+    return baos.toByteArray();
   }
 }
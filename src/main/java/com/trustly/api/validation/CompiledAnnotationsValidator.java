@@ -0,0 +1,481 @@
+package com.trustly.api.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.GroupSequence;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.groups.ConvertGroup;
+import jakarta.validation.groups.Default;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.hibernate.validator.constraints.URL;
+import org.hibernate.validator.group.GroupSequenceProvider;
+
+/**
+ * Validates with a plan of the constraints of each class, which is made once from the annotations and then checked with direct accessors,
+ * instead of the reflective Bean Validation cascade over the whole request.
+ * <p>
+ * The plan only tells if an object is valid. When it is not, the object is validated again by the {@link HibernateDataAnnotationsValidator}
+ * to get the messages, so they are always the same as without the plan. Constraints that the plan does not check itself, such as
+ * {@link Email}, are checked by Hibernate for that single property, and classes that use features the plan does not know, such as
+ * class-level constraints or group sequences, are validated by Hibernate as a whole.
+ */
+public class CompiledAnnotationsValidator implements AnnotationsValidator {
+
+  private static final List<ValidationResult> EMPTY_VALIDATION_RESULTS = Collections.emptyList();
+
+  private final HibernateDataAnnotationsValidator hibernateValidator;
+
+  private final ClassValue<BeanPlan> plans = new ClassValue<BeanPlan>() {
+    @Override
+    protected BeanPlan computeValue(Class<?> type) {
+      return BeanPlan.compile(type);
+    }
+  };
+
+  public CompiledAnnotationsValidator(HibernateDataAnnotationsValidator hibernateValidator) {
+    this.hibernateValidator = hibernateValidator;
+  }
+
+  @Override
+  public <T> List<ValidationResult> validate(T obj) {
+
+    if (obj == null || new Evaluation().isValid(obj, Default.class)) {
+      return EMPTY_VALIDATION_RESULTS;
+    }
+
+    return this.hibernateValidator.validate(obj);
+  }
+
+  /**
+   * One validation of an object graph, which remembers the objects it has checked so that each object is only checked once per group.
+   */
+  private final class Evaluation {
+
+    private final Map<Object, Set<Class<?>>> checked = new IdentityHashMap<>();
+
+    boolean isValid(Object bean, Class<?> group) {
+
+      Set<Class<?>> checkedGroups = this.checked.computeIfAbsent(bean, key -> new LinkedHashSet<>());
+      if (!checkedGroups.add(group)) {
+        return true;
+      }
+
+      BeanPlan plan = CompiledAnnotationsValidator.this.plans.get(bean.getClass());
+      Validator validator = CompiledAnnotationsValidator.this.hibernateValidator.getValidator();
+      if (plan.unsupported) {
+        return validator.validate(bean, group).isEmpty();
+      }
+
+      for (PropertyPlan property : plan.properties) {
+
+        Object value;
+        try {
+          value = property.getter.invoke(bean);
+        } catch (Throwable ex) {
+          // Let Hibernate report the failing getter the way it always has.
+          return false;
+        }
+
+        if (!property.isValid(value, group, validator, bean.getClass())) {
+          return false;
+        }
+
+        if (property.cascade && value != null) {
+          if (value instanceof Iterable || value instanceof Map || value instanceof Optional || value.getClass().isArray()) {
+            // Cascading into containers depends on value extractors, which the plan leaves to Hibernate.
+            return false;
+          }
+
+          if (!this.isValid(value, property.convert(group))) {
+            return false;
+          }
+        }
+      }
+
+      return true;
+    }
+  }
+
+  /**
+   * The constrained and cascaded properties of a class, or {@link #unsupported} if Hibernate has to validate the class as a whole.
+   */
+  private static final class BeanPlan {
+
+    private final List<PropertyPlan> properties;
+    private final boolean unsupported;
+
+    private BeanPlan(List<PropertyPlan> properties, boolean unsupported) {
+      this.properties = properties;
+      this.unsupported = unsupported;
+    }
+
+    static BeanPlan compile(Class<?> type) {
+
+      List<PropertyPlan> properties = new ArrayList<>();
+      try {
+        for (Class<?> current : getHierarchy(type)) {
+
+          if (current.isAnnotationPresent(GroupSequence.class) || current.isAnnotationPresent(GroupSequenceProvider.class)) {
+            return new BeanPlan(properties, true);
+          }
+
+          for (Annotation annotation : current.getDeclaredAnnotations()) {
+            if (isConstraint(annotation)) {
+              return new BeanPlan(properties, true);
+            }
+          }
+
+          for (Field field : current.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic() && isConstrainedOrCascaded(field.getAnnotations())) {
+              field.setAccessible(true);
+              properties.add(PropertyPlan.compile(
+                type, field.getName(), field.getType(), field.getAnnotatedType(), field.getAnnotations(),
+                MethodHandles.lookup().unreflectGetter(field)
+              ));
+            }
+          }
+
+          for (Method method : current.getDeclaredMethods()) {
+            String propertyName = getPropertyName(method);
+            if (propertyName != null && isConstrainedOrCascaded(method.getAnnotations())) {
+              method.setAccessible(true);
+              properties.add(PropertyPlan.compile(
+                type, propertyName, method.getReturnType(), method.getAnnotatedReturnType(), method.getAnnotations(),
+                MethodHandles.lookup().unreflect(method)
+              ));
+            }
+          }
+        }
+      } catch (ReflectiveOperationException | RuntimeException ex) {
+        return new BeanPlan(Collections.emptyList(), true);
+      }
+
+      for (PropertyPlan property : properties) {
+        if (property.unsupported) {
+          return new BeanPlan(Collections.emptyList(), true);
+        }
+      }
+
+      return new BeanPlan(properties, false);
+    }
+
+    private static List<Class<?>> getHierarchy(Class<?> type) {
+
+      Set<Class<?>> hierarchy = new LinkedHashSet<>();
+      for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+        hierarchy.add(current);
+        addInterfaces(current, hierarchy);
+      }
+
+      return new ArrayList<>(hierarchy);
+    }
+
+    private static void addInterfaces(Class<?> type, Set<Class<?>> hierarchy) {
+      for (Class<?> anInterface : type.getInterfaces()) {
+        if (hierarchy.add(anInterface)) {
+          addInterfaces(anInterface, hierarchy);
+        }
+      }
+    }
+
+    /**
+     * @return The name of the property if the method is a getter in the way that Hibernate finds them, otherwise null.
+     */
+    private static String getPropertyName(Method method) {
+
+      if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.isSynthetic() || method.getParameterCount() > 0
+        || method.getReturnType() == void.class) {
+        return null;
+      }
+
+      String name = method.getName();
+      boolean isBoolean = method.getReturnType() == boolean.class;
+      for (String prefix : new String[]{"get", "is", "has"}) {
+        if (name.length() > prefix.length() && name.startsWith(prefix) && (isBoolean || "get".equals(prefix))) {
+          String rest = name.substring(prefix.length());
+          return Character.toLowerCase(rest.charAt(0)) + rest.substring(1);
+        }
+      }
+
+      return null;
+    }
+  }
+
+  /**
+   * The constraints of one field or getter, and how its value is cascaded.
+   */
+  private static final class PropertyPlan {
+
+    private final String name;
+    private final MethodHandle getter;
+    private final List<ConstraintCheck> checks;
+    private final Map<Class<?>, Class<?>> groupConversions;
+    private final boolean cascade;
+
+    // Checked by Hibernate, with Class<?>[] groups for when a non-null value needs it.
+    private final List<Class<?>[]> delegatedGroups;
+    private final boolean delegatedIfNull;
+
+    private final boolean unsupported;
+
+    private PropertyPlan(
+      String name,
+      MethodHandle getter,
+      List<ConstraintCheck> checks,
+      Map<Class<?>, Class<?>> groupConversions,
+      boolean cascade,
+      List<Class<?>[]> delegatedGroups,
+      boolean delegatedIfNull,
+      boolean unsupported
+    ) {
+      this.name = name;
+      this.getter = getter;
+      this.checks = checks;
+      this.groupConversions = groupConversions;
+      this.cascade = cascade;
+      this.delegatedGroups = delegatedGroups;
+      this.delegatedIfNull = delegatedIfNull;
+      this.unsupported = unsupported;
+    }
+
+    static PropertyPlan compile(
+      Class<?> beanType,
+      String name,
+      Class<?> type,
+      AnnotatedType annotatedType,
+      Annotation[] annotations,
+      MethodHandle getter
+    ) {
+
+      List<ConstraintCheck> checks = new ArrayList<>();
+      Map<Class<?>, Class<?>> groupConversions = new HashMap<>();
+      List<Class<?>[]> delegatedGroups = new ArrayList<>();
+      boolean delegatedIfNull = false;
+      boolean cascade = false;
+      boolean unsupported = hasTypeArgumentAnnotations(annotatedType);
+
+      for (Annotation annotation : annotations) {
+
+        if (annotation instanceof Valid) {
+          cascade = true;
+        } else if (annotation instanceof ConvertGroup) {
+          addConversion(groupConversions, (ConvertGroup) annotation);
+        } else if (annotation instanceof ConvertGroup.List) {
+          for (ConvertGroup conversion : ((ConvertGroup.List) annotation).value()) {
+            addConversion(groupConversions, conversion);
+          }
+        } else if (isConstraint(annotation)) {
+
+          Class<?>[] groups = getGroups(annotation);
+          for (Class<?> group : groups) {
+            // A group that is the class itself redefines its default group, which the plan leaves to Hibernate.
+            if (group != Default.class && group.isAssignableFrom(beanType)) {
+              unsupported = true;
+            }
+          }
+
+          ConstraintCheck check = ConstraintCheck.compile(annotation, type);
+          if (check != null) {
+            checks.add(new ConstraintCheck(groups, check.kind, check.pattern));
+          } else {
+            delegatedGroups.add(groups);
+            delegatedIfNull |= !(annotation instanceof Email);
+          }
+        } else if (isConstraintList(annotation)) {
+          unsupported = true;
+        }
+      }
+
+      return new PropertyPlan(name, getter, checks, groupConversions, cascade, delegatedGroups, delegatedIfNull, unsupported);
+    }
+
+    boolean isValid(Object value, Class<?> group, Validator validator, Class<?> beanType) {
+
+      for (ConstraintCheck check : this.checks) {
+        if (appliesTo(check.groups, group) && !check.isValid(value)) {
+          return false;
+        }
+      }
+
+      if (value == null && !this.delegatedIfNull) {
+        return true;
+      }
+
+      for (Class<?>[] groups : this.delegatedGroups) {
+        if (appliesTo(groups, group)) {
+          return validator.validateValue(beanType, this.name, value, group).isEmpty();
+        }
+      }
+
+      return true;
+    }
+
+    Class<?> convert(Class<?> group) {
+      return this.groupConversions.getOrDefault(group, group);
+    }
+
+    private static void addConversion(Map<Class<?>, Class<?>> groupConversions, ConvertGroup conversion) {
+      groupConversions.put(conversion.from(), conversion.to());
+    }
+
+    private static boolean hasTypeArgumentAnnotations(AnnotatedType annotatedType) {
+
+      if (annotatedType instanceof AnnotatedParameterizedType) {
+        for (AnnotatedType argument : ((AnnotatedParameterizedType) annotatedType).getAnnotatedActualTypeArguments()) {
+          if (argument.getAnnotations().length > 0 || hasTypeArgumentAnnotations(argument)) {
+            return true;
+          }
+        }
+      }
+
+      return false;
+    }
+  }
+
+  private enum CheckKind {
+    NOT_NULL,
+    NOT_BLANK,
+    PATTERN,
+    URL
+  }
+
+  /**
+   * A constraint that the plan checks itself, in the same way as the Hibernate implementation of it.
+   */
+  private static final class ConstraintCheck {
+
+    private static final java.util.regex.Pattern ANY = java.util.regex.Pattern.compile(".*");
+
+    private final Class<?>[] groups;
+    private final CheckKind kind;
+    private final java.util.regex.Pattern pattern;
+
+    private ConstraintCheck(Class<?>[] groups, CheckKind kind, java.util.regex.Pattern pattern) {
+      this.groups = groups;
+      this.kind = kind;
+      this.pattern = pattern;
+    }
+
+    /**
+     * @return The check, without its groups, or null if the plan does not check this constraint itself.
+     */
+    static ConstraintCheck compile(Annotation annotation, Class<?> type) {
+
+      boolean isText = CharSequence.class.isAssignableFrom(type);
+      if (annotation instanceof NotNull) {
+        return new ConstraintCheck(null, CheckKind.NOT_NULL, null);
+      } else if (annotation instanceof NotBlank && isText) {
+        return new ConstraintCheck(null, CheckKind.NOT_BLANK, null);
+      } else if (annotation instanceof Pattern && isText) {
+        Pattern pattern = (Pattern) annotation;
+        int flags = 0;
+        for (Pattern.Flag flag : pattern.flags()) {
+          flags |= flag.getValue();
+        }
+
+        return new ConstraintCheck(null, CheckKind.PATTERN, java.util.regex.Pattern.compile(pattern.regexp(), flags));
+      } else if (annotation instanceof URL && isText) {
+        URL url = (URL) annotation;
+        if (url.protocol().isEmpty() && url.host().isEmpty() && url.port() == -1 && ".*".equals(url.regexp()) && url.flags().length == 0) {
+          return new ConstraintCheck(null, CheckKind.URL, ANY);
+        }
+      }
+
+      return null;
+    }
+
+    boolean isValid(Object value) {
+      switch (this.kind) {
+        case NOT_NULL:
+          return value != null;
+        case NOT_BLANK:
+          return value != null && value.toString().trim().length() > 0;
+        case PATTERN:
+          return value == null || this.pattern.matcher((CharSequence) value).matches();
+        case URL:
+          return value == null || ((CharSequence) value).length() == 0 || (isUrl(value.toString()) && this.pattern.matcher(
+            (CharSequence) value).matches());
+        default:
+          return false;
+      }
+    }
+
+    private static boolean isUrl(String value) {
+      try {
+        new java.net.URL(value);
+        return true;
+      } catch (MalformedURLException ex) {
+        return false;
+      }
+    }
+  }
+
+  private static boolean isConstrainedOrCascaded(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Valid || annotation instanceof ConvertGroup || annotation instanceof ConvertGroup.List
+        || isConstraint(annotation) || isConstraintList(annotation)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean isConstraint(Annotation annotation) {
+    return annotation.annotationType().isAnnotationPresent(Constraint.class);
+  }
+
+  /**
+   * @return If the annotation holds repeated constraints, such as {@code @Pattern.List}.
+   */
+  private static boolean isConstraintList(Annotation annotation) {
+    try {
+      Method value = annotation.annotationType().getMethod("value");
+      Class<?> componentType = value.getReturnType().getComponentType();
+      return componentType != null && componentType.isAnnotationPresent(Constraint.class);
+    } catch (NoSuchMethodException ex) {
+      return false;
+    }
+  }
+
+  private static Class<?>[] getGroups(Annotation annotation) {
+    try {
+      Class<?>[] groups = (Class<?>[]) annotation.annotationType().getMethod("groups").invoke(annotation);
+      return (groups.length == 0) ? new Class<?>[]{Default.class} : groups;
+    } catch (ReflectiveOperationException ex) {
+      return new Class<?>[]{Default.class};
+    }
+  }
+
+  private static boolean appliesTo(Class<?>[] groups, Class<?> group) {
+    for (Class<?> constraintGroup : groups) {
+      if (constraintGroup.isAssignableFrom(group)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
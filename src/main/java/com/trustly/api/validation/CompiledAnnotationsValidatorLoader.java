@@ -0,0 +1,15 @@
+package com.trustly.api.validation;
+
+public class CompiledAnnotationsValidatorLoader implements AnnotationsValidatorLoader {
+
+  @Override
+  public AnnotationsValidator create() {
+
+    try {
+      Class.forName("org.hibernate.validator.HibernateValidator");
+      return new CompiledAnnotationsValidator(new HibernateDataAnnotationsValidator());
+    } catch (Throwable ignored) {
+      return null;
+    }
+  }
+}
@@ -14,21 +14,12 @@ public class HibernateDataAnnotationsValidator implements AnnotationsValidator {
 
   private static final List<ValidationResult> EMPTY_VALIDATION_RESULTS = Collections.unmodifiableList(new ArrayList<>());
 
-  private Validator validator;
+  private volatile Validator validator;
 
   public <T> List<ValidationResult> validate(T obj) {
 
-    if (this.validator == null) {
-      this.validator = Validation.byDefaultProvider()
-        .configure()
-        .traversableResolver(TraversableResolvers.getDefault())
-        .messageInterpolator(new ParameterMessageInterpolator())
-        .buildValidatorFactory()
-        .getValidator();
-    }
-
     List<String> errorMessages = new ArrayList<>();
-    for (ConstraintViolation<T> validation : this.validator.validate(obj)) {
+    for (ConstraintViolation<T> validation : this.getValidator().validate(obj)) {
       errorMessages.add(validation.getPropertyPath() + ": " + validation.getMessage());
     }
 
@@ -38,4 +29,25 @@ public class HibernateDataAnnotationsValidator implements AnnotationsValidator {
 
     return EMPTY_VALIDATION_RESULTS;
   }
+
+  Validator getValidator() {
+
+    Validator current = this.validator;
+    if (current == null) {
+      synchronized (this) {
+        current = this.validator;
+        if (current == null) {
+          current = Validation.byDefaultProvider()
+            .configure()
+            .traversableResolver(TraversableResolvers.getDefault())
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory()
+            .getValidator();
+          this.validator = current;
+        }
+      }
+    }
+
+    return current;
+  }
 }
@@ -0,0 +1,179 @@
+package com.trustly.api.withdrawal;
+
+import com.trustly.api.client.TrustlyApiClient;
+import com.trustly.api.domain.exceptions.TrustlyRequestException;
+import com.trustly.api.domain.methods.getwithdrawals.GetWithdrawalsRequestData;
+import com.trustly.api.domain.methods.getwithdrawals.GetWithdrawalsResponseData;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Looks up the details of many withdrawals with {@link TrustlyApiClient#getWithdrawals}, which only takes one order id per call.
+ * <p>
+ * The lookups asked for within a short window are collected and then called together, with a bounded number of calls at a time. An order
+ * id that is asked for again while it is already waiting or being called is not called again; the callers share the same future.
+ *
+ * <pre>{@code
+ * try (GetWithdrawalsBatcher batcher = new GetWithdrawalsBatcher(client)) {
+ *   List<CompletableFuture<GetWithdrawalsResponseData>> futures = orderIds.stream().map(batcher::getWithdrawals).collect(toList());
+ * }
+ * }</pre>
+ */
+public class GetWithdrawalsBatcher implements Closeable {
+
+  private static final long DEFAULT_WINDOW_MILLIS = 50;
+  private static final int DEFAULT_PARALLELISM = 4;
+
+  private final TrustlyApiClient client;
+  private final long windowMillis;
+  private final ScheduledThreadPoolExecutor scheduler;
+  private final ExecutorService callers;
+
+  // Every order id that is waiting for its window to end or is being called, for the callers to share.
+  private final Map<String, CompletableFuture<GetWithdrawalsResponseData>> futures = new HashMap<>();
+  private List<String> batch = new ArrayList<>();
+  private boolean closed;
+
+  public GetWithdrawalsBatcher(TrustlyApiClient client) {
+    this(client, DEFAULT_WINDOW_MILLIS, DEFAULT_PARALLELISM);
+  }
+
+  /**
+   * @param windowMillis How long to collect lookups after the first one, before they are called
+   * @param parallelism  The maximum number of calls made at the same time
+   */
+  public GetWithdrawalsBatcher(TrustlyApiClient client, long windowMillis, int parallelism) {
+
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("There must be at least one call allowed at a time");
+    }
+
+    this.client = client;
+    this.windowMillis = windowMillis;
+
+    this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "trustly-withdrawals-batcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    // The lookups of a window that has not ended are called by close() instead.
+    this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.callers = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "trustly-withdrawals-caller-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @return A future that is completed with the details of the withdrawal, or exceptionally with the {@link TrustlyRequestException} of
+   *   the call, or with whatever else the call threw.
+   */
+  public CompletableFuture<GetWithdrawalsResponseData> getWithdrawals(String orderId) {
+
+    synchronized (this) {
+
+      if (this.closed) {
+        throw new IllegalStateException("The batcher has been closed");
+      }
+
+      CompletableFuture<GetWithdrawalsResponseData> future = this.futures.get(orderId);
+      if (future != null) {
+        return future;
+      }
+
+      future = new CompletableFuture<>();
+      this.futures.put(orderId, future);
+      this.batch.add(orderId);
+
+      if (this.batch.size() == 1) {
+        this.scheduler.schedule(this::flush, this.windowMillis, TimeUnit.MILLISECONDS);
+      }
+
+      return future;
+    }
+  }
+
+  /**
+   * Calls the lookups that are still waiting, and waits for all calls to finish.
+   */
+  @Override
+  public void close() {
+
+    synchronized (this) {
+      this.closed = true;
+    }
+
+    try {
+
+      // A flush that has already started hands its lookups to the callers before they are shut down, and the rest are flushed here.
+      this.scheduler.shutdown();
+      this.scheduler.awaitTermination(30, TimeUnit.SECONDS);
+      this.flush();
+
+      this.callers.shutdown();
+      this.callers.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      this.callers.shutdown();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void flush() {
+
+    List<String> orderIds;
+    synchronized (this) {
+      orderIds = this.batch;
+      this.batch = new ArrayList<>();
+    }
+
+    for (String orderId : orderIds) {
+      try {
+        this.callers.execute(() -> this.call(orderId));
+      } catch (RejectedExecutionException ex) {
+        this.done(orderId).completeExceptionally(ex);
+      }
+    }
+  }
+
+  private void call(String orderId) {
+
+    CompletableFuture<GetWithdrawalsResponseData> future;
+    synchronized (this) {
+      future = this.futures.get(orderId);
+    }
+
+    try {
+      GetWithdrawalsResponseData response = this.client.getWithdrawals(GetWithdrawalsRequestData.builder().orderId(orderId).build());
+      this.done(orderId);
+      future.complete(response);
+    } catch (Throwable ex) {
+      this.done(orderId);
+      future.completeExceptionally(ex);
+      if (ex instanceof Error) {
+        throw (Error) ex;
+      }
+    }
+  }
+
+  /**
+   * @return The future of the order id.
+   */
+  private synchronized CompletableFuture<GetWithdrawalsResponseData> done(String orderId) {
+    // Removed before the future is completed, so a caller that reacts to the result by asking again gets a new call.
+    return this.futures.remove(orderId);
+  }
+}
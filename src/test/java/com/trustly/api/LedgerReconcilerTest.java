@@ -0,0 +1,133 @@
+package com.trustly.api;
+
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
+import com.trustly.api.domain.methods.getwithdrawals.GetWithdrawalsResponseDataEntry;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseDataEntry;
+import com.trustly.api.ledger.LedgerReconciler;
+import com.trustly.api.ledger.ReconciliationDiscrepancy;
+import com.trustly.api.ledger.ReconciliationDiscrepancy.Type;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LedgerReconcilerTest {
+
+  @Test
+  void testReconcile() {
+
+    List<AccountLedgerResponseDataEntry> ledger = Arrays.asList(
+      ledgerEntry("1", "10:00", "EUR", "5.00000000000000000000"),
+      ledgerEntry("1", "10:00", "SEK", "-3.01"),
+      ledgerEntry("2", "11:00", "EUR", "-10.00"),
+      ledgerEntry("3", "12:00", "EUR", "1.00"),
+      ledgerEntry("4", "13:00", "EUR", "2.00"),
+      ledgerEntry("6", "15:00", "EUR", "-6.00")
+    );
+
+    List<SettlementReportResponseDataEntry> settlementReport = Arrays.asList(
+      settlementEntry("1", "09:00:00Z", "EUR", 5_000_000L),
+      settlementEntry("1", "09:00:00Z", "SEK", -3_010_000L),
+      settlementEntry("2", "10:00:00Z", "EUR", -10_000_000L),
+      settlementEntry("3", "11:00:00Z", "EUR", 1_100_000L),
+      settlementEntry("5", "13:00:00Z", "EUR", 4_000_000L),
+      settlementEntry("6", "14:00:00Z", "EUR", -6_000_000L)
+    );
+
+    List<GetWithdrawalsResponseDataEntry> withdrawals = Arrays.asList(
+      withdrawal("2", "10.00"),
+      withdrawal("6", "7.00"),
+      withdrawal("7", "8.00")
+    );
+
+    List<ReconciliationDiscrepancy> discrepancies = new ArrayList<>();
+    long reconciled = new LedgerReconciler().reconcile(ledger.iterator(), settlementReport.iterator(), withdrawals, discrepancies::add);
+
+    Assertions.assertEquals(6, reconciled);
+    Assertions.assertEquals(5, discrepancies.size());
+
+    // The orders that do not agree are only known when both sources are done, and the withdrawals are checked after them.
+    Assertions.assertEquals(Type.AMOUNT_MISMATCH, discrepancies.get(0).getType());
+    Assertions.assertEquals("3", discrepancies.get(0).getOrderId());
+    Assertions.assertEquals(0, new BigDecimal("1.00").compareTo(discrepancies.get(0).getLedgerAmount()));
+    Assertions.assertEquals(0, new BigDecimal("1.10").compareTo(discrepancies.get(0).getSettlementAmount()));
+
+    Assertions.assertEquals(Type.MISSING_FROM_SETTLEMENT_REPORT, discrepancies.get(1).getType());
+    Assertions.assertEquals("4", discrepancies.get(1).getOrderId());
+    Assertions.assertEquals(Type.MISSING_FROM_LEDGER, discrepancies.get(2).getType());
+    Assertions.assertEquals("5", discrepancies.get(2).getOrderId());
+
+    Assertions.assertEquals(Type.WITHDRAWAL_AMOUNT_MISMATCH, discrepancies.get(3).getType());
+    Assertions.assertEquals("6", discrepancies.get(3).getOrderId());
+    Assertions.assertEquals(new BigDecimal("7.00"), discrepancies.get(3).getWithdrawalAmount());
+    Assertions.assertEquals(Type.WITHDRAWAL_NOT_BOOKED, discrepancies.get(4).getType());
+    Assertions.assertEquals("7", discrepancies.get(4).getOrderId());
+  }
+
+  @Test
+  void testReconcileOrderWithLaterEntries() {
+
+    // Order A has a fee after order B, and a refund after orders D and C, in both sources.
+    List<AccountLedgerResponseDataEntry> ledger = Arrays.asList(
+      ledgerEntry("A", "10:00", "EUR", "5.00"),
+      ledgerEntry("B", "11:00", "EUR", "1.00"),
+      ledgerEntry("A", "12:00", "EUR", "-1.00"),
+      ledgerEntry("C", "14:00", "EUR", "2.00"),
+      ledgerEntry("A", "16:00", "EUR", "-4.00")
+    );
+
+    List<SettlementReportResponseDataEntry> settlementReport = Arrays.asList(
+      settlementEntry("A", "11:30:00Z", "EUR", 4_000_000L),
+      settlementEntry("D", "12:00:00Z", "EUR", 3_000_000L),
+      settlementEntry("A", "15:30:00Z", "EUR", -4_000_000L)
+    );
+
+    List<ReconciliationDiscrepancy> discrepancies = new ArrayList<>();
+    long reconciled = new LedgerReconciler().reconcile(
+      ledger.iterator(), settlementReport.iterator(), Collections.emptyList(), discrepancies::add
+    );
+
+    // Order A agrees twice, once before and once after its refund.
+    Assertions.assertEquals(5, reconciled);
+    Assertions.assertEquals(3, discrepancies.size());
+
+    Assertions.assertEquals(Type.MISSING_FROM_SETTLEMENT_REPORT, discrepancies.get(0).getType());
+    Assertions.assertEquals("B", discrepancies.get(0).getOrderId());
+    Assertions.assertEquals(Type.MISSING_FROM_LEDGER, discrepancies.get(1).getType());
+    Assertions.assertEquals("D", discrepancies.get(1).getOrderId());
+    Assertions.assertEquals(Type.MISSING_FROM_SETTLEMENT_REPORT, discrepancies.get(2).getType());
+    Assertions.assertEquals("C", discrepancies.get(2).getOrderId());
+  }
+
+  private static AccountLedgerResponseDataEntry ledgerEntry(String orderId, String time, String currency, String amount) {
+    return AccountLedgerResponseDataEntry.builder()
+      .orderId(orderId)
+      .datestamp("2014-01-30 " + time + ":00+01")
+      .accountName("BANK")
+      .currency(currency)
+      .amount(amount)
+      .build();
+  }
+
+  private static SettlementReportResponseDataEntry settlementEntry(String orderId, String time, String currency, long amountUnscaled) {
+    return SettlementReportResponseDataEntry.builder()
+      .orderId(orderId)
+      .datestamp(Instant.parse("2014-01-30T" + time))
+      .currency(currency)
+      .amountUnscaled(amountUnscaled)
+      .amount(amountUnscaled / 1_000_000.0)
+      .build();
+  }
+
+  private static GetWithdrawalsResponseDataEntry withdrawal(String orderId, String amount) {
+    return GetWithdrawalsResponseDataEntry.builder()
+      .orderId(orderId)
+      .currency("EUR")
+      .amount(amount)
+      .build();
+  }
+}
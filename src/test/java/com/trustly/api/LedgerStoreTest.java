@@ -0,0 +1,86 @@
+package com.trustly.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseData;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportParser;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseDataEntry;
+import com.trustly.api.ledger.LedgerStore;
+import com.trustly.api.util.MappedSegmentLog.FsyncPolicy;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LedgerStoreTest {
+
+  @Test
+  void testLookupsSurviveReopening(@TempDir Path tempDir) throws Exception {
+
+    List<AccountLedgerResponseDataEntry> ledgerEntries;
+    try (InputStream is = LedgerStoreTest.class.getResourceAsStream("/responses/accountledger.json")) {
+      ObjectMapper objectMapper = new ObjectMapper();
+      ledgerEntries = objectMapper.treeToValue(objectMapper.readTree(is).at("/result/data"), AccountLedgerResponseData.class).getEntries();
+    }
+
+    String csv;
+    try (InputStream is = LedgerStoreTest.class.getResourceAsStream("/responses/settlementreport.json")) {
+      csv = new ObjectMapper().readTree(is).at("/result/data/view_automatic_settlement_details").asText();
+    }
+    List<SettlementReportResponseDataEntry> settlementEntries = new SettlementReportParser().parse(csv);
+
+    // The later entries are added first, so the datestamp index has to be sorted before it is scanned.
+    List<AccountLedgerResponseDataEntry> generated = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      generated.add(AccountLedgerResponseDataEntry.builder()
+        .orderId(String.valueOf(5000 + i))
+        .messageId("message-" + (i % 10))
+        .accountName("BANK")
+        .currency("EUR")
+        .amount("1.00")
+        .datestamp(String.format("2014-02-01 %02d:%02d:00+00", (199 - i) / 60, (199 - i) % 60))
+        .build());
+    }
+
+    // Small segments, so the entries are spread over many segment files.
+    try (LedgerStore store = new LedgerStore(tempDir, 4096, FsyncPolicy.NEVER, 0)) {
+      store.addLedgerEntries(ledgerEntries);
+      store.addLedgerEntries(generated);
+      store.addSettlementEntries(settlementEntries);
+    }
+
+    try (LedgerStore store = new LedgerStore(tempDir, 4096, FsyncPolicy.NEVER, 0)) {
+
+      Assertions.assertEquals(ledgerEntries.size() + generated.size(), store.getLedgerEntryCount());
+      Assertions.assertEquals(settlementEntries.size(), store.getSettlementEntryCount());
+
+      Assertions.assertEquals(ledgerEntries, store.findLedgerEntriesByOrderId(ledgerEntries.get(0).getOrderId()));
+      Assertions.assertEquals(20, store.findLedgerEntriesByMessageId("message-3").size());
+      Assertions.assertEquals(Collections.emptyList(), store.findLedgerEntriesByOrderId("unknown"));
+
+      SettlementReportResponseDataEntry first = settlementEntries.get(0);
+      Assertions.assertTrue(store.findSettlementEntriesByOrderId(first.getOrderId()).contains(first));
+      Assertions.assertEquals(first.getAmountUnscaled(), store.findSettlementEntriesByMessageId(first.getMessageId()).get(0).getAmountUnscaled());
+      Assertions.assertTrue(store.findLedgerEntriesByOrderId(first.getOrderId()).isEmpty());
+
+      List<AccountLedgerResponseDataEntry> scanned = new ArrayList<>();
+      store.scanLedgerEntries(Instant.parse("2014-02-01T01:00:00Z"), Instant.parse("2014-02-01T02:00:00Z"), scanned::add);
+      Assertions.assertEquals(60, scanned.size());
+      Assertions.assertEquals("2014-02-01 01:00:00+00", scanned.get(0).getDatestamp());
+      Assertions.assertEquals("2014-02-01 01:59:00+00", scanned.get(59).getDatestamp());
+
+      List<SettlementReportResponseDataEntry> settlementScanned = new ArrayList<>();
+      store.scanSettlementEntries(Instant.MIN, Instant.MAX, settlementScanned::add);
+      Assertions.assertEquals(settlementEntries.size(), settlementScanned.size());
+
+      // Entries can still be added after the store was reopened.
+      store.addLedgerEntry(generated.get(0));
+      Assertions.assertEquals(2, store.findLedgerEntriesByOrderId("5000").size());
+    }
+  }
+}
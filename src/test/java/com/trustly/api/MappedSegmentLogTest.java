@@ -0,0 +1,49 @@
+package com.trustly.api;
+
+import com.trustly.api.util.MappedSegmentLog;
+import com.trustly.api.util.MappedSegmentLog.FsyncPolicy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedSegmentLogTest {
+
+  @Test
+  void testDeleteWhileReading(@TempDir Path directory) throws Exception {
+
+    try (MappedSegmentLog log = new MappedSegmentLog(directory, 80, FsyncPolicy.NEVER, 0)) {
+
+      // Each segment fits two records.
+      for (int i = 0; i < 6; i++) {
+        byte[] record = String.format("record-%020d", i).getBytes(StandardCharsets.UTF_8);
+        log.append(record, 0, record.length);
+      }
+
+      long lastSegmentStart = log.getEndPosition() & 0xFFFFFFFF00000000L;
+
+      List<String> records = new ArrayList<>();
+      long end = log.read(MappedSegmentLog.FIRST_POSITION, 10, (position, nextPosition, record) -> {
+        records.add(new String(record, StandardCharsets.UTF_8));
+        if (records.size() == 1) {
+          log.deleteBefore(lastSegmentStart);
+        }
+      });
+
+      // Reading goes on with the oldest segment that is left, instead of the deleted ones.
+      Assertions.assertEquals(3, records.size());
+      Assertions.assertEquals(String.format("record-%020d", 4), records.get(1));
+      Assertions.assertEquals(log.getEndPosition(), end);
+      Assertions.assertEquals(lastSegmentStart, log.getStartPosition());
+
+      try (Stream<Path> files = Files.list(directory)) {
+        Assertions.assertEquals(1, files.count());
+      }
+    }
+  }
+}
@@ -1,24 +1,52 @@
 package com.trustly.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.trustly.api.client.DefaultJsonRpcSigner;
+import com.trustly.api.client.JsonRpcSigner;
+import com.trustly.api.client.NotificationBackpressure;
+import com.trustly.api.client.Serializer;
 import com.trustly.api.client.TrustlyApiClient;
 import com.trustly.api.client.TrustlyApiClientExtensions;
 import com.trustly.api.client.TrustlyApiClientExtensions.NotificationResponder;
 import com.trustly.api.client.TrustlyApiClientSettings;
+import com.trustly.api.client.ValidationPolicy;
 import com.trustly.api.domain.base.IFromTrustlyRequestData;
+import com.trustly.api.domain.base.IRequest;
+import com.trustly.api.domain.base.IRequestParams;
+import com.trustly.api.domain.base.IRequestParamsData;
+import com.trustly.api.domain.base.IResponseResultData;
+import com.trustly.api.domain.base.JsonRpcRequest;
+import com.trustly.api.domain.base.JsonRpcResponse;
 import com.trustly.api.domain.notifications.AccountNotificationData;
 import com.trustly.api.domain.notifications.CancelNotificationData;
 import com.trustly.api.domain.notifications.CreditNotificationData;
 import com.trustly.api.domain.notifications.DebitNotificationData;
 import com.trustly.api.domain.notifications.PayoutConfirmationNotificationData;
 import com.trustly.api.domain.notifications.PendingNotificationData;
+import com.trustly.api.notification.JournalingNotificationHandler;
+import com.trustly.api.notification.NotificationJournal;
+import com.trustly.api.notification.OrderedNotificationDispatcher;
+import com.trustly.api.util.MappedSegmentLog.FsyncPolicy;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -175,4 +203,289 @@ class NotificationsTest {
     }
   }
 
+  @Test
+  void testJournaledNotification(@TempDir Path journalDirectory) throws Exception {
+
+    try (TrustlyApiClient client = new TrustlyApiClient(settings, new NoOpJsonRpcSigner())) {
+
+      final AtomicInteger receivedCounter = new AtomicInteger();
+      final AtomicInteger failuresLeft = new AtomicInteger(1);
+
+      client.addOnCreditListener(args -> {
+        if (failuresLeft.getAndDecrement() > 0) {
+          throw new IllegalStateException("The ledger is unavailable");
+        }
+
+        receivedCounter.incrementAndGet();
+        args.respondWithOk();
+      });
+
+      final RecordingResponder responder = new RecordingResponder();
+
+      // Use a tiny segment size, so the notifications are spread over multiple segments.
+      try (NotificationJournal journal = new NotificationJournal(journalDirectory, 1024, FsyncPolicy.ALWAYS, 0)) {
+        try (JournalingNotificationHandler handler = new JournalingNotificationHandler(journal)) {
+          for (int i = 0; i < 3; i++) {
+            handler.handleNotificationRequest(this.getClass().getResourceAsStream("/notifications/incoming/credit.json"), responder);
+            Assertions.assertEquals(200, responder.getStatus());
+          }
+
+          Assertions.assertEquals(0, receivedCounter.get());
+          Assertions.assertThrows(Exception.class, () -> handler.processPending(10));
+          Assertions.assertEquals(0, receivedCounter.get());
+        }
+      }
+
+      // Re-open the journal, and the failed notification should be processed again.
+      try (NotificationJournal journal = new NotificationJournal(journalDirectory, 1024, FsyncPolicy.ALWAYS, 0)) {
+        try (JournalingNotificationHandler handler = new JournalingNotificationHandler(journal)) {
+          Assertions.assertTrue(journal.hasPending());
+          Assertions.assertEquals(3, handler.processPending(10));
+          Assertions.assertEquals(3, receivedCounter.get());
+          Assertions.assertFalse(journal.hasPending());
+          Assertions.assertEquals(0, handler.processPending(10));
+        }
+      }
+    }
+  }
+
+  @Test
+  void testJournaledNotificationWithSeveralClients(@TempDir Path journalDirectory) throws Exception {
+
+    TrustlyApiClientSettings otherSettings = TrustlyApiClientSettings.forTest()
+      .withCredentials("other_username", "other_password")
+      .withCertificatesFromStreams(
+        NotificationsTest.class.getResourceAsStream("/keys/merchant_public_key.pem"),
+        NotificationsTest.class.getResourceAsStream("/keys/merchant_private_key.pem")
+      )
+      .andTrustlyCertificateTest();
+
+    // The first registered client cannot verify the notification, so the second one must be used.
+    try (
+      TrustlyApiClient other = new TrustlyApiClient(otherSettings);
+      TrustlyApiClient client = new TrustlyApiClient(settings)
+    ) {
+
+      other.addOnCancelListener(args -> Assertions.fail("The notification is not for this client"));
+
+      final AtomicInteger receivedCounter = new AtomicInteger();
+      client.addOnCancelListener(args -> {
+        receivedCounter.incrementAndGet();
+        args.respondWithOk();
+      });
+
+      final RecordingResponder responder = new RecordingResponder();
+
+      try (NotificationJournal journal = new NotificationJournal(journalDirectory, 1024, FsyncPolicy.ALWAYS, 0)) {
+        try (JournalingNotificationHandler handler = new JournalingNotificationHandler(journal)) {
+          handler.handleNotificationRequest(this.getClass().getResourceAsStream("/notifications/incoming/cancel.json"), responder);
+          Assertions.assertEquals(200, responder.getStatus());
+
+          Assertions.assertEquals(1, handler.processPending(10));
+          Assertions.assertEquals(1, receivedCounter.get());
+        }
+      }
+    }
+  }
+
+  @Test
+  void testOrderedNotificationDispatch() throws Exception {
+
+    try (TrustlyApiClient client = new TrustlyApiClient(settings, new NoOpJsonRpcSigner())) {
+      try (OrderedNotificationDispatcher dispatcher = new OrderedNotificationDispatcher(2)) {
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, String> threadNames = new ConcurrentHashMap<>();
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final CountDownLatch otherOrderStarted = new CountDownLatch(1);
+        final AtomicBoolean ranConcurrently = new AtomicBoolean();
+
+        client.addOnCreditListener(dispatcher.ordered(args -> {
+          String name = args.getData().getOrderId() + "/" + args.getData().getNotificationId();
+          threadNames.put(name, Thread.currentThread().getName());
+          events.add(name + " start");
+
+          if ("1/1".equals(name)) {
+            firstStarted.countDown();
+            try {
+              // Only returns true if the other order is handled while this one is still running.
+              ranConcurrently.set(otherOrderStarted.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+          } else if ("2/1".equals(name)) {
+            otherOrderStarted.countDown();
+          }
+
+          events.add(name + " end");
+          args.respondWithOk();
+        }));
+
+        // Order ids "1" and "2" hash onto different stripes when there are two of them.
+        Thread first = new Thread(() -> this.handleCreditNotification("1", "1"));
+        first.start();
+        Assertions.assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+
+        Thread second = new Thread(() -> this.handleCreditNotification("1", "2"));
+        second.start();
+
+        Assertions.assertEquals(200, this.handleCreditNotification("2", "1"));
+        first.join();
+        second.join();
+
+        Assertions.assertTrue(ranConcurrently.get());
+        Assertions.assertNotEquals(threadNames.get("1/1"), threadNames.get("2/1"));
+
+        // The second notification of order 1 waits for the first one, even though the other stripe was free.
+        Assertions.assertEquals(threadNames.get("1/1"), threadNames.get("1/2"));
+        Assertions.assertTrue(events.indexOf("1/1 end") < events.indexOf("1/2 start"));
+        Assertions.assertTrue(events.indexOf("2/1 start") < events.indexOf("1/1 end"));
+      }
+    }
+  }
+
+  @Test
+  void testNotificationBackpressure() throws Exception {
+
+    try (TrustlyApiClient client = new TrustlyApiClient(settings, new NoOpJsonRpcSigner())) {
+
+      final AtomicInteger receivedCounter = new AtomicInteger();
+      client.addOnCreditListener(args -> {
+        receivedCounter.incrementAndGet();
+        args.respondWithOk();
+      });
+
+      final RecordingResponder responder = new RecordingResponder();
+
+      NotificationBackpressure backpressure = NotificationBackpressure.respondFailed(1);
+
+      // Take the only slot, as if another notification was being handled.
+      Assertions.assertTrue(backpressure.tryAcquire());
+
+      TrustlyApiClientExtensions.handleNotificationRequest(
+        this.getClass().getResourceAsStream("/notifications/incoming/credit.json"), responder, backpressure
+      );
+
+      // Not signed, since it is not known which client the notification is for.
+      Assertions.assertEquals(503, responder.getStatus());
+      Assertions.assertNull(responder.getBody());
+      Assertions.assertEquals(0, receivedCounter.get());
+      Assertions.assertEquals(1, backpressure.getRejectedCount());
+
+      backpressure.release();
+
+      TrustlyApiClientExtensions.handleNotificationRequest(
+        this.getClass().getResourceAsStream("/notifications/incoming/credit.json"), responder, backpressure
+      );
+
+      Assertions.assertEquals(200, responder.getStatus());
+      Assertions.assertEquals(1, receivedCounter.get());
+      Assertions.assertEquals(2, backpressure.getAcceptedCount());
+      Assertions.assertEquals(0, backpressure.getInFlight());
+    }
+  }
+
+  @Test
+  void testNotificationResponseTemplateMatchesSerializedResponse() throws Exception {
+
+    DefaultJsonRpcSigner defaultSigner = new DefaultJsonRpcSigner(new Serializer(), settings);
+    JsonRpcSigner delegatingSigner = new JsonRpcSigner() {
+      @Override
+      public <T extends IRequestParamsData> JsonRpcRequest<T> sign(JsonRpcRequest<T> request) {
+        return defaultSigner.sign(request);
+      }
+
+      @Override
+      public <T extends IResponseResultData> JsonRpcResponse<T> sign(JsonRpcResponse<T> response) {
+        return defaultSigner.sign(response);
+      }
+
+      @Override
+      public <D extends IRequestParamsData, P extends IRequestParams<D>> void verify(IRequest<P> request) {
+      }
+
+      @Override
+      public <T extends IResponseResultData> void verify(JsonRpcResponse<T> response, JsonNode nodeResponse) {
+      }
+    };
+
+    try (
+      TrustlyApiClient templated = new TrustlyApiClient(settings, defaultSigner);
+      TrustlyApiClient serialized = new TrustlyApiClient(settings, delegatingSigner)
+    ) {
+
+      String uuid = "258a2184-2842-b485-25ca-293525152425";
+      for (String method : new String[]{"credit", "debit"}) {
+        for (String status : new String[]{"OK", "FAILED", "", null}) {
+          for (String message : new String[]{null, "", "Could not \"debit\" \u00e5\n\\ account"}) {
+            // The skeleton is made by the same serializer, so even the order of the properties is the same.
+            Assertions.assertEquals(
+              serialized.createNotificationResponseJson(method, uuid, status, message),
+              templated.createNotificationResponseJson(method, uuid, status, message),
+              String.format("%s with status %s and message %s", method, status, message)
+            );
+          }
+        }
+      }
+
+      // The templated response is validated like the serialized one.
+      ValidationPolicy policy = ValidationPolicy.full();
+      settings.setValidationPolicy(policy);
+      templated.createNotificationResponseJson("credit", uuid, "OK", null);
+      Assertions.assertEquals(1, policy.getValidatedCount());
+    }
+  }
+
+  /**
+   * Handles the example credit notification, changed to have the given order id and notification id.
+   *
+   * @return The HTTP status of the response
+   */
+  private int handleCreditNotification(String orderId, String notificationId) {
+
+    try (InputStream is = this.getClass().getResourceAsStream("/notifications/incoming/credit.json")) {
+      ObjectMapper objectMapper = new ObjectMapper();
+      JsonNode notification = objectMapper.readTree(is);
+      ((ObjectNode) notification.at("/params/data")).put("orderid", orderId).put("notificationid", notificationId);
+
+      RecordingResponder responder = new RecordingResponder();
+      TrustlyApiClientExtensions.handleNotificationRequest(
+        new ByteArrayInputStream(objectMapper.writeValueAsBytes(notification)), responder
+      );
+      return responder.getStatus();
+    } catch (Exception ex) {
+      throw new IllegalStateException("Could not handle the credit notification", ex);
+    }
+  }
+
+  /**
+   * Remembers the last status and body that were written back to Trustly.
+   */
+  private static final class RecordingResponder implements NotificationResponder {
+
+    private volatile int status;
+    private volatile String body;
+
+    @Override
+    public void addHeader(String key, String value) {
+    }
+
+    @Override
+    public void setStatus(int httpStatus) {
+      this.status = httpStatus;
+    }
+
+    @Override
+    public void writeBody(String value) {
+      this.body = value;
+    }
+
+    int getStatus() {
+      return this.status;
+    }
+
+    String getBody() {
+      return this.body;
+    }
+  }
 }
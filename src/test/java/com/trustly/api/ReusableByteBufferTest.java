@@ -0,0 +1,46 @@
+package com.trustly.api;
+
+import com.trustly.api.util.ReusableByteBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ReusableByteBufferTest {
+
+  @Test
+  void testMaxLengthBelowBufferSize() throws Exception {
+
+    byte[] body = new byte[1500];
+    Arrays.fill(body, (byte) 'a');
+
+    // The buffer starts out larger than the max length.
+    ReusableByteBuffer buffer = new ReusableByteBuffer(64 * 1024);
+    IOException ex = Assertions.assertThrows(IOException.class, () -> buffer.readFrom(new ByteArrayInputStream(body), 1000));
+    Assertions.assertEquals("The stream contains more than the allowed 1000 bytes", ex.getMessage());
+
+    buffer.readFrom(new ByteArrayInputStream(body, 0, 1000), 1000);
+    Assertions.assertEquals(1000, buffer.getLength());
+
+    buffer.readFrom(new ByteArrayInputStream("short".getBytes(StandardCharsets.UTF_8)), 1000);
+    Assertions.assertEquals("short", buffer.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testGrowsUpToMaxLength() throws Exception {
+
+    byte[] body = new byte[10_000];
+    Arrays.fill(body, (byte) 'b');
+
+    ReusableByteBuffer buffer = new ReusableByteBuffer(4096);
+    buffer.readFrom(new ByteArrayInputStream(body), 10_000);
+    Assertions.assertEquals(10_000, buffer.getLength());
+    Assertions.assertThrows(IOException.class, () -> buffer.readFrom(new ByteArrayInputStream(body), 9_999));
+
+    // A buffer that grew past the max retained size is shrunk when released.
+    buffer.release();
+    Assertions.assertEquals(4096, buffer.getBytes().length);
+  }
+}
@@ -13,12 +13,23 @@ import com.trustly.api.domain.base.JsonRpcRequest;
 import com.trustly.api.domain.base.JsonRpcResponse;
 import com.trustly.api.domain.base.NotificationResponse;
 import com.trustly.api.domain.exceptions.TrustlyValidationException;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseData;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
 import com.trustly.api.domain.methods.deposit.DepositRequestData;
 import com.trustly.api.domain.methods.deposit.DepositRequestDataAttributes;
+import com.trustly.api.domain.methods.getwithdrawals.GetWithdrawalsResponseData;
+import com.trustly.api.domain.methods.getwithdrawals.GetWithdrawalsResponseDataEntry;
 import com.trustly.api.domain.methods.registeraccount.RegisterAccountResponseData;
 import com.trustly.api.domain.methods.selectaccount.SelectAccountRequestData;
 import com.trustly.api.domain.methods.selectaccount.SelectAccountRequestDataAttributes;
+import com.trustly.api.validation.CompiledAnnotationsValidator;
+import com.trustly.api.validation.HibernateDataAnnotationsValidator;
+import com.trustly.api.validation.ValidationResult;
 import java.io.InputStream;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -266,4 +277,114 @@ class SerializerTest {
     // ShopperStatement is NOT specified -- but we should NOT throw exception, since that validation group is not specified.
     validator.validate(jsonRpc);
   }
+
+  @Test
+  void testCompiledValidatorGivesSameMessages() {
+
+    HibernateDataAnnotationsValidator hibernateValidator = new HibernateDataAnnotationsValidator();
+    CompiledAnnotationsValidator compiledValidator = new CompiledAnnotationsValidator(new HibernateDataAnnotationsValidator());
+
+    JsonRpcRequest<DepositRequestData> jsonRpc = new JsonRpcFactory().create(
+      DepositRequestData.builder()
+        .username("merchant_username")
+        .password("merchant_password")
+        .notificationUrl("https://someurl.fake")
+        .endUserId("12345")
+        .messageId("your_unique_deposit_id")
+        .attributes(
+          DepositRequestDataAttributes.builder()
+            .country("se")
+            .locale("sv_SE")
+            .currency("SEK")
+            .lastname("Doe")
+            .successUrl("not a url")
+            .failURL("https://google.com")
+            .email("not an email")
+            .build()
+        )
+        .build(),
+      "Deposit"
+    );
+
+    List<ValidationResult> expected = hibernateValidator.validate(jsonRpc);
+    Assertions.assertFalse(expected.isEmpty());
+    Assertions.assertEquals(
+      expected.stream().map(ValidationResult::getErrorMessage).sorted().collect(Collectors.toList()),
+      compiledValidator.validate(jsonRpc).stream().map(ValidationResult::getErrorMessage).sorted().collect(Collectors.toList())
+    );
+
+    // The invalid e-mail address alone is also found by the compiled plan.
+    DepositRequestDataAttributes attributes = jsonRpc.getParams().getData().getAttributes();
+    attributes.setCountry("SE");
+    attributes.setFirstname("John");
+    attributes.setMobilePhone("+46709876543");
+    attributes.setShopperStatement("A Statement");
+    attributes.setSuccessUrl("https://google.com");
+    Assertions.assertEquals(
+      Collections.singletonList("params.data.attributes.email: must be a well-formed email address"),
+      compiledValidator.validate(jsonRpc).stream().map(ValidationResult::getErrorMessage).collect(Collectors.toList())
+    );
+
+    attributes.setEmail("name@site.com");
+    Assertions.assertEquals(Collections.emptyList(), compiledValidator.validate(jsonRpc));
+    Assertions.assertEquals(Collections.emptyList(), hibernateValidator.validate(jsonRpc));
+
+    attributes.setSuccessUrl("");
+    Assertions.assertEquals(hibernateValidator.validate(jsonRpc).size(), compiledValidator.validate(jsonRpc).size());
+  }
+
+  @Test
+  void testLedgerEntriesShareRepeatedValues() throws Exception {
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    String json;
+    try (InputStream is = SerializerTest.class.getResourceAsStream("/responses/accountledger.json")) {
+      json = objectMapper.readTree(is).at("/result/data").toString();
+    }
+
+    List<AccountLedgerResponseDataEntry> entries = objectMapper.readValue(json, AccountLedgerResponseData.class).getEntries();
+    Assertions.assertEquals(2, entries.size());
+    Assertions.assertSame(entries.get(0).getUserId(), entries.get(1).getUserId());
+    Assertions.assertSame(entries.get(0).getTransactionType(), entries.get(1).getTransactionType());
+    Assertions.assertEquals("EUR", entries.get(0).getCurrency());
+    Assertions.assertEquals("SEK", entries.get(1).getCurrency());
+
+    // Order ids are not interned.
+    Assertions.assertNotSame(entries.get(0).getOrderId(), entries.get(1).getOrderId());
+    Assertions.assertEquals(entries.get(0).getOrderId(), entries.get(1).getOrderId());
+  }
+
+  @Test
+  void testTypedAccessorsOfEntries() throws Exception {
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    List<AccountLedgerResponseDataEntry> ledgerEntries;
+    try (InputStream is = SerializerTest.class.getResourceAsStream("/responses/accountledger.json")) {
+      ledgerEntries = objectMapper.treeToValue(objectMapper.readTree(is).at("/result/data"), AccountLedgerResponseData.class).getEntries();
+    }
+
+    AccountLedgerResponseDataEntry ledgerEntry = ledgerEntries.get(0);
+    long datestampMicros = Instant.parse("2014-01-30T12:28:45.652299Z").toEpochMilli() * 1000 + 299;
+    Assertions.assertEquals(datestampMicros, ledgerEntry.getDatestampEpochMicros());
+    Assertions.assertSame(ledgerEntry.getDatestampEpochMicros(), ledgerEntry.getDatestampEpochMicros());
+    Assertions.assertEquals(5_000_000L, ledgerEntry.getAmountUnscaled());
+    Assertions.assertEquals(-3_010_000L, ledgerEntries.get(1).getAmountUnscaled());
+
+    // The parsed values are not part of the entry's identity.
+    Assertions.assertEquals(AccountLedgerResponseDataEntry.builder().datestamp(ledgerEntry.getDatestamp()).build(),
+      AccountLedgerResponseDataEntry.builder().datestamp(ledgerEntry.getDatestamp()).build());
+    Assertions.assertFalse(objectMapper.writeValueAsString(ledgerEntry).contains("EpochMicros"));
+
+    GetWithdrawalsResponseDataEntry withdrawal;
+    try (InputStream is = SerializerTest.class.getResourceAsStream("/responses/getwithdrawals.json")) {
+      withdrawal = objectMapper.treeToValue(objectMapper.readTree(is).at("/result/data"), GetWithdrawalsResponseData.class)
+        .getEntries().get(0);
+    }
+
+    Assertions.assertEquals(Instant.parse("2015-05-12T09:16:30.957975Z").toEpochMilli() * 1000 + 975, withdrawal.getModificationDateEpochMicros());
+    Assertions.assertEquals(Instant.parse("2015-05-12T09:14:22.982842Z").toEpochMilli() * 1000 + 842, withdrawal.getDatestampEpochMicros());
+    Assertions.assertEquals(Instant.parse("2015-05-12T10:00:00Z").toEpochMilli() * 1000, withdrawal.getEtaEpochMicros());
+    Assertions.assertEquals(1_000_000L, withdrawal.getAmountUnscaled());
+    Assertions.assertNull(GetWithdrawalsResponseDataEntry.builder().eta("soon").build().getEtaEpochMicros());
+  }
 }
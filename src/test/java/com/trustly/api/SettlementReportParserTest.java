@@ -0,0 +1,392 @@
+package com.trustly.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportAggregate;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportAggregator;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportColumns;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportColumns.Column;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportParser;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseData;
+import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseDataEntry;
+import com.trustly.api.util.MappedFileReader;
+import com.trustly.api.util.TrustlyDateUtils;
+import com.trustly.api.util.TrustlyNumberUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SettlementReportParserTest {
+
+  private static String readExampleCsv() throws Exception {
+    try (InputStream is = SettlementReportParserTest.class.getResourceAsStream("/responses/settlementreport.json")) {
+      return new ObjectMapper().readTree(is).at("/result/data/view_automatic_settlement_details").asText();
+    }
+  }
+
+  @Test
+  void testParseExampleReport() throws Exception {
+
+    List<SettlementReportResponseDataEntry> entries = new SettlementReportParser().parse(readExampleCsv());
+
+    Assertions.assertFalse(entries.isEmpty());
+
+    SettlementReportResponseDataEntry first = entries.get(0);
+    Assertions.assertEquals(Instant.parse("2018-11-16T12:52:22.293626Z"), first.getDatestamp());
+    Assertions.assertEquals("SUSPENSE_ACCOUNT_CLIENT_FUNDS_FINLAND_OKOY", first.getAccountName());
+    Assertions.assertEquals("EUR", first.getCurrency());
+    Assertions.assertEquals(100.00, first.getAmount());
+    Assertions.assertEquals(145.00, first.getTotal());
+    Assertions.assertEquals("1288208729", first.getOrderId());
+    Assertions.assertEquals("Deposit", first.getOrderType());
+    Assertions.assertEquals("9567705", first.getMessageId());
+    Assertions.assertEquals("merchant1", first.getUsername());
+    Assertions.assertNull(first.getFxPaymentAmount());
+    Assertions.assertEquals("1434179572", first.getSettlementBankWithdrawalId());
+
+    Assertions.assertEquals("Refund 2018-11-16 13:53:21.019497+01 9567705", entries.get(2).getMessageId());
+    Assertions.assertSame(first.getCurrency(), entries.get(1).getCurrency());
+    Assertions.assertSame(first.getUsername(), entries.get(entries.size() - 1).getUsername());
+  }
+
+  @Test
+  void testStreamingGivesSameEntries() throws Exception {
+
+    String csv = readExampleCsv();
+    SettlementReportParser parser = new SettlementReportParser();
+    List<SettlementReportResponseDataEntry> expected = parser.parse(csv);
+
+    List<SettlementReportResponseDataEntry> fromInputStream = new ArrayList<>();
+    parser.parse(new ByteArrayInputStream(csv.replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8)), fromInputStream::add);
+    Assertions.assertEquals(expected, fromInputStream);
+
+    try (Stream<SettlementReportResponseDataEntry> stream = parser.stream(new StringReader(csv))) {
+      Assertions.assertEquals(expected, stream.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void testQuotedLineBreak() {
+
+    List<SettlementReportResponseDataEntry> entries = new SettlementReportParser().parse(
+      "accountname,ordertype,currency\n\nA,\"Multi\nLine\",EUR\nB,Deposit,SEK\n"
+    );
+
+    Assertions.assertEquals(2, entries.size());
+    Assertions.assertEquals("Multi\nLine", entries.get(0).getOrderType());
+    Assertions.assertEquals("EUR", entries.get(0).getCurrency());
+    Assertions.assertEquals("B", entries.get(1).getAccountName());
+  }
+
+  @Test
+  void testResponseDataParsesEntriesLazily() throws Exception {
+
+    SettlementReportResponseData data;
+    try (InputStream is = SettlementReportParserTest.class.getResourceAsStream("/responses/settlementreport.json")) {
+      data = new ObjectMapper().readerFor(SettlementReportResponseData.class).readValue(new ObjectMapper().readTree(is).at("/result/data"));
+    }
+
+    Assertions.assertEquals(readExampleCsv(), data.getCsvContent());
+
+    List<SettlementReportResponseDataEntry> streamed;
+    try (Stream<SettlementReportResponseDataEntry> stream = data.streamEntries()) {
+      streamed = stream.collect(Collectors.toList());
+    }
+
+    Assertions.assertFalse(streamed.isEmpty());
+    Assertions.assertEquals(streamed, data.getEntries());
+    Assertions.assertSame(data.getEntries(), data.getEntries());
+
+    // The pool is only used if the entries have not been parsed yet.
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      SettlementReportResponseData built = SettlementReportResponseData.builder().csvContent(data.getCsvContent()).build();
+      Assertions.assertEquals(streamed, built.getEntries(pool));
+      Assertions.assertSame(built.getEntries(pool), built.getEntries());
+      Assertions.assertEquals(data, built);
+    } finally {
+      pool.shutdown();
+    }
+
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> data.getEntries().clear());
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void testResponseDataWithGivenEntries() {
+
+    List<SettlementReportResponseDataEntry> entries = new ArrayList<>();
+    entries.add(SettlementReportResponseDataEntry.builder().orderId("1").amount(1.0).build());
+
+    // Given entries are used as they are, and the CSV is not parsed.
+    SettlementReportResponseData constructed = new SettlementReportResponseData("not a report", entries);
+    Assertions.assertSame(entries, constructed.getEntries());
+    Assertions.assertEquals(entries, constructed.streamEntries().collect(Collectors.toList()));
+
+    SettlementReportResponseData built = SettlementReportResponseData.builder().entries(entries).build();
+    Assertions.assertSame(entries, built.getEntries());
+  }
+
+  @Test
+  void testEscapedQuotesAndSmallBuffer() throws Exception {
+
+    String csv = "accountname,ordertype,amount,messageid\r\n"
+      + "\"Say \"\"hi\"\"\",\"\"\"\",-0.10,\"a,b\"\r\n"
+      + "X,,12345678901234567890.5,\n";
+
+    // A reader that gives one char at a time makes sure that values spanning buffer refills are kept intact.
+    List<SettlementReportResponseDataEntry> entries = new ArrayList<>();
+    new SettlementReportParser().parse(new StringReader(csv) {
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException {
+        return super.read(cbuf, off, Math.min(len, 1));
+      }
+    }, entries::add);
+
+    Assertions.assertEquals(new SettlementReportParser().parse(csv), entries);
+    Assertions.assertEquals(2, entries.size());
+    Assertions.assertEquals("Say \"hi\"", entries.get(0).getAccountName());
+    Assertions.assertEquals("\"", entries.get(0).getOrderType());
+    Assertions.assertEquals(-0.10, entries.get(0).getAmount());
+    Assertions.assertEquals("a,b", entries.get(0).getMessageId());
+    Assertions.assertNull(entries.get(1).getOrderType());
+    Assertions.assertEquals(12345678901234567890.5, entries.get(1).getAmount());
+  }
+
+  @Test
+  void testParallelParsingGivesSameEntriesInOrder() throws Exception {
+
+    String csv = readExampleCsv();
+    String header = csv.substring(0, csv.indexOf('\n') + 1);
+    String rows = csv.substring(header.length());
+
+    StringBuilder sb = new StringBuilder(header);
+    for (int i = 0; sb.length() < 1024 * 1024; i++) {
+      sb.append(rows);
+      sb.append("\"2018-11-16 12:52:22.293626+00\",\"Line\n\"\"").append(i).append("\"\"\",EUR,1.00\n");
+    }
+
+    SettlementReportParser parser = new SettlementReportParser();
+    List<SettlementReportResponseDataEntry> expected = parser.parse(sb.toString());
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Assertions.assertEquals(expected, parser.parseParallel(sb.toString(), pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void testDatestampFormats() {
+
+    Assertions.assertEquals(Instant.parse("2014-03-31T11:50:06.461060Z"), TrustlyDateUtils.parseInstant("2014-03-31 11:50:06.46106+00"));
+    Assertions.assertEquals(Instant.parse("2014-01-30T12:28:45.652299Z"), TrustlyDateUtils.parseInstant("2014-01-30 13:28:45.652299+01"));
+    Assertions.assertEquals(Instant.parse("2016-02-29T23:58:45Z"), TrustlyDateUtils.parseInstant("2016-03-01T01:28:45+01:30"));
+    Assertions.assertEquals(Instant.parse("1999-12-31T23:00:00.1Z"), TrustlyDateUtils.parseInstant("2000-01-01 00:00:00.1+0100"));
+    Assertions.assertNull(TrustlyDateUtils.parseInstant("2015-02-29 00:00:00+00"));
+    Assertions.assertNull(TrustlyDateUtils.parseInstant("2015-01-01 00:00:00+00:00[Europe/Stockholm]"));
+
+    // Rows in other formats fall back on the formatters, also after the fast path has matched.
+    List<SettlementReportResponseDataEntry> entries = new SettlementReportParser().parse(
+      "datestamp\n"
+        + "2014-03-31 11:50:06.46106+00\n"
+        + "2014-03-31T11:50:06.46106+02:00[Europe/Stockholm]\n"
+        + "2014-03-31 11:50:06+00\n"
+    );
+
+    Assertions.assertEquals(Instant.parse("2014-03-31T11:50:06.46106Z"), entries.get(0).getDatestamp());
+    Assertions.assertEquals(Instant.parse("2014-03-31T09:50:06.46106Z"), entries.get(1).getDatestamp());
+    Assertions.assertEquals(Instant.parse("2014-03-31T11:50:06Z"), entries.get(2).getDatestamp());
+  }
+
+  @Test
+  void testExactAmounts() {
+
+    List<SettlementReportResponseDataEntry> entries = new SettlementReportParser().parse(
+      "amount,total,fxpaymentamount\n"
+        + "-1.00,145.10,0.1234567\n"
+        + "-0.00,92233720368547.75807,\n"
+    );
+
+    Assertions.assertEquals(-1_000_000L, entries.get(0).getAmountUnscaled());
+    Assertions.assertEquals(new BigDecimal("145.100000"), entries.get(0).getTotalAsBigDecimal());
+    Assertions.assertEquals(145.10, entries.get(0).getTotal());
+
+    // More decimals than the scale can hold, so only the double is given.
+    Assertions.assertNull(entries.get(0).getFxPaymentAmountUnscaled());
+    Assertions.assertEquals(0.1234567, entries.get(0).getFxPaymentAmount());
+
+    Assertions.assertEquals(0L, entries.get(1).getAmountUnscaled());
+    Assertions.assertEquals(-0.0, entries.get(1).getAmount());
+    Assertions.assertNull(entries.get(1).getTotalUnscaled());
+    Assertions.assertEquals(92233720368547.75807, entries.get(1).getTotal());
+
+    // The unscaled amounts only add exactness, so an entry built without them is still equal to the parsed one.
+    SettlementReportResponseDataEntry withoutUnscaled = new SettlementReportResponseDataEntry(
+      null, -1.00, null, null, null, null, null, 145.10, null, 0.1234567, null, null, null
+    );
+    Assertions.assertEquals(entries.get(0), withoutUnscaled);
+    Assertions.assertEquals(entries.get(0).hashCode(), withoutUnscaled.hashCode());
+    Assertions.assertEquals(new BigDecimal("145.1"), withoutUnscaled.getTotalAsBigDecimal());
+
+    Assertions.assertEquals(5_000_000L, TrustlyNumberUtils.parseUnscaled("5.00000000000000000000", TrustlyNumberUtils.AMOUNT_SCALE));
+    Assertions.assertEquals(-3_010_000L, TrustlyNumberUtils.parseUnscaled("-3.01", TrustlyNumberUtils.AMOUNT_SCALE));
+    Assertions.assertThrows(ArithmeticException.class, () -> TrustlyNumberUtils.parseUnscaled("0.0000001", TrustlyNumberUtils.AMOUNT_SCALE));
+    Assertions.assertThrows(NumberFormatException.class, () -> TrustlyNumberUtils.parseUnscaled("1e5", TrustlyNumberUtils.AMOUNT_SCALE));
+  }
+
+  @Test
+  void testColumnsGiveSameEntries() throws Exception {
+
+    String csv = readExampleCsv() + "\n\n2014-03-31 11:50:06+00,X,SEK,-0.00,0.1234567,,\"Multi\nLine\"\n";
+    SettlementReportParser parser = new SettlementReportParser();
+
+    SettlementReportColumns columns = parser.parseColumns(csv);
+    Assertions.assertEquals(parser.parse(csv), columns.toEntries());
+
+    int last = columns.size() - 1;
+    Assertions.assertEquals(-0.0, columns.getRow(last).getAmount());
+    Assertions.assertFalse(columns.getAmountColumn(Column.TOTAL).isExact(last));
+    Assertions.assertEquals(SettlementReportColumns.NULL, columns.getAmountColumn(Column.FX_PAYMENT_AMOUNT).getUnscaled(last));
+    Assertions.assertEquals("Multi\nLine", columns.getRow(last).getOrderType());
+
+    SettlementReportColumns.DictionaryColumn currencies = columns.getDictionaryColumn(Column.CURRENCY);
+    Assertions.assertSame(currencies.get(0), currencies.get(1));
+    Assertions.assertTrue(currencies.getCardinality() < columns.size());
+    Assertions.assertEquals(Instant.parse("2018-11-16T12:52:22.293626Z").toEpochMilli() * 1_000_000 + 626_000, columns.getDatestampEpochNanos(0));
+
+    Assertions.assertEquals(0, parser.parseColumns("").size());
+  }
+
+  @Test
+  void testFxAdjustedSumPerPaymentCurrency() {
+
+    String csv = "currency,amount,fxpaymentcurrency,fxpaymentamount\n"
+      + "EUR,100.00,,\n"
+      + "EUR,50.00,SEK,550.00\n"
+      + "EUR,100.00,SEK,1100.00\n"
+      + "EUR,20.00,USD,21.50\n"
+      + "SEK,1500.00,,\n";
+
+    SettlementReportParser parser = new SettlementReportParser();
+    SettlementReportAggregator aggregator = new SettlementReportAggregator(Column.CURRENCY, Column.FX_PAYMENT_CURRENCY);
+
+    for (Map<List<String>, SettlementReportAggregate> groups : Arrays.asList(
+      aggregator.aggregate(parser.parseColumns(csv)),
+      aggregator.aggregate(parser.parse(csv).stream())
+    )) {
+      Assertions.assertEquals(4, groups.size());
+      Assertions.assertEquals(0, new BigDecimal("100").compareTo(groups.get(Arrays.asList("EUR", null)).getFxAdjustedSum()));
+      Assertions.assertEquals(0, new BigDecimal("1650").compareTo(groups.get(Arrays.asList("EUR", "SEK")).getFxAdjustedSum()));
+      Assertions.assertEquals(0, new BigDecimal("150").compareTo(groups.get(Arrays.asList("EUR", "SEK")).getSum()));
+      Assertions.assertEquals(0, new BigDecimal("21.5").compareTo(groups.get(Arrays.asList("EUR", "USD")).getFxAdjustedSum()));
+      Assertions.assertEquals(0, new BigDecimal("1500").compareTo(groups.get(Arrays.asList("SEK", null)).getFxAdjustedSum()));
+    }
+  }
+
+  @Test
+  void testAggregation() throws Exception {
+
+    String csv = "datestamp,currency,ordertype,amount,fxpaymentamount\n"
+      + "2018-11-16 23:00:00+00,EUR,Deposit,100.00,\n"
+      + "2018-11-16 23:30:00+00,EUR,Deposit,-1.50,\n"
+      + "2018-11-17 00:30:00+00,EUR,Deposit,50.00,49.99\n"
+      + "2018-11-17 01:00:00+00,SEK,Refund,0.0000001,\n"
+      + "2018-11-17 02:00:00+00,EUR,Deposit,,\n";
+
+    SettlementReportParser parser = new SettlementReportParser();
+    SettlementReportAggregator aggregator = new SettlementReportAggregator(Column.CURRENCY, Column.DATESTAMP);
+    Map<List<String>, SettlementReportAggregate> groups = aggregator.aggregate(parser.parseColumns(csv));
+
+    Assertions.assertEquals(
+      Arrays.asList(Arrays.asList("EUR", "2018-11-16"), Arrays.asList("EUR", "2018-11-17"), Arrays.asList("SEK", "2018-11-17")),
+      new ArrayList<>(groups.keySet())
+    );
+
+    SettlementReportAggregate first = groups.get(Arrays.asList("EUR", "2018-11-16"));
+    Assertions.assertEquals(2, first.getCount());
+    Assertions.assertEquals(0, new BigDecimal("98.50").compareTo(first.getSum()));
+    Assertions.assertEquals(0, new BigDecimal("-1.5").compareTo(first.getMin()));
+    Assertions.assertEquals(0, new BigDecimal("100").compareTo(first.getMax()));
+
+    SettlementReportAggregate second = groups.get(Arrays.asList("EUR", "2018-11-17"));
+    Assertions.assertEquals(2, second.getCount());
+    Assertions.assertEquals(1, second.getAmountCount());
+    Assertions.assertEquals(0, new BigDecimal("50").compareTo(second.getSum()));
+
+    // Without grouping by FX payment currency, the FX adjusted sum could mix currencies.
+    Assertions.assertThrows(IllegalStateException.class, second::getFxAdjustedSum);
+
+    Assertions.assertEquals(0, new BigDecimal("0.0000001").compareTo(groups.get(Arrays.asList("SEK", "2018-11-17")).getSum()));
+
+    // The days can be shifted, and entries give the same result as columns, also when the columns are aggregated in parallel.
+    Map<List<String>, SettlementReportAggregate> shifted = new SettlementReportAggregator(ZoneOffset.ofHours(2), Column.DATESTAMP)
+      .aggregate(parser.parseColumns(csv));
+    Assertions.assertEquals(Arrays.asList(Arrays.asList("2018-11-17")), new ArrayList<>(shifted.keySet()));
+
+    StringBuilder sb = new StringBuilder(readExampleCsv());
+    String rows = sb.substring(sb.indexOf("\n") + 1);
+    while (sb.length() < 8 * 1024 * 1024) {
+      sb.append(rows);
+    }
+
+    SettlementReportAggregator byType = new SettlementReportAggregator(Column.CURRENCY, Column.ORDER_TYPE);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Map<List<String>, SettlementReportAggregate> parallel = byType.aggregate(parser.parseColumns(sb.toString()), pool);
+      Map<List<String>, SettlementReportAggregate> streamed;
+      try (Stream<SettlementReportResponseDataEntry> stream = parser.stream(new StringReader(sb.toString()))) {
+        streamed = byType.aggregate(stream);
+      }
+
+      Assertions.assertEquals(new ArrayList<>(streamed.keySet()), new ArrayList<>(parallel.keySet()));
+      Assertions.assertEquals(streamed.toString(), parallel.toString());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void testParseMappedFile(@TempDir Path directory) throws Exception {
+
+    String csv = readExampleCsv() + "2018-11-17 00:30:00+00,K\u00f6pman \ud83d\udcb0,SEK,1.00,2.00,1,\"Deposit, FX\"\n";
+    Path file = directory.resolve("settlementreport.csv");
+    Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+
+    SettlementReportParser parser = new SettlementReportParser();
+    List<SettlementReportResponseDataEntry> entries = new ArrayList<>();
+    parser.parse(file, entries::add);
+
+    Assertions.assertEquals(parser.parse(csv), entries);
+    Assertions.assertEquals("K\u00f6pman \ud83d\udcb0", entries.get(entries.size() - 1).getAccountName());
+    Assertions.assertEquals(entries, parser.parseColumns(file).toEntries());
+
+    // Tiny windows and single char reads split both UTF-8 sequences and surrogate pairs.
+    StringBuilder sb = new StringBuilder();
+    try (MappedFileReader reader = new MappedFileReader(file, 5)) {
+      char[] one = new char[1];
+      while (reader.read(one, 0, 1) != -1) {
+        sb.append(one[0]);
+      }
+    }
+
+    Assertions.assertEquals(csv, sb.toString());
+  }
+}
@@ -1,14 +1,27 @@
 package com.trustly.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.trustly.api.client.DefaultJsonRpcSigner;
+import com.trustly.api.client.Serializer;
 import com.trustly.api.client.TrustlyApiClient;
 import com.trustly.api.client.TrustlyApiClientSettings;
+import com.trustly.api.client.ValidationPolicy;
+import com.trustly.api.domain.base.IFromTrustlyRequestData;
 import com.trustly.api.domain.base.IResponseResultData;
 import com.trustly.api.domain.base.IToTrustlyRequestParams;
+import com.trustly.api.domain.base.NotificationRequest;
+import com.trustly.api.domain.base.NotificationResponse;
 import com.trustly.api.domain.exceptions.TrustlyErrorResponseException;
 import com.trustly.api.domain.exceptions.TrustlyRequestException;
+import com.trustly.api.domain.exceptions.TrustlySignatureException;
+import com.trustly.api.domain.exceptions.TrustlyValidationException;
 import com.trustly.api.domain.methods.accountledger.AccountLedgerRequestData;
 import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseData;
+import com.trustly.api.domain.methods.accountledger.AccountLedgerResponseDataEntry;
 import com.trustly.api.domain.methods.accountpayout.AccountPayoutRequestData;
 import com.trustly.api.domain.methods.accountpayout.AccountPayoutResponseData;
 import com.trustly.api.domain.methods.approvewithdrawal.ApproveWithdrawalRequestData;
@@ -35,15 +48,38 @@ import com.trustly.api.domain.methods.settlementreport.SettlementReportRequestDa
 import com.trustly.api.domain.methods.settlementreport.SettlementReportResponseData;
 import com.trustly.api.domain.methods.withdraw.WithdrawRequestData;
 import com.trustly.api.domain.methods.withdraw.WithdrawResponseData;
+import com.trustly.api.domain.notifications.CreditNotificationData;
+import com.trustly.api.ledger.AccountLedgerFetcher;
+import com.trustly.api.ledger.FileLedgerCheckpointStore;
+import com.trustly.api.ledger.IncrementalLedgerSync;
+import com.trustly.api.ledger.LedgerCheckpoint;
 import com.trustly.api.request.HttpRequester;
 import com.trustly.api.util.TrustlyStreamUtils;
+import com.trustly.api.withdrawal.GetWithdrawalsBatcher;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class TestExamplePayloads {
 
@@ -56,6 +92,341 @@ class TestExamplePayloads {
     )
     .andTrustlyCertificate();
 
+  @Test
+  void testStreamingAccountLedger() throws Exception {
+
+    TrustlyApiClientSettings selfSignedSettings = createSelfSignedSettings();
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    ObjectNode response;
+    try (InputStream is = TestExamplePayloads.class.getResourceAsStream("/responses/accountledger.json")) {
+      response = (ObjectNode) objectMapper.readTree(is);
+    }
+
+    DefaultJsonRpcSigner signer = new DefaultJsonRpcSigner(new Serializer(), selfSignedSettings);
+    final boolean[] tamper = new boolean[1];
+    HttpRequester fakeHttpRequester = (settings, request) -> {
+      String uuid = objectMapper.readTree(request).at("/params/UUID").asText();
+      ObjectNode result = (ObjectNode) response.get("result");
+      result.put("uuid", uuid);
+      result.put("signature", signer.signSerializedData("AccountLedger", uuid, new Serializer().serializeNode(result.get("data"))));
+
+      String responseString = objectMapper.writeValueAsString(response);
+      return tamper[0] ? responseString.replace("-3.01", "-3.02") : responseString;
+    };
+
+    AccountLedgerRequestData request;
+    try (InputStream requestStream = TestExamplePayloads.class.getResourceAsStream("/requests/accountledger.json")) {
+      request = objectMapper.readValue(requestStream, AccountLedgerRequestData.class);
+    }
+
+    try (TrustlyApiClient client = new TrustlyApiClient(selfSignedSettings, fakeHttpRequester)) {
+
+      List<AccountLedgerResponseDataEntry> streamed = new ArrayList<>();
+      client.accountLedger(request, streamed::add);
+
+      Assertions.assertEquals(client.accountLedger(request).getEntries(), streamed);
+      Assertions.assertSame(streamed.get(0).getUserId(), streamed.get(1).getUserId());
+
+      tamper[0] = true;
+      TrustlyRequestException ex = Assertions.assertThrows(TrustlyRequestException.class, () -> client.accountLedger(request, entry -> {
+      }));
+      Assertions.assertEquals(TrustlySignatureException.class, ex.getCause().getClass());
+    }
+
+    // Signers that cannot verify incrementally fall back on verifying the whole data at the end.
+    try (TrustlyApiClient client = new TrustlyApiClient(selfSignedSettings, new NoOpJsonRpcSigner(), fakeHttpRequester)) {
+      List<AccountLedgerResponseDataEntry> streamed = new ArrayList<>();
+      client.accountLedger(request, streamed::add);
+      Assertions.assertEquals(2, streamed.size());
+    }
+
+    String errorResponse;
+    try (InputStream is = TestExamplePayloads.class.getResourceAsStream("/responses/error_invalid_parameters.json")) {
+      errorResponse = TrustlyStreamUtils.readerToString(new InputStreamReader(is, StandardCharsets.UTF_8));
+    }
+
+    try (TrustlyApiClient client = new TrustlyApiClient(selfSignedSettings, new NoOpJsonRpcSigner(), (settings, r) -> errorResponse)) {
+      TrustlyRequestException ex = Assertions.assertThrows(TrustlyRequestException.class, () -> client.accountLedger(request, entry -> {
+      }));
+      Assertions.assertEquals(623, ((TrustlyErrorResponseException) ex.getCause()).getResponseError().getCode());
+    }
+  }
+
+  @Test
+  void testFetchAccountLedgerInSlices() throws Exception {
+
+    TrustlyApiClientSettings selfSignedSettings = createSelfSignedSettings();
+    ObjectMapper objectMapper = new ObjectMapper();
+    DefaultJsonRpcSigner signer = new DefaultJsonRpcSigner(new Serializer(), selfSignedSettings);
+
+    AtomicInteger remainingFailures = new AtomicInteger(1);
+    HttpRequester fakeHttpRequester = (settings, request) -> {
+      JsonNode params = objectMapper.readTree(request).get("params");
+      String uuid = params.get("UUID").asText();
+      String fromDate = params.at("/Data/FromDate").asText();
+      String currency = params.at("/Data/Currency").asText();
+
+      if ("2014-01-29".equals(fromDate) && "EUR".equals(currency) && remainingFailures.get() > 0) {
+        remainingFailures.decrementAndGet();
+        throw new IOException("Connection reset");
+      }
+
+      // The SEK entries are earlier in the day, so the merged entries are not in the order of the slices.
+      String time = "SEK".equals(currency) ? " 10:00:00+01" : " 12:00:00+01";
+      ArrayNode data = objectMapper.createArrayNode();
+      data.addObject().put("orderid", fromDate + currency).put("datestamp", fromDate + time).put("currency", currency).put("amount", "1.00");
+      if ("2014-01-30".equals(fromDate)) {
+        // An entry exactly at midnight can be given by both slices around it.
+        data.addObject().put("orderid", "2014-01-29" + currency).put("datestamp", "2014-01-29" + time).put("currency", currency).put("amount", "1.00");
+      }
+
+      if ("2014-01-30".equals(fromDate) && "EUR".equals(currency)) {
+        // Two real rows that happen to be exactly the same must both be kept.
+        for (int i = 0; i < 2; i++) {
+          data.addObject().put("orderid", fromDate + "fee").put("datestamp", fromDate + time).put("currency", currency)
+            .put("amount", "-0.10");
+        }
+      }
+
+      return createSignedLedgerResponse(signer, uuid, data);
+    };
+
+    try (
+      TrustlyApiClient client = new TrustlyApiClient(selfSignedSettings, fakeHttpRequester);
+      AccountLedgerFetcher fetcher = new AccountLedgerFetcher(client, 1, 2, 2, 1)
+    ) {
+      List<AccountLedgerResponseDataEntry> entries = fetcher.fetch(
+        LocalDate.of(2014, 1, 29), LocalDate.of(2014, 1, 31), Arrays.asList("EUR", "SEK")
+      );
+
+      List<String> orderIds = new ArrayList<>();
+      for (AccountLedgerResponseDataEntry entry : entries) {
+        orderIds.add(entry.getOrderId());
+      }
+
+      Assertions.assertEquals(
+        Arrays.asList("2014-01-29SEK", "2014-01-29EUR", "2014-01-30SEK", "2014-01-30EUR", "2014-01-30fee", "2014-01-30fee"), orderIds
+      );
+      Assertions.assertEquals(0, remainingFailures.get());
+    }
+
+    // A slice that keeps failing fails the whole fetch.
+    remainingFailures.set(2);
+    try (
+      TrustlyApiClient client = new TrustlyApiClient(selfSignedSettings, fakeHttpRequester);
+      AccountLedgerFetcher fetcher = new AccountLedgerFetcher(client, 1, 2, 2, 1)
+    ) {
+      TrustlyRequestException ex = Assertions.assertThrows(TrustlyRequestException.class, () -> fetcher.fetch(
+        LocalDate.of(2014, 1, 29), LocalDate.of(2014, 1, 31), Arrays.asList("EUR", "SEK")
+      ));
+      Assertions.assertEquals(IOException.class, ex.getCause().getClass());
+    }
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new AccountLedgerFetcher(null, 1, 2, 2, -1));
+  }
+
+  @Test
+  void testIncrementalLedgerSync(@TempDir Path tempDir) throws Exception {
+
+    TrustlyApiClientSettings selfSignedSettings = createSelfSignedSettings();
+    ObjectMapper objectMapper = new ObjectMapper();
+    DefaultJsonRpcSigner signer = new DefaultJsonRpcSigner(new Serializer(), selfSignedSettings);
+
+    // The fake ledger gives all entries whatever days are asked for, which is the worst case of overlap.
+    ArrayNode ledger = objectMapper.createArrayNode();
+    ledger.addObject().put("orderid", "2").put("accountname", "BANK").put("datestamp", "2014-01-30 12:00:00+01").put("currency", "EUR");
+    ledger.addObject().put("orderid", "1").put("accountname", "BANK").put("datestamp", "2014-01-29 10:00:00+01").put("currency", "EUR");
+
+    List<String> fromDates = new ArrayList<>();
+    HttpRequester fakeHttpRequester = (settings, request) -> {
+      JsonNode params = objectMapper.readTree(request).get("params");
+      fromDates.add(params.at("/Data/FromDate").asText());
+      return createSignedLedgerResponse(signer, params.get("UUID").asText(), ledger);
+    };
+
+    Path checkpointFile = tempDir.resolve("checkpoints.json");
+    Clock clock = Clock.fixed(Instant.parse("2014-01-31T08:00:00Z"), ZoneOffset.UTC);
+
+    try (TrustlyApiClient client = new TrustlyApiClient(selfSignedSettings, fakeHttpRequester)) {
+
+      List<String> orderIds = new ArrayList<>();
+      IncrementalLedgerSync sync = new IncrementalLedgerSync(client, new FileLedgerCheckpointStore(checkpointFile), LocalDate.of(2014, 1, 1), clock);
+      Assertions.assertEquals(2, sync.sync("EUR", entry -> orderIds.add(entry.getOrderId())));
+      Assertions.assertEquals(Arrays.asList("1", "2"), orderIds);
+
+      // Another entry of the same order at the same instant, a later order, and an entry without a valid datestamp.
+      ledger.addObject().put("orderid", "2").put("accountname", "FEE").put("datestamp", "2014-01-30 12:00:00+01").put("currency", "EUR");
+      ledger.addObject().put("orderid", "3").put("accountname", "BANK").put("datestamp", "2014-01-30 13:00:00+01").put("currency", "EUR");
+      ledger.addObject().put("orderid", "4").put("accountname", "BANK").put("datestamp", "yesterday").put("currency", "EUR");
+
+      // The checkpoint is read back from the file by a new instance.
+      orderIds.clear();
+      sync = new IncrementalLedgerSync(client, new FileLedgerCheckpointStore(checkpointFile), LocalDate.of(2014, 1, 1), clock);
+      Assertions.assertEquals(3, sync.sync("EUR", entry -> orderIds.add(entry.getOrderId() + "/" + entry.getAccountName())));
+      Assertions.assertEquals(Arrays.asList("4/BANK", "2/FEE", "3/BANK"), orderIds);
+
+      Assertions.assertEquals(0, sync.sync("EUR", entry -> Assertions.fail("Should not give any entry again")));
+      Assertions.assertEquals(Arrays.asList("2014-01-01", "2014-01-29", "2014-01-29"), fromDates);
+
+      LedgerCheckpoint checkpoint = new FileLedgerCheckpointStore(checkpointFile).load("EUR");
+      Assertions.assertEquals("2014-01-30 13:00:00+01", checkpoint.getDatestamp());
+      Assertions.assertEquals(Collections.singletonList("3|BANK"), checkpoint.getEntries());
+      Assertions.assertEquals(Collections.singletonList("4|BANK|yesterday"), checkpoint.getUndatedEntries());
+      Assertions.assertNull(new FileLedgerCheckpointStore(checkpointFile).load("SEK"));
+
+      IncrementalLedgerSync resumedSync = sync;
+      Assertions.assertThrows(IllegalArgumentException.class, () -> resumedSync.sync(null, entry -> Assertions.fail("Should not give any")));
+    }
+  }
+
+  @Test
+  void testNotificationWithUnquotedDecimal() throws Exception {
+
+    TrustlyApiClientSettings selfSignedSettings = createSelfSignedSettings();
+    ObjectMapper objectMapper = new ObjectMapper();
+    DefaultJsonRpcSigner signer = new DefaultJsonRpcSigner(new Serializer(), selfSignedSettings);
+
+    ObjectNode notification;
+    try (InputStream is = TestExamplePayloads.class.getResourceAsStream("/notifications/incoming/credit.json")) {
+      notification = (ObjectNode) objectMapper.readTree(is);
+    }
+
+    // The amount is a number, which is signed as it was written, with its trailing zero.
+    ObjectNode params = (ObjectNode) notification.get("params");
+    ObjectNode data = (ObjectNode) params.get("data");
+    data.set("amount", DecimalNode.valueOf(new BigDecimal("100.10")));
+    String uuid = params.get("uuid").asText();
+    params.put("signature", signer.signSerializedData("credit", uuid, new Serializer().serializeNode(data)));
+    String json = objectMapper.writeValueAsString(notification);
+    Assertions.assertTrue(json.contains("\"amount\":100.10"));
+
+    try (TrustlyApiClient client = new TrustlyApiClient(selfSignedSettings)) {
+
+      List<String> amounts = new ArrayList<>();
+      client.addOnCreditListener(args -> {
+        amounts.add(args.getData().getAmount());
+        args.respondWithOk();
+      });
+
+      NotificationRequest<? extends IFromTrustlyRequestData> verified = client.verifyNotification(json);
+      Assertions.assertEquals("100.10", ((CreditNotificationData) verified.getParams().getData()).getAmount());
+
+      byte[] body = json.getBytes(StandardCharsets.UTF_8);
+      client.handleNotification(body, 0, body.length, (method, notificationUuid) -> {
+      }, (method, notificationUuid, message) -> Assertions.fail("Should have been handled"));
+      Assertions.assertEquals(Collections.singletonList("100.10"), amounts);
+    }
+  }
+
+  @Test
+  void testValidationPolicies() throws Exception {
+
+    TrustlyApiClientSettings settings = createSelfSignedSettings();
+    DepositRequestData invalidDeposit = DepositRequestData.builder().notificationUrl("https://someurl.fake").build();
+
+    try (TrustlyApiClient client = new TrustlyApiClient(settings)) {
+
+      ValidationPolicy full = ValidationPolicy.full();
+      settings.setValidationPolicy(full);
+      Assertions.assertThrows(TrustlyValidationException.class, () -> client.createRequestPackage(invalidDeposit, "Deposit", null));
+      client.createResponsePackage("account", "e76ffbe5-e0f9-4402-8689-f868ed2021f8", NotificationResponse.builder().status("OK").build());
+      Assertions.assertEquals(2, full.getValidatedCount());
+      Assertions.assertEquals(1, full.getViolationCount());
+
+      ValidationPolicy outgoingOnly = ValidationPolicy.outgoingOnly();
+      settings.setValidationPolicy(outgoingOnly);
+      Assertions.assertThrows(TrustlyValidationException.class, () -> client.createRequestPackage(invalidDeposit, "Deposit", null));
+      client.createResponsePackage("account", "e76ffbe5-e0f9-4402-8689-f868ed2021f8", NotificationResponse.builder().status("OK").build());
+      Assertions.assertEquals(1, outgoingOnly.getValidatedCount());
+      Assertions.assertEquals(1, outgoingOnly.getSkippedCount());
+
+      // Requests are always validated and an invalid one is never sent, whatever the sample rate.
+      ValidationPolicy sampled = ValidationPolicy.sampled(0);
+      settings.setValidationPolicy(sampled);
+      Assertions.assertThrows(TrustlyValidationException.class, () -> client.createRequestPackage(invalidDeposit, "Deposit", null));
+      client.createResponsePackage("account", "e76ffbe5-e0f9-4402-8689-f868ed2021f8", NotificationResponse.builder().status("OK").build());
+      Assertions.assertEquals(1, sampled.getValidatedCount());
+      Assertions.assertEquals(1, sampled.getViolationCount());
+      Assertions.assertEquals(1, sampled.getSkippedCount());
+
+      ValidationPolicy off = ValidationPolicy.off();
+      settings.setValidationPolicy(off);
+      Assertions.assertNotNull(client.createRequestPackage(invalidDeposit, "Deposit", null));
+      Assertions.assertEquals(0, off.getValidatedCount());
+      Assertions.assertEquals(1, off.getSkippedCount());
+    }
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ValidationPolicy.sampled(1.5));
+  }
+
+  @Test
+  void testBatchedGetWithdrawals() throws Exception {
+
+    String responseString;
+    try (InputStream is = TestExamplePayloads.class.getResourceAsStream("/responses/getwithdrawals.json")) {
+      responseString = TrustlyStreamUtils.readerToString(new InputStreamReader(is, StandardCharsets.UTF_8));
+    }
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    HttpRequester fakeHttpRequester = (settings, request) -> {
+      JsonNode params = objectMapper.readTree(request).get("params");
+      String orderId = params.at("/Data/OrderID").asText();
+      calls.computeIfAbsent(orderId, key -> new AtomicInteger()).incrementAndGet();
+      if ("0".equals(orderId)) {
+        return responseString.replace("GetWithdrawals", "Unknown");
+      } else if ("error".equals(orderId)) {
+        throw new AssertionError("Thrown by the fake requester");
+      }
+
+      return responseString.replace("11111111-1111-1111-1111-111111111111", params.get("UUID").asText());
+    };
+
+    try (
+      TrustlyApiClient client = new TrustlyApiClient(this.settings, new NoOpJsonRpcSigner(), fakeHttpRequester);
+      GetWithdrawalsBatcher batcher = new GetWithdrawalsBatcher(client, 200, 2)
+    ) {
+      List<CompletableFuture<GetWithdrawalsResponseData>> futures = new ArrayList<>();
+      for (String orderId : Arrays.asList("1", "2", "1", "3", "2", "1")) {
+        futures.add(batcher.getWithdrawals(orderId));
+      }
+
+      Assertions.assertSame(futures.get(0), futures.get(2));
+      Assertions.assertSame(futures.get(1), futures.get(4));
+
+      for (CompletableFuture<GetWithdrawalsResponseData> future : futures) {
+        Assertions.assertEquals("1436557899", future.get(10, TimeUnit.SECONDS).getEntries().get(0).getOrderId());
+      }
+
+      Assertions.assertEquals(3, calls.size());
+      for (AtomicInteger count : calls.values()) {
+        Assertions.assertEquals(1, count.get());
+      }
+
+      // Once answered, an order id is called again.
+      batcher.getWithdrawals("1").get(10, TimeUnit.SECONDS);
+      Assertions.assertEquals(2, calls.get("1").get());
+
+      ExecutionException ex = Assertions.assertThrows(ExecutionException.class, () -> batcher.getWithdrawals("0").get(10, TimeUnit.SECONDS));
+      Assertions.assertEquals(TrustlyRequestException.class, ex.getCause().getClass());
+
+      ex = Assertions.assertThrows(ExecutionException.class, () -> batcher.getWithdrawals("error").get(10, TimeUnit.SECONDS));
+      Assertions.assertEquals(AssertionError.class, ex.getCause().getClass());
+    }
+
+    // The lookups of a window that has not ended yet are called when the batcher is closed.
+    CompletableFuture<GetWithdrawalsResponseData> waiting;
+    try (
+      TrustlyApiClient client = new TrustlyApiClient(this.settings, new NoOpJsonRpcSigner(), fakeHttpRequester);
+      GetWithdrawalsBatcher batcher = new GetWithdrawalsBatcher(client, 60_000, 2)
+    ) {
+      waiting = batcher.getWithdrawals("4");
+    }
+
+    Assertions.assertEquals("1436557899", waiting.get(10, TimeUnit.SECONDS).getEntries().get(0).getOrderId());
+  }
+
   @Test
   void testInvalidParametersResponse() throws Exception {
 
@@ -238,4 +609,29 @@ class TestExamplePayloads {
       }
     }
   }
+
+  private static TrustlyApiClientSettings createSelfSignedSettings() {
+    return TrustlyApiClientSettings.forTest()
+      .withCredentials("merchant_username", "merchant_password")
+      .withCertificatesFromStreams(
+        NotificationsTest.class.getResourceAsStream("/keys/merchant_public_key.pem"),
+        NotificationsTest.class.getResourceAsStream("/keys/merchant_private_key.pem")
+      )
+      .andTrustlyCertificateFromStream(
+        // We pretend that Trustly is our own test certificate, so we can sign the fake responses.
+        NotificationsTest.class.getResourceAsStream("/keys/merchant_public_key.pem")
+      );
+  }
+
+  private static String createSignedLedgerResponse(DefaultJsonRpcSigner signer, String uuid, ArrayNode data) throws IOException {
+
+    ObjectNode response = new ObjectMapper().createObjectNode().put("version", "1.1");
+    response.putObject("result")
+      .put("method", "AccountLedger")
+      .put("uuid", uuid)
+      .put("signature", signer.signSerializedData("AccountLedger", uuid, new Serializer().serializeNode(data)))
+      .set("data", data);
+
+    return new ObjectMapper().writeValueAsString(response);
+  }
 }